@@ -1,8 +1,26 @@
 package com.zjhy.love.worktools;
 
+import com.zjhy.love.worktools.service.daemon.TunnelDaemon;
+import com.zjhy.love.worktools.service.proxy.AsyncUpstreamClient;
+
+import java.util.Arrays;
+
 public class Startup {
 
-    public static void main(String[] args) {
+    /**
+     * 以后台服务方式启动，不加载界面
+     */
+    public static final String DAEMON_ARG = "--daemon";
+
+    public static void main(String[] args) throws Exception {
+        // 必须早于任何 java.net.http 客户端的创建，否则异步代理无法转发 Host 头
+        if (System.getProperty(AsyncUpstreamClient.ALLOW_RESTRICTED_HEADERS) == null) {
+            System.setProperty(AsyncUpstreamClient.ALLOW_RESTRICTED_HEADERS, "host");
+        }
+        if (Arrays.asList(args).contains(DAEMON_ARG)) {
+            TunnelDaemon.main(args);
+            return;
+        }
         WorkToolsApplication.main(args);
     }
 }
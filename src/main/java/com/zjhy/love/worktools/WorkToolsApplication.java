@@ -62,7 +62,7 @@ public class WorkToolsApplication extends Application {
             // 从布局控制器获取IP转发控制器
             IpForwardController controller = layoutController.getIpForwardController();
             if (controller != null) {
-                controller.stop();
+                controller.shutdown();
                 LOGGER.info("IP转发服务已停止");
             }
         } catch (Exception e) {
@@ -0,0 +1,97 @@
+package com.zjhy.love.worktools.common.util;
+
+/**
+ * 熔断器
+ * 连续失败达到阈值后进入熔断状态，熔断期间直接拒绝请求；熔断时长过后放行一次探测请求，
+ * 探测成功则恢复，失败则重新熔断
+ */
+public class CircuitBreaker {
+
+    /**
+     * 熔断器状态
+     */
+    public enum State {
+        /**
+         * 正常
+         */
+        CLOSED,
+        /**
+         * 熔断中
+         */
+        OPEN,
+        /**
+         * 探测中
+         */
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+
+    private final long openMillis;
+
+    private State state = State.CLOSED;
+
+    private int failures;
+
+    private long openUntil;
+
+    /**
+     * @param failureThreshold 连续失败次数阈值
+     * @param openMillis       熔断持续时长（毫秒）
+     */
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMillis = Math.max(0, openMillis);
+    }
+
+    /**
+     * 是否放行本次请求，熔断时长过后只放行一次探测
+     */
+    public synchronized boolean allowRequest() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.currentTimeMillis() >= openUntil) {
+                    state = State.HALF_OPEN;
+                    return true;
+                }
+                return false;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * 记录一次成功
+     */
+    public synchronized void recordSuccess() {
+        failures = 0;
+        state = State.CLOSED;
+    }
+
+    /**
+     * 记录一次失败
+     */
+    public synchronized void recordFailure() {
+        failures++;
+        if (state == State.HALF_OPEN || failures >= failureThreshold) {
+            state = State.OPEN;
+            openUntil = System.currentTimeMillis() + openMillis;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * 熔断中拒绝请求时抛出的异常
+     */
+    public static class OpenException extends IllegalStateException {
+
+        public OpenException(String target, Throwable cause) {
+            super("目标已熔断: " + target, cause);
+        }
+    }
+}
@@ -109,6 +109,14 @@ public class HistoryUtil {
         saveHistory(toolName, null);
     }
 
+    /**
+     * 重新从文件加载历史记录，用于读取其他进程保存的修改
+     */
+    public static void reloadHistory() {
+        HISTORY_CACHE.clear();
+        loadHistory();
+    }
+
     /**
      * 加载历史记录
      */
@@ -0,0 +1,50 @@
+package com.zjhy.love.worktools.common.util;
+
+/**
+ * 重试预算
+ * 令牌桶方式限制重试占比：每次失败扣除一个令牌，每次成功返还 tokenRatio 个令牌，
+ * 令牌不高于上限的一半时停止重试，避免目标故障时重试流量成倍放大
+ */
+public class RetryBudget {
+
+    private final double maxTokens;
+
+    private final double tokenRatio;
+
+    private double tokens;
+
+    /**
+     * @param maxTokens  令牌上限
+     * @param tokenRatio 每次成功返还的令牌数
+     */
+    public RetryBudget(int maxTokens, double tokenRatio) {
+        this.maxTokens = Math.max(1, maxTokens);
+        this.tokenRatio = Math.max(0, tokenRatio);
+        this.tokens = this.maxTokens;
+    }
+
+    /**
+     * 记录一次成功
+     */
+    public synchronized void recordSuccess() {
+        tokens = Math.min(maxTokens, tokens + tokenRatio);
+    }
+
+    /**
+     * 记录一次失败
+     */
+    public synchronized void recordFailure() {
+        tokens = Math.max(0, tokens - 1);
+    }
+
+    /**
+     * 是否还允许重试
+     */
+    public synchronized boolean canRetry() {
+        return tokens > maxTokens / 2;
+    }
+
+    public synchronized double getTokens() {
+        return tokens;
+    }
+}
@@ -0,0 +1,193 @@
+package com.zjhy.love.worktools.common.util;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+/**
+ * 重试策略
+ * 描述退避方式、最大次数、截止时间、可重试的异常、重试预算与熔断参数，供 {@link RetryUtil#retryAsync} 使用。
+ * 策略创建后可在多次调用之间共享
+ */
+public class RetryPolicy {
+
+    /**
+     * 退避方式
+     */
+    public enum Backoff {
+        /**
+         * 固定间隔
+         */
+        FIXED,
+        /**
+         * 指数退避：间隔按次数翻倍且不超过上限，再在其一半到全部之间随机取值
+         */
+        EXPONENTIAL,
+        /**
+         * 去相关抖动：在初始间隔与上次间隔的三倍之间随机取值，且不超过上限
+         */
+        DECORRELATED_JITTER
+    }
+
+    private final Backoff backoff;
+
+    private final long baseMillis;
+
+    private final long maxMillis;
+
+    /**
+     * 最大尝试次数，0表示不限
+     */
+    private int maxAttempts;
+
+    /**
+     * 从首次尝试起的截止时长（毫秒），0表示不限
+     */
+    private long deadlineMillis;
+
+    private Predicate<Throwable> retryOn = e -> true;
+
+    private RetryBudget budget;
+
+    /**
+     * 连续失败多少次后熔断，0表示不熔断
+     */
+    private int breakerThreshold;
+
+    private long breakerOpenMillis;
+
+    private RetryPolicy(Backoff backoff, long baseMillis, long maxMillis) {
+        this.backoff = backoff;
+        this.baseMillis = Math.max(0, baseMillis);
+        this.maxMillis = Math.max(this.baseMillis, maxMillis);
+    }
+
+    /**
+     * 固定间隔重试
+     *
+     * @param delayMillis 间隔（毫秒）
+     */
+    public static RetryPolicy fixed(long delayMillis) {
+        return new RetryPolicy(Backoff.FIXED, delayMillis, delayMillis);
+    }
+
+    /**
+     * 指数退避重试
+     *
+     * @param baseMillis 初始间隔（毫秒）
+     * @param maxMillis  最大间隔（毫秒）
+     */
+    public static RetryPolicy exponential(long baseMillis, long maxMillis) {
+        return new RetryPolicy(Backoff.EXPONENTIAL, baseMillis, maxMillis);
+    }
+
+    /**
+     * 去相关抖动重试
+     *
+     * @param baseMillis 初始间隔（毫秒）
+     * @param maxMillis  最大间隔（毫秒）
+     */
+    public static RetryPolicy decorrelatedJitter(long baseMillis, long maxMillis) {
+        return new RetryPolicy(Backoff.DECORRELATED_JITTER, baseMillis, maxMillis);
+    }
+
+    /**
+     * 设置最大尝试次数（含首次），0表示不限
+     */
+    public RetryPolicy maxAttempts(int maxAttempts) {
+        this.maxAttempts = Math.max(0, maxAttempts);
+        return this;
+    }
+
+    /**
+     * 设置截止时长（毫秒），下次重试会超过截止时间时不再重试
+     */
+    public RetryPolicy deadline(long deadlineMillis) {
+        this.deadlineMillis = Math.max(0, deadlineMillis);
+        return this;
+    }
+
+    /**
+     * 设置可重试的异常，不满足条件的异常直接失败
+     */
+    public RetryPolicy retryOn(Predicate<Throwable> retryOn) {
+        this.retryOn = retryOn;
+        return this;
+    }
+
+    /**
+     * 设置重试预算，预算耗尽时不再重试
+     */
+    public RetryPolicy budget(RetryBudget budget) {
+        this.budget = budget;
+        return this;
+    }
+
+    /**
+     * 启用按目标的熔断
+     *
+     * @param failureThreshold 连续失败次数阈值
+     * @param openMillis       熔断持续时长（毫秒）
+     */
+    public RetryPolicy circuitBreaker(int failureThreshold, long openMillis) {
+        this.breakerThreshold = Math.max(0, failureThreshold);
+        this.breakerOpenMillis = Math.max(0, openMillis);
+        return this;
+    }
+
+    /**
+     * 计算下一次重试前的等待时长
+     *
+     * @param attempt       已失败的次数，从1开始
+     * @param previousDelay 上一次的等待时长，首次为0
+     * @return 等待时长（毫秒）
+     */
+    long nextDelayMillis(int attempt, long previousDelay) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        switch (backoff) {
+            case EXPONENTIAL:
+                long ceiling = Math.min(maxMillis, baseMillis << Math.min(attempt - 1, 30));
+                return ceiling / 2 + random.nextLong(ceiling / 2 + 1);
+            case DECORRELATED_JITTER:
+                long upper = Math.max(baseMillis, Math.min(maxMillis, Math.max(previousDelay, baseMillis) * 3));
+                return baseMillis + random.nextLong(upper - baseMillis + 1);
+            default:
+                return baseMillis;
+        }
+    }
+
+    boolean canAttempt(int attempt) {
+        return maxAttempts == 0 || attempt <= maxAttempts;
+    }
+
+    boolean isRetryable(Throwable e) {
+        return retryOn.test(e);
+    }
+
+    CircuitBreaker newCircuitBreaker() {
+        return breakerThreshold > 0 ? new CircuitBreaker(breakerThreshold, breakerOpenMillis) : null;
+    }
+
+    public Backoff getBackoff() {
+        return backoff;
+    }
+
+    public long getBaseMillis() {
+        return baseMillis;
+    }
+
+    public long getMaxMillis() {
+        return maxMillis;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public long getDeadlineMillis() {
+        return deadlineMillis;
+    }
+
+    public RetryBudget getBudget() {
+        return budget;
+    }
+}
@@ -3,15 +3,59 @@ package com.zjhy.love.worktools.common.util;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 /**
  * 重试工具类
+ * 同步重试在调用线程上等待；异步重试由共享的调度线程安排等待，等待期间不占用任何线程
  */
 public class RetryUtil {
     private static final Logger LOGGER = LoggerFactory.getLogger(RetryUtil.class);
 
+    /**
+     * 安排重试等待的调度线程
+     */
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "retry-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 执行阻塞任务的工作线程，空闲后自动回收
+     */
+    private static final ExecutorService WORKERS;
+
+    /**
+     * 按目标维护的熔断器
+     */
+    private static final Map<String, CircuitBreaker> BREAKERS = new ConcurrentHashMap<>();
+
+    static {
+        AtomicInteger threadIndex = new AtomicInteger();
+        WORKERS = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "retry-worker-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private RetryUtil() {
+    }
+
     public static <T> T retry(Callable<T> task, Predicate<Exception> retryable, int maxAttempts, long delayMs) throws Exception {
         Exception lastException = null;
         for (int attempt = 1; attempt <= maxAttempts; attempt++) {
@@ -28,4 +72,148 @@ public class RetryUtil {
         }
         throw lastException;
     }
-} 
\ No newline at end of file
+
+    /**
+     * 异步重试阻塞任务，任务在工作线程上执行
+     *
+     * @param target 目标名称，用于日志与熔断
+     * @param task   任务
+     * @param policy 重试策略
+     * @return 最终结果，重试结束仍失败时以最后一次的异常完成
+     */
+    public static <T> CompletableFuture<T> retryAsync(String target, Callable<T> task, RetryPolicy policy) {
+        return retryStage(target, () -> CompletableFuture.supplyAsync(() -> {
+            try {
+                return task.call();
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, WORKERS), policy);
+    }
+
+    /**
+     * 异步重试本身返回异步结果的任务
+     *
+     * @param target 目标名称，用于日志与熔断
+     * @param task   每次调用发起一次尝试
+     * @param policy 重试策略
+     * @return 最终结果，取消该结果即停止后续重试
+     */
+    public static <T> CompletableFuture<T> retryStage(String target, Supplier<? extends CompletionStage<T>> task,
+                                                      RetryPolicy policy) {
+        CircuitBreaker breaker = policy.newCircuitBreaker() == null ? null
+                : BREAKERS.computeIfAbsent(target, key -> policy.newCircuitBreaker());
+        AsyncRetry<T> retry = new AsyncRetry<>(target, task, policy, breaker);
+        retry.attempt();
+        return retry.result;
+    }
+
+    /**
+     * 获取目标的熔断器
+     *
+     * @param target 目标名称
+     * @return 熔断器，未启用熔断时返回null
+     */
+    public static CircuitBreaker getCircuitBreaker(String target) {
+        return BREAKERS.get(target);
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        while ((e instanceof CompletionException || e instanceof ExecutionException) && e.getCause() != null) {
+            e = e.getCause();
+        }
+        return e;
+    }
+
+    /**
+     * 一次异步重试过程
+     */
+    private static final class AsyncRetry<T> {
+
+        private final String target;
+
+        private final Supplier<? extends CompletionStage<T>> task;
+
+        private final RetryPolicy policy;
+
+        private final CircuitBreaker breaker;
+
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        private final long deadline;
+
+        private int attempt;
+
+        private long previousDelay;
+
+        private AsyncRetry(String target, Supplier<? extends CompletionStage<T>> task, RetryPolicy policy,
+                           CircuitBreaker breaker) {
+            this.target = target;
+            this.task = task;
+            this.policy = policy;
+            this.breaker = breaker;
+            this.deadline = policy.getDeadlineMillis() > 0 ? System.currentTimeMillis() + policy.getDeadlineMillis() : 0;
+        }
+
+        private void attempt() {
+            if (result.isDone()) {
+                return;
+            }
+            attempt++;
+            if (breaker != null && !breaker.allowRequest()) {
+                result.completeExceptionally(new CircuitBreaker.OpenException(target, null));
+                return;
+            }
+            CompletionStage<T> stage;
+            try {
+                stage = task.get();
+            } catch (Exception e) {
+                onFailure(e);
+                return;
+            }
+            stage.whenComplete((value, e) -> {
+                if (e == null) {
+                    onSuccess(value);
+                } else {
+                    onFailure(unwrap(e));
+                }
+            });
+        }
+
+        private void onSuccess(T value) {
+            if (breaker != null) {
+                breaker.recordSuccess();
+            }
+            RetryBudget budget = policy.getBudget();
+            if (budget != null) {
+                budget.recordSuccess();
+            }
+            result.complete(value);
+        }
+
+        private void onFailure(Throwable e) {
+            if (breaker != null) {
+                breaker.recordFailure();
+            }
+            RetryBudget budget = policy.getBudget();
+            if (budget != null) {
+                budget.recordFailure();
+            }
+            if (result.isDone()) {
+                return;
+            }
+            if (!policy.isRetryable(e) || !policy.canAttempt(attempt + 1) || (budget != null && !budget.canRetry())) {
+                result.completeExceptionally(e);
+                return;
+            }
+            long delay = policy.nextDelayMillis(attempt, previousDelay);
+            if (deadline > 0 && System.currentTimeMillis() + delay > deadline) {
+                result.completeExceptionally(e);
+                return;
+            }
+            previousDelay = delay;
+            LOGGER.warn("{}第{}次尝试失败: {}, {}ms后重试", target, attempt, e.getMessage(), delay);
+            SCHEDULER.schedule(this::attempt, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+}
@@ -1,6 +1,6 @@
 package com.zjhy.love.worktools.controller;
 
-import com.alibaba.nacos.api.naming.pojo.Instance;
+import cn.hutool.core.io.unit.DataSizeUtil;
 import com.dlsc.formsfx.model.structure.Field;
 import com.dlsc.formsfx.model.structure.Form;
 import com.dlsc.formsfx.model.structure.Group;
@@ -9,18 +9,30 @@ import com.dlsc.formsfx.view.renderer.FormRenderer;
 import com.zjhy.love.worktools.common.util.FileUtil;
 import com.zjhy.love.worktools.common.util.HistoryUtil;
 import com.zjhy.love.worktools.common.util.NotificationUtil;
-import com.zjhy.love.worktools.common.util.RetryUtil;
+import com.zjhy.love.worktools.model.DaemonStatus;
 import com.zjhy.love.worktools.model.ForwardEntry;
+import com.zjhy.love.worktools.model.HttpProxyConfig;
 import com.zjhy.love.worktools.model.IpForwardConfig;
 import com.zjhy.love.worktools.model.NacosConfig;
+import com.zjhy.love.worktools.model.ProxyListenerConfig;
+import com.zjhy.love.worktools.model.TrafficStats;
+import com.zjhy.love.worktools.service.ForwardOrchestrator;
 import com.zjhy.love.worktools.service.HttpProxyService;
+import com.zjhy.love.worktools.service.NacosForwardService;
 import com.zjhy.love.worktools.service.NacosService;
+import com.zjhy.love.worktools.service.ServiceCatalog;
 import com.zjhy.love.worktools.service.SshService;
+import com.zjhy.love.worktools.service.daemon.DaemonClient;
+import com.zjhy.love.worktools.service.daemon.ForwardRuntime;
+import com.zjhy.love.worktools.service.metrics.TrafficMetrics;
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.application.Platform;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.StringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
-import javafx.collections.transformation.FilteredList;
 import javafx.fxml.FXML;
 import javafx.geometry.Insets;
 import javafx.scene.Node;
@@ -28,15 +40,20 @@ import javafx.scene.control.*;
 import javafx.scene.control.cell.TextFieldTableCell;
 import javafx.scene.layout.VBox;
 import javafx.scene.paint.Color;
+import javafx.util.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.net.ServerSocket;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * IP转发控制器
@@ -95,6 +112,41 @@ public class IpForwardController {
      */
     private final SshService sshService = new SshService();
 
+    /**
+     * SSH会话数
+     * 随SSH配置一起保存和导入导出
+     */
+    private int sessionPoolSize = SshService.DEFAULT_POOL_SIZE;
+
+    /**
+     * SSH保活间隔（秒）与最大无响应次数
+     * 随SSH配置一起保存和导入导出
+     */
+    private int keepAliveSeconds = SshService.DEFAULT_KEEP_ALIVE_SECONDS;
+
+    private int keepAliveCountMax = SshService.DEFAULT_KEEP_ALIVE_COUNT_MAX;
+
+    /**
+     * 转发编排
+     * 在后台以有限并发批量启动端口转发和服务转发，部分失败时回滚
+     */
+    private final ForwardOrchestrator forwardOrchestrator = new ForwardOrchestrator(ForwardOrchestrator.DEFAULT_PARALLELISM);
+
+    /**
+     * 托管转发的后台服务，未托管时为null
+     * 托管期间本地不建立转发，状态与指标从后台服务读取
+     */
+    private volatile DaemonClient daemonClient;
+
+    private volatile DaemonStatus daemonStatus;
+
+    private volatile Map<String, List<TrafficStats>> daemonMetrics = Map.of();
+
+    /**
+     * 是否有正在进行的后台服务查询，避免查询变慢时堆积
+     */
+    private final AtomicBoolean daemonPolling = new AtomicBoolean();
+
     /**
      * 转发规则列表
      * 存储所有的端口转发配置
@@ -135,6 +187,13 @@ public class IpForwardController {
     @FXML
     private Button startForwardButton;
 
+    /**
+     * 后台托管按钮
+     * 将转发移交给后台服务，或结束托管
+     */
+    @FXML
+    private Button daemonButton;
+
     /**
      * 标签页面板
      * 包含SSH转发和Nacos转发两个标签页
@@ -162,11 +221,49 @@ public class IpForwardController {
      */
     private final NacosService nacosService = new NacosService();
 
+    /**
+     * Nacos服务目录
+     * 缓存服务列表并提供搜索索引
+     */
+    private final ServiceCatalog serviceCatalog = new ServiceCatalog(nacosService, 60_000);
+
     /**
      * HTTP代理服务实例
-     * 处理HTTP请求的转发
+     * 处理HTTP请求的转发，启动转发时在后台线程重新创建
      */
-    private final HttpProxyService httpProxyService = new HttpProxyService();
+    private volatile HttpProxyService httpProxyService = new HttpProxyService();
+
+    /**
+     * 本地HTTP代理配置
+     * 随Nacos配置一起保存和导入导出
+     */
+    private HttpProxyConfig proxyConfig = new HttpProxyConfig();
+
+    /**
+     * 每个服务最多转发的实例数，0表示全部
+     */
+    private int maxInstancesPerService = 0;
+
+    /**
+     * 服务实例间的负载均衡策略
+     */
+    private String loadBalanceStrategy = "round_robin";
+
+    /**
+     * 是否订阅服务实例变化
+     */
+    private boolean subscribeEnabled = true;
+
+    /**
+     * 实例变化的合并窗口（毫秒）
+     */
+    private long subscribeDebounceMillis = 500;
+
+    /**
+     * Nacos服务转发
+     * 每次开始转发时随HTTP代理一起在后台线程创建
+     */
+    private volatile NacosForwardService nacosForwardService;
 
     /**
      * Nacos配置表单
@@ -244,18 +341,6 @@ public class IpForwardController {
      */
     private boolean isNacosForwarding = false;
 
-    /**
-     * 最大重试次数
-     * 自动重连时的最大尝试次数
-     */
-    private static final int MAX_RETRY_ATTEMPTS = 3;
-
-    /**
-     * 重试延迟时间
-     * 两次重试之间的等待时间（毫秒）
-     */
-    private static final long RETRY_DELAY_MS = 1000;
-
     /**
      * 服务搜索输入框
      * 用于过滤服务列表
@@ -263,24 +348,21 @@ public class IpForwardController {
     @FXML
     private TextField serviceSearchField;
 
-    /**
-     * 重连定时器
-     * 用于自动重连功能
-     */
-    private java.util.Timer reconnectTimer;
-
-    /**
-     * 自动重连标志
-     * true表示启用自动重连，false表示禁用
-     */
-    private boolean autoReconnect = true;
-
     /**
      * Nacos分组名称属性
      * 用于指定服务所属的分组
      */
     private final StringProperty groupNameProperty = new SimpleStringProperty("DEFAULT_GROUP");
 
+    /**
+     * 指标刷新定时器，每秒刷新表格中的流量指标列
+     */
+    private final Timeline metricsRefresher = new Timeline(new KeyFrame(Duration.seconds(1), event -> {
+        pollDaemon();
+        forwardTable.refresh();
+        serviceTable.refresh();
+    }));
+
     /**
      * 初始化控制器
      * 设置表单、表格和事件监听器
@@ -308,8 +390,19 @@ public class IpForwardController {
         //初始化nacos服务列表
         initializeServiceTable();
 
-        // 启动自动重连定时器
-        //startReconnectTimer();
+        // 启动指标刷新
+        metricsRefresher.setCycleCount(Animation.INDEFINITE);
+        metricsRefresher.play();
+
+        // 会话断开与恢复由SSH服务在后台处理，这里只刷新状态显示
+        sshService.setConnectionListener(connected -> Platform.runLater(this::updateStatusLabel));
+
+        // 后台服务已在运行时直接接管展示
+        CompletableFuture.supplyAsync(DaemonClient::discover).thenAccept(client -> {
+            if (client != null) {
+                Platform.runLater(() -> attachDaemon(client));
+            }
+        });
     }
 
     /**
@@ -462,6 +555,20 @@ public class IpForwardController {
             }
         });
 
+        // 流量指标列
+        TableColumn<ForwardEntry, String> connectionsCol = new TableColumn<>("连接(活动/累计)");
+        connectionsCol.setCellValueFactory(cellData -> new SimpleStringProperty(
+                formatConnections(findForwardStats(cellData.getValue()))));
+        TableColumn<ForwardEntry, String> trafficCol = new TableColumn<>("流量(入/出)");
+        trafficCol.setCellValueFactory(cellData -> new SimpleStringProperty(
+                formatTraffic(findForwardStats(cellData.getValue()))));
+        TableColumn<ForwardEntry, String> latencyCol = new TableColumn<>("建连P99/错误");
+        latencyCol.setCellValueFactory(cellData -> {
+            TrafficStats stats = findForwardStats(cellData.getValue());
+            return new SimpleStringProperty(stats == null ? ""
+                    : String.format("%.1fms / %d", stats.getConnectP99Millis(), stats.getErrors()));
+        });
+
         // 删除列
         TableColumn<ForwardEntry, Void> deleteCol = new TableColumn<>("操作");
         deleteCol.setCellFactory(param -> new TableCell<>() {
@@ -492,11 +599,15 @@ public class IpForwardController {
         localPortCol.setPrefWidth(100);
         remoteHostCol.setPrefWidth(120);
         remotePortCol.setPrefWidth(100);
+        connectionsCol.setPrefWidth(100);
+        trafficCol.setPrefWidth(140);
+        latencyCol.setPrefWidth(110);
         deleteCol.setPrefWidth(60);
 
         forwardTable.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
         // 添加所有列到表格
-        forwardTable.getColumns().addAll(nameCol, localHostCol, localPortCol, remoteHostCol, remotePortCol, deleteCol);
+        forwardTable.getColumns().addAll(nameCol, localHostCol, localPortCol, remoteHostCol, remotePortCol,
+                connectionsCol, trafficCol, latencyCol, deleteCol);
 
         // 绑定数据源
         forwardTable.setItems(forwardEntries);
@@ -505,56 +616,83 @@ public class IpForwardController {
     private void loadHistory() {
         IpForwardConfig history = HistoryUtil.getHistory("ipForward", IpForwardConfig.class);
         if (history != null) {
-            hostProperty.set(history.getHost());
-            portProperty.set(String.valueOf(history.getPort()));
-            usernameProperty.set(history.getUsername());
-            passwordProperty.set(history.getPassword());
-            forwardEntries.setAll(history.getForwardEntries());
+            applySshConfig(history);
         }
     }
 
     private void saveHistory() {
+        HistoryUtil.saveHistory("ipForward", buildSshConfig());
+    }
+
+    /**
+     * 由当前界面状态构建SSH配置
+     */
+    private IpForwardConfig buildSshConfig() {
         IpForwardConfig config = new IpForwardConfig();
         config.setHost(hostProperty.get());
         config.setPort(Integer.parseInt(portProperty.get()));
         config.setUsername(usernameProperty.get());
         config.setPassword(passwordProperty.get());
+        config.setSessionPoolSize(sessionPoolSize);
+        config.setKeepAliveSeconds(keepAliveSeconds);
+        config.setKeepAliveCountMax(keepAliveCountMax);
         config.setForwardEntries(new ArrayList<>(forwardEntries));
-        HistoryUtil.saveHistory("ipForward", config);
+        return config;
+    }
+
+    /**
+     * 将SSH配置应用到界面状态
+     */
+    private void applySshConfig(IpForwardConfig config) {
+        hostProperty.set(config.getHost());
+        portProperty.set(String.valueOf(config.getPort()));
+        usernameProperty.set(config.getUsername());
+        passwordProperty.set(config.getPassword());
+        sessionPoolSize = config.getSessionPoolSize() > 0 ? config.getSessionPoolSize() : SshService.DEFAULT_POOL_SIZE;
+        keepAliveSeconds = config.getKeepAliveSeconds() > 0 ? config.getKeepAliveSeconds() : SshService.DEFAULT_KEEP_ALIVE_SECONDS;
+        keepAliveCountMax = config.getKeepAliveCountMax() > 0 ? config.getKeepAliveCountMax() : SshService.DEFAULT_KEEP_ALIVE_COUNT_MAX;
+        forwardEntries.setAll(config.getForwardEntries());
     }
 
     /**
      * 处理SSH连接
-     * 使用表单中的配置信息建立SSH连接
+     * 使用表单中的配置信息建立SSH连接，连接在后台进行，完成后回到界面线程更新状态
      */
     @FXML
     private void handleConnect() {
         if (sshForm.isValid()) {
             sshForm.persist();
-            try {
-                // 获取表单配置
-                String host = hostProperty.get();
-                int port = Integer.parseInt(portProperty.get());
-                String username = usernameProperty.get();
-                String password = passwordProperty.get();
-
-                // 建立SSH连接
-                sshService.connect(host, port, username, password);
-
-                // 更新连接状态
-                isConnected = true;
-                updateButtonStatus();
-                updateStatusLabel();
+            // 获取表单配置
+            String host = hostProperty.get();
+            int port = Integer.parseInt(portProperty.get());
+            String username = usernameProperty.get();
+            String password = passwordProperty.get();
+
+            connectButton.setDisable(true);
+            statusLabel.setText("正在连接: " + host);
+            statusLabel.setTextFill(Color.ORANGE);
+            sshService.setKeepAlive(keepAliveSeconds, keepAliveCountMax);
+            sshService.connectAsync(host, port, username, password, sessionPoolSize)
+                    .whenComplete((result, e) -> Platform.runLater(() -> {
+                        if (e != null) {
+                            Throwable cause = e.getCause() != null ? e.getCause() : e;
+                            LOGGER.error("SSH连接失败", cause);
+                            NotificationUtil.showError("连接失败", cause.getMessage());
+                            updateButtonStatus();
+                            updateStatusLabel();
+                            return;
+                        }
+                        // 更新连接状态
+                        isConnected = true;
+                        updateButtonStatus();
+                        updateStatusLabel();
 
-                // 保存配置到历史记录
-                saveHistory();
+                        // 保存配置到历史记录
+                        saveHistory();
 
-                // 显示成功提示
-                NotificationUtil.showSuccess("连接成功", "SSH连接已建立");
-            } catch (Exception e) {
-                LOGGER.error("SSH连接失败", e);
-                NotificationUtil.showError("连接失败", e.getMessage());
-            }
+                        // 显示成功提示
+                        NotificationUtil.showSuccess("连接成功", "SSH连接已建立");
+                    }));
         }
     }
 
@@ -609,24 +747,33 @@ public class IpForwardController {
             }
         }
 
-        // 执行转发
-        for (ForwardEntry entry : forwardEntries) {
-            try {
-                sshService.addPortForwarding(
+        // 在后台并发执行转发，任一规则失败时撤销本次已启动的规则
+        startForwardButton.setDisable(true);
+        forwardOrchestrator.startAll(forwardEntries,
+                entry -> sshService.addPortForwarding(
                         entry.getLocalHost(),
                         entry.getLocalPort(),
                         entry.getRemoteHost(),
                         entry.getRemotePort()
-                );
-            } catch (Exception e) {
-                LOGGER.error("添加端口转发失败", e);
-                NotificationUtil.showError("转发失败", e.getMessage());
+                ),
+                entry -> sshService.removePortForwarding(entry.getLocalHost(), entry.getLocalPort()),
+                (entry, error, completed, total) -> Platform.runLater(() -> {
+                    statusLabel.setText(String.format("正在启动转发: %d/%d", completed, total));
+                    statusLabel.setTextFill(Color.ORANGE);
+                })
+        ).whenComplete((started, e) -> Platform.runLater(() -> {
+            updateButtonStatus();
+            updateStatusLabel();
+            forwardTable.refresh();
+            if (e != null) {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                LOGGER.error("添加端口转发失败", cause);
+                NotificationUtil.showError("转发失败", cause.getMessage());
                 return;
             }
-        }
-
-        NotificationUtil.showSuccess("转发成功", "所有端口转发规则启动");
-        saveHistory();
+            NotificationUtil.showSuccess("转发成功", "所有端口转发规则启动");
+            saveHistory();
+        }));
     }
 
     private boolean validateForwardEntry(ForwardEntry entry) {
@@ -649,16 +796,29 @@ public class IpForwardController {
     }
 
     private void updateButtonStatus() {
-        // 更新按钮状态
-        connectButton.setDisable(isConnected);
+        // 更新按钮状态，托管期间本地不建立连接
+        boolean attached = daemonClient != null;
+        connectButton.setDisable(isConnected || attached);
         disconnectButton.setDisable(!isConnected);
-        startForwardButton.setDisable(!isConnected);
+        startForwardButton.setDisable(!isConnected || attached);
+        daemonButton.setText(attached ? "结束托管" : "后台托管");
     }
 
     private void updateStatusLabel() {
-        if (isConnected) {
+        DaemonStatus status = daemonStatus;
+        if (daemonClient != null) {
+            String state = status == null ? "连接中" : status.getState();
+            statusLabel.setText(String.format("后台服务托管中(%s): %s", state,
+                    status == null || status.getSshHost() == null ? "" : status.getSshHost()));
+            statusLabel.setTextFill(status != null && ForwardRuntime.STATE_RUNNING.equals(status.getState())
+                    && status.isSshConnected() ? Color.GREEN : Color.ORANGE);
+        } else if (isConnected && sshService.isConnected()) {
             statusLabel.setText("已连接到: " + hostProperty.get());
             statusLabel.setTextFill(Color.GREEN);
+        } else if (isConnected) {
+            // 会话全部断开，后台正在退避重连
+            statusLabel.setText("连接中断，正在重连: " + hostProperty.get());
+            statusLabel.setTextFill(Color.ORANGE);
         } else {
             statusLabel.setText("未连接");
             statusLabel.setTextFill(Color.RED);
@@ -727,24 +887,24 @@ public class IpForwardController {
         localMappingAddrCol.setCellValueFactory(cellData -> {
             String serviceName = cellData.getValue();
             String target = null;
-            if (isNacosForwarding) {
-                List<Instance> instances = null;
-                try {
-                    instances = nacosService.getServiceInstances(serviceName, groupNameProperty.get());
-                } catch (Exception e) {
-                    LOGGER.error(e.getMessage(), e);
-                    instances = Collections.emptyList();
-                }
-                if (!instances.isEmpty()) {
-                    Instance instance = instances.get(0);
-                    String remote = instance.getIp() + ":" + instance.getPort();
-                    // 从 httpProxyService 获取本地映射地址
-                    target = httpProxyService.getServiceMapping(remote);
-                }
+            if (isNacosForwarding && nacosForwardService != null) {
+                // 每个实例一条隧道，展示全部本地映射地址
+                target = String.join(", ", nacosForwardService.getLocalAddresses(serviceName));
             }
             return new SimpleStringProperty(Objects.requireNonNullElse(target, ""));
         });
 
+        // 创建路由指标列
+        TableColumn<String, String> requestsCol = new TableColumn<>("请求(进行中/累计)");
+        requestsCol.setCellValueFactory(cellData -> new SimpleStringProperty(
+                formatConnections(findRouteStats(cellData.getValue()))));
+        TableColumn<String, String> routeLatencyCol = new TableColumn<>("耗时P50/P99/错误");
+        routeLatencyCol.setCellValueFactory(cellData -> {
+            TrafficStats stats = findRouteStats(cellData.getValue());
+            return new SimpleStringProperty(stats == null ? "" : String.format("%.1fms / %.1fms / %d",
+                    stats.getLatencyP50Millis(), stats.getLatencyP99Millis(), stats.getErrors()));
+        });
+
         // 创建删除列
         TableColumn<String, Void> deleteCol = new TableColumn<>("操作");
         deleteCol.setCellFactory(param -> new TableCell<>() {
@@ -772,7 +932,7 @@ public class IpForwardController {
 
         // 设置列
         serviceTable.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
-        serviceTable.getColumns().addAll(serviceNameCol, localMappingAddrCol, deleteCol);
+        serviceTable.getColumns().addAll(serviceNameCol, localMappingAddrCol, requestsCol, routeLatencyCol, deleteCol);
 
         // 绑定数据源
         serviceTable.setItems(serviceNames);
@@ -781,12 +941,7 @@ public class IpForwardController {
     private void loadNacosHistory() {
         NacosConfig history = HistoryUtil.getHistory("nacos", NacosConfig.class);
         if (history != null) {
-            serverAddrProperty.set(history.getServerAddr());
-            namespaceProperty.set(history.getNamespace());
-            groupNameProperty.set(history.getGroupName());
-            nacosUsernameProperty.set(history.getUsername());
-            nacosPasswordProperty.set(history.getPassword());
-            serviceNames.setAll(history.getServiceNames());
+            applyNacosConfig(history);
         }
     }
 
@@ -794,6 +949,13 @@ public class IpForwardController {
      * 保存Nacos配置历史
      */
     private void saveNacosHistory() {
+        HistoryUtil.saveHistory("nacos", buildNacosConfig());
+    }
+
+    /**
+     * 由当前界面状态构建Nacos配置
+     */
+    private NacosConfig buildNacosConfig() {
         NacosConfig config = new NacosConfig();
         config.setServerAddr(serverAddrProperty.get());
         config.setNamespace(namespaceProperty.get());
@@ -801,7 +963,29 @@ public class IpForwardController {
         config.setPassword(nacosPasswordProperty.get());
         config.setGroupName(groupNameProperty.get());
         config.setServiceNames(new ArrayList<>(serviceNames));
-        HistoryUtil.saveHistory("nacos", config);
+        config.setMaxInstancesPerService(maxInstancesPerService);
+        config.setLoadBalanceStrategy(loadBalanceStrategy);
+        config.setSubscribeEnabled(subscribeEnabled);
+        config.setSubscribeDebounceMillis(subscribeDebounceMillis);
+        config.setProxyConfig(proxyConfig);
+        return config;
+    }
+
+    /**
+     * 将Nacos配置应用到界面状态
+     */
+    private void applyNacosConfig(NacosConfig config) {
+        serverAddrProperty.set(config.getServerAddr());
+        namespaceProperty.set(config.getNamespace());
+        groupNameProperty.set(config.getGroupName());
+        nacosUsernameProperty.set(config.getUsername());
+        nacosPasswordProperty.set(config.getPassword());
+        serviceNames.setAll(config.getServiceNames());
+        maxInstancesPerService = config.getMaxInstancesPerService();
+        loadBalanceStrategy = Objects.requireNonNullElse(config.getLoadBalanceStrategy(), "round_robin");
+        subscribeEnabled = config.isSubscribeEnabled();
+        subscribeDebounceMillis = config.getSubscribeDebounceMillis();
+        proxyConfig = Objects.requireNonNullElseGet(config.getProxyConfig(), HttpProxyConfig::new);
     }
 
     /**
@@ -822,6 +1006,9 @@ public class IpForwardController {
 
                 // 连接Nacos服务器
                 nacosService.connect(config);
+                // 切换连接后重新加载服务目录，打开添加服务对话框时可直接使用
+                serviceCatalog.invalidate();
+                serviceCatalog.load(groupNameProperty.get());
 
                 // 更新连接状态
                 isNacosConnected = true;
@@ -846,6 +1033,7 @@ public class IpForwardController {
      */
     @FXML
     private void handleNacosDisconnect() {
+        closeNacosForward();
         nacosService.shutdown();
         httpProxyService.shutdown();
         isNacosConnected = false;
@@ -876,48 +1064,77 @@ public class IpForwardController {
             return;
         }
 
-        try {
+        // 启动代理与查询实例、建立隧道都在后台进行，各服务并发处理
+        startNacosForwardButton.setDisable(true);
+        nacosStatusLabel.setText("正在启动服务转发");
+        nacosStatusLabel.setTextFill(Color.ORANGE);
+        NacosConfig nacosConfig = buildNacosConfig();
+        List<String> services = new ArrayList<>(serviceNames);
+        CompletableFuture.runAsync(() -> {
             // 启动HTTP代理服务器
-            httpProxyService.start(80);
-
-            // 为每个服务创建转发
-            for (String serviceName : serviceNames) {
-                List<Instance> instances = nacosService.getServiceInstances(serviceName, groupNameProperty.get());
-                if (!instances.isEmpty()) {
-                    Instance instance = instances.get(0);
-                    String target = instance.getIp() + ":" + instance.getPort();
-                    // 查找可用的本地端口（从10000到65535之间）
-                    int localPort = findAvailablePort(10000, 65535);
-                    if (localPort == -1) {
-                        throw new RuntimeException("无法找到可用的本地端口");
+            httpProxyService = new HttpProxyService(proxyConfig);
+            for (ProxyListenerConfig listener : proxyConfig.getListeners()) {
+                httpProxyService.addListener(listener.getName(), listener.getBindAddress(), listener.getPort());
+            }
+            httpProxyService.start(proxyConfig.getPort());
+            nacosForwardService = new NacosForwardService(nacosService, sshService, httpProxyService,
+                    nacosConfig, this::getProxyListenerName);
+            // 实例变化由订阅线程同步，完成后刷新本地映射地址
+            nacosForwardService.setOnChange(() -> Platform.runLater(serviceTable::refresh));
+        }).thenCompose(ignored -> forwardOrchestrator.startAll(services,
+                serviceName -> {
+                    try {
+                        nacosForwardService.forward(serviceName);
+                    } catch (NacosForwardService.NoInstanceException e) {
+                        // 服务暂无可用实例时跳过，不影响其他服务
+                        LOGGER.warn("服务 {} 未转发: {}", serviceName, e.getMessage());
                     }
-                    LOGGER.debug("启动服务转发 - 服务: {}, 本地端口: {}, 目标: {}", serviceName, localPort, target);
-                    // 添加服务映射
-                    httpProxyService.addServiceMapping(target, "127.0.0.1:" + localPort);
-                    // 创建SSH端口转发
-                    sshService.addPortForwarding("127.0.0.1", localPort, instance.getIp(), instance.getPort());
+                },
+                // 其他服务失败时关闭已成功服务的隧道并归还端口
+                serviceName -> nacosForwardService.release(serviceName),
+                (serviceName, error, completed, total) -> Platform.runLater(() ->
+                        nacosStatusLabel.setText(String.format("正在转发服务: %d/%d", completed, total)))
+        )).whenComplete((started, e) -> {
+            if (e != null) {
+                // 失败的服务可能已建立部分隧道，逐个释放后再关闭代理
+                NacosForwardService forwardService = nacosForwardService;
+                if (forwardService != null) {
+                    services.forEach(forwardService::release);
                 }
             }
-            isNacosForwarding = true;
-            updateNacosButtonStatus();
-            updateNacosStatusLabel();
-            //刷新服务列表，展示映射端口
-            serviceTable.refresh();
-            NotificationUtil.showSuccess("转发成功", "服务转发已启动");
-        } catch (Exception e) {
-            LOGGER.error("启动服务转发失败", e);
-            NotificationUtil.showError("转发失败", e.getMessage());
+            Platform.runLater(() -> onNacosForwardStarted(e));
+        });
+    }
+
+    /**
+     * Nacos服务转发启动结束，在FX线程更新状态
+     *
+     * @param e 失败原因，成功时为null
+     */
+    private void onNacosForwardStarted(Throwable e) {
+        if (e != null) {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            LOGGER.error("启动服务转发失败", cause);
+            NotificationUtil.showError("转发失败", cause.getMessage());
+            closeNacosForward();
             httpProxyService.shutdown();
             isNacosForwarding = false;
             updateNacosButtonStatus();
             updateNacosStatusLabel();
+            return;
         }
+        isNacosForwarding = true;
+        updateNacosButtonStatus();
+        updateNacosStatusLabel();
+        //刷新服务列表，展示映射端口
+        serviceTable.refresh();
+        NotificationUtil.showSuccess("转发成功", "服务转发已启动");
     }
 
     private void updateNacosButtonStatus() {
         nacosConnectButton.setDisable(isNacosConnected);
         nacosDisconnectButton.setDisable(!isNacosConnected);
-        startNacosForwardButton.setDisable(!isNacosConnected || isNacosForwarding);
+        startNacosForwardButton.setDisable(!isNacosConnected || isNacosForwarding || daemonClient != null);
     }
 
     private void updateNacosStatusLabel() {
@@ -946,8 +1163,7 @@ public class IpForwardController {
         }
 
         try {
-            // 获取可用服务列表
-            List<String> availableServices = nacosService.getServiceList(groupNameProperty.get());
+            String groupName = groupNameProperty.get();
 
             // 创建自定义对话框
             Dialog<String> dialog = new Dialog<>();
@@ -968,20 +1184,36 @@ public class IpForwardController {
 
             // 创建服务列表视图
             ListView<String> serviceListView = new ListView<>();
-            serviceListView.getItems().addAll(availableServices);
             serviceListView.setPrefHeight(300);
+            serviceListView.setPlaceholder(new Label("正在加载服务列表..."));
 
-            // 配置搜索功能
-            FilteredList<String> filteredServices = new FilteredList<>(
-                    FXCollections.observableArrayList(availableServices)
-            );
+            // 配置搜索功能：基于服务目录索引查询，输入追加字符时在上一次结果上继续过滤
+            ServiceSearch search = new ServiceSearch();
             searchField.textProperty().addListener((observable, oldValue, newValue) -> {
-                filteredServices.setPredicate(service ->
-                        newValue == null || newValue.trim().isEmpty() ||
-                                service.toLowerCase().contains(newValue.toLowerCase())
-                );
+                if (search.index != null) {
+                    search.apply(newValue);
+                    serviceListView.getItems().setAll(search.results);
+                }
             });
-            serviceListView.setItems(filteredServices);
+
+            // 优先展示缓存，同时异步加载或刷新服务目录，刷新完成后替换为新列表
+            ServiceCatalog.Index cached = serviceCatalog.peek(groupName);
+            if (cached != null) {
+                search.reset(cached, searchField.getText());
+                serviceListView.getItems().setAll(search.results);
+            }
+            serviceCatalog.load(groupName).whenComplete((index, e) -> Platform.runLater(() -> {
+                if (e != null) {
+                    LOGGER.error("获取服务列表失败", e);
+                    serviceListView.setPlaceholder(new Label("获取服务列表失败: " + e.getMessage()));
+                    return;
+                }
+                if (index != search.index) {
+                    search.reset(index, searchField.getText());
+                    serviceListView.getItems().setAll(search.results);
+                }
+                serviceListView.setPlaceholder(new Label("没有匹配的服务"));
+            }));
 
             // 设置对话框内容
             content.getChildren().addAll(searchField, serviceListView);
@@ -1026,74 +1258,81 @@ public class IpForwardController {
     }
 
     /**
-     * 获取可用的随机端口
-     * 在指定范围内查找未被占用的端口
-     *
-     * @param startPort 起始端口号
-     * @param endPort   结束端口号
-     * @return 可用的端口号，如果没有可用端口则返回-1
-     */
-    private int findAvailablePort(int startPort, int endPort) {
-        for (int port = startPort; port <= endPort; port++) {
-            try (ServerSocket socket = new ServerSocket(port)) {
-                socket.close();
-                return port;
-            } catch (IOException ignored) {
-                // 端口被占用，继续尝试下一个端口
-            }
+     * 服务搜索状态
+     * 记录上一次的查询串和结果，供增量过滤使用
+     */
+    private static final class ServiceSearch {
+        private ServiceCatalog.Index index;
+        private String query = "";
+        private List<String> results = List.of();
+
+        private void reset(ServiceCatalog.Index index, String query) {
+            this.index = index;
+            this.query = Objects.requireNonNullElse(query, "");
+            this.results = index.search(this.query);
+        }
+
+        private void apply(String newQuery) {
+            results = index.refine(query, results, newQuery);
+            query = Objects.requireNonNullElse(newQuery, "");
         }
-        return -1;
     }
 
     /**
      * 添加服务转发
-     * 为指定服务配置端口转发和HTTP代理
+     * 为指定服务配置端口转发和HTTP代理，查询实例与建立隧道在后台进行
      *
      * @param serviceName 服务名称
      */
     private void addServiceForward(String serviceName) {
-        try {
-            // 获取服务实例
-            List<Instance> instances = nacosService.getServiceInstances(serviceName, groupNameProperty.get());
-            if (!instances.isEmpty()) {
-                // 获取第一个实例
-                Instance instance = instances.get(0);
-                int remotePort = instance.getPort();
-
-                // 查找可用的本地端口（从10000到65535之间）
-                int localPort = findAvailablePort(10000, 65535);
-                if (localPort == -1) {
-                    throw new RuntimeException("无法找到可用的本地端口");
-                }
-
-                String target = instance.getIp() + ":" + remotePort;
-                LOGGER.debug("添加服务转发 - 服务: {}, 本地端口: {}, 目标: {}", serviceName, localPort, target);
-
-                // 添加HTTP代理映射
-                httpProxyService.addServiceMapping(target, "127.0.0.1:" + localPort);
-
-                // 创建SSH端口转发
-                sshService.addPortForwarding(
-                        "127.0.0.1",
-                        localPort,      // 使用找到的可用端口
-                        instance.getIp(),
-                        remotePort
-                );
-
-                // 显示成功提示
-                NotificationUtil.showSuccess("转发成功",
-                        String.format("服务 %s 已添加到转发列表\n本地端口: %d -> 远程端口: %d",
-                                serviceName, localPort, remotePort));
-            } else {
-                throw new RuntimeException("服务没有可用的实例");
+        NacosForwardService forwardService = nacosForwardService;
+        if (forwardService == null) {
+            return;
+        }
+        AtomicInteger created = new AtomicInteger();
+        // 为服务的健康实例创建转发
+        forwardOrchestrator.startAll(List.of(serviceName),
+                name -> created.set(forwardService.forward(name)), null, null
+        ).whenComplete((started, e) -> Platform.runLater(() -> {
+            if (e != null) {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                LOGGER.error("添加服务转发失败", cause);
+                NotificationUtil.showError("转发失败",
+                        String.format("服务 %s 转发失败: %s", serviceName, cause.getMessage()));
+                return;
             }
-        } catch (Exception e) {
-            LOGGER.error("添加服务转发失败", e);
-            NotificationUtil.showError("转发失败",
-                    String.format("服务 %s 转发失败: %s", serviceName, e.getMessage()));
+            serviceTable.refresh();
+            NotificationUtil.showSuccess("转发成功",
+                    String.format("服务 %s 已添加到转发列表\n实例隧道: %d 条, 本地地址: %s",
+                            serviceName, created.get(), String.join(", ", forwardService.getLocalAddresses(serviceName))));
+        }));
+    }
+
+    /**
+     * 停止跟踪服务实例变化
+     */
+    private void closeNacosForward() {
+        if (nacosForwardService != null) {
+            nacosForwardService.close();
+            nacosForwardService = null;
         }
     }
 
+    /**
+     * 获取服务所属的代理监听器
+     * 未单独配置的服务使用默认监听器
+     *
+     * @param serviceName 服务名称
+     * @return 监听器名称
+     */
+    private String getProxyListenerName(String serviceName) {
+        return proxyConfig.getListeners().stream()
+                .filter(listener -> listener.getServiceNames().contains(serviceName))
+                .map(ProxyListenerConfig::getName)
+                .findFirst()
+                .orElse(HttpProxyService.DEFAULT_LISTENER);
+    }
+
     /**
      * 初始化服务搜索功能
      * 配置搜索框的过滤功能
@@ -1113,51 +1352,78 @@ public class IpForwardController {
     }
 
     /**
-     * 启动自动重连定时器
-     * 在连接断开时自动尝试重新连接
+     * 查找转发规则的流量指标
      */
-    private void startReconnectTimer() {
-        reconnectTimer = new java.util.Timer(true);
-        reconnectTimer.scheduleAtFixedRate(new java.util.TimerTask() {
-            @Override
-            public void run() {
-                if (autoReconnect && !isConnected) {
-                    javafx.application.Platform.runLater(() -> {
-                        try {
-                            RetryUtil.retry(
-                                    () -> {
-                                        handleConnect();
-                                        return null;
-                                    },
-                                    e -> true,
-                                    MAX_RETRY_ATTEMPTS,
-                                    RETRY_DELAY_MS
-                            );
-                        } catch (Exception e) {
-                            LOGGER.error("自动重连失败", e);
-                            NotificationUtil.showError("重连失败",
-                                    String.format("尝试重连%d次均失败，请检查网络连接", MAX_RETRY_ATTEMPTS));
-                            autoReconnect = false;
-                        }
-                    });
-                }
+    private TrafficStats findForwardStats(ForwardEntry entry) {
+        if (daemonClient != null) {
+            return findDaemonStats("forwards", entry.getLocalHost() + ":" + entry.getLocalPort());
+        }
+        TrafficMetrics metrics = sshService.getForwardMetrics().find(entry.getLocalHost() + ":" + entry.getLocalPort());
+        return metrics == null ? null : metrics.snapshot();
+    }
+
+    /**
+     * 查找Nacos服务对应代理路由的流量指标
+     */
+    private TrafficStats findRouteStats(String serviceName) {
+        if (daemonClient != null) {
+            return findDaemonStats("routes", NacosForwardService.upstreamName(groupNameProperty.get(), serviceName));
+        }
+        if (!isNacosForwarding || nacosForwardService == null) {
+            return null;
+        }
+        TrafficMetrics metrics = httpProxyService.getRouteMetrics().find(nacosForwardService.getUpstreamName(serviceName));
+        return metrics == null ? null : metrics.snapshot();
+    }
+
+    private static String formatConnections(TrafficStats stats) {
+        return stats == null ? "" : stats.getActiveConnections() + " / " + stats.getTotalConnections();
+    }
+
+    private static String formatTraffic(TrafficStats stats) {
+        return stats == null ? "" : DataSizeUtil.format(stats.getBytesIn()) + " / " + DataSizeUtil.format(stats.getBytesOut());
+    }
+
+    /**
+     * 导出流量指标
+     * 将端口转发与代理路由的当前指标保存到JSON文件
+     */
+    @FXML
+    private void handleExportMetrics() {
+        try {
+            Map<String, List<TrafficStats>> metrics = new LinkedHashMap<>();
+            if (daemonClient != null) {
+                metrics.putAll(daemonMetrics);
+            } else {
+                metrics.put("forwards", sshService.getForwardMetrics().snapshot());
+                metrics.put("routes", httpProxyService.getRouteMetrics().snapshot());
             }
-        }, 5000, 5000);
+            FileUtil.exportToJson(metrics, "导出流量指标", tabPane.getScene().getWindow());
+        } catch (Exception e) {
+            LOGGER.error("导出指标失败", e);
+            NotificationUtil.showError("导出失败", e.getMessage());
+        }
     }
 
     /**
      * 停止所有服务
-     * 关闭所有连接和转发
+     * 关闭所有连接和转发，之后仍可重新启动
      */
     public void stop() {
-        if (reconnectTimer != null) {
-            reconnectTimer.cancel();
-        }
+        closeNacosForward();
         sshService.disconnect();
         nacosService.shutdown();
         httpProxyService.shutdown();
     }
 
+    /**
+     * 停止所有服务并释放转发编排线程，应用退出时调用，之后不能再启动
+     */
+    public void shutdown() {
+        stop();
+        forwardOrchestrator.shutdown();
+    }
+
     /**
      * 导出SSH配置
      * 将当前SSH配置保存到JSON文件
@@ -1165,12 +1431,7 @@ public class IpForwardController {
     @FXML
     private void handleExportSshConfig() {
         try {
-            IpForwardConfig config = new IpForwardConfig();
-            config.setHost(hostProperty.get());
-            config.setPort(Integer.parseInt(portProperty.get()));
-            config.setUsername(usernameProperty.get());
-            config.setPassword(passwordProperty.get());
-            config.setForwardEntries(new ArrayList<>(forwardEntries));
+            IpForwardConfig config = buildSshConfig();
 
             FileUtil.exportToJson(config, "导出SSH转发配置",
                     sshFormContainer.getScene().getWindow());
@@ -1194,11 +1455,7 @@ public class IpForwardController {
             );
 
             if (config != null) {
-                hostProperty.set(config.getHost());
-                portProperty.set(String.valueOf(config.getPort()));
-                usernameProperty.set(config.getUsername());
-                passwordProperty.set(config.getPassword());
-                forwardEntries.setAll(config.getForwardEntries());
+                applySshConfig(config);
                 saveHistory();
             }
         } catch (Exception e) {
@@ -1214,13 +1471,7 @@ public class IpForwardController {
     @FXML
     private void handleExportNacosConfig() {
         try {
-            NacosConfig config = new NacosConfig();
-            config.setServerAddr(serverAddrProperty.get());
-            config.setNamespace(namespaceProperty.get());
-            config.setGroupName(groupNameProperty.get());
-            config.setUsername(nacosUsernameProperty.get());
-            config.setPassword(nacosPasswordProperty.get());
-            config.setServiceNames(new ArrayList<>(serviceNames));
+            NacosConfig config = buildNacosConfig();
 
             FileUtil.exportToJson(config, "导出Nacos转发配置",
                     nacosFormContainer.getScene().getWindow());
@@ -1244,12 +1495,7 @@ public class IpForwardController {
             );
 
             if (config != null) {
-                serverAddrProperty.set(config.getServerAddr());
-                namespaceProperty.set(config.getNamespace());
-                groupNameProperty.set(config.getGroupName());
-                nacosUsernameProperty.set(config.getUsername());
-                nacosPasswordProperty.set(config.getPassword());
-                serviceNames.setAll(config.getServiceNames());
+                applyNacosConfig(config);
                 saveNacosHistory();
             }
         } catch (Exception e) {
@@ -1258,6 +1504,134 @@ public class IpForwardController {
         }
     }
 
+    /**
+     * 后台托管
+     * 未托管时保存当前配置，关闭本地转发后交给后台服务按配置启动，后台服务未运行时先拉起；
+     * 托管中时结束后台服务，之后可在本地重新连接
+     */
+    @FXML
+    private void handleToggleDaemon() {
+        DaemonClient client = daemonClient;
+        daemonButton.setDisable(true);
+        if (client != null) {
+            CompletableFuture.runAsync(() -> {
+                try {
+                    client.shutdown();
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            }).whenComplete((result, e) -> Platform.runLater(() -> {
+                daemonButton.setDisable(false);
+                if (e != null) {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    NotificationUtil.showError("结束托管失败", cause.getMessage());
+                    return;
+                }
+                detachDaemon();
+                NotificationUtil.showSuccess("结束托管", "后台服务已停止");
+            }));
+            return;
+        }
+
+        saveHistory();
+        saveNacosHistory();
+        // 释放本地占用的端口，由后台服务重新监听
+        closeNacosForward();
+        httpProxyService.shutdown();
+        sshService.disconnect();
+        isConnected = false;
+        isNacosForwarding = false;
+        updateButtonStatus();
+        updateNacosButtonStatus();
+        updateNacosStatusLabel();
+        statusLabel.setText("正在移交后台服务");
+        statusLabel.setTextFill(Color.ORANGE);
+        CompletableFuture.supplyAsync(() -> {
+            try {
+                DaemonClient launched = DaemonClient.launch();
+                daemonStatus = launched.reload();
+                return launched;
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }).whenComplete((launched, e) -> Platform.runLater(() -> {
+            daemonButton.setDisable(false);
+            if (e != null) {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                LOGGER.error("移交后台服务失败", cause);
+                NotificationUtil.showError("托管失败", cause.getMessage());
+                // 后台服务已拉起时仍接管展示，便于查看失败原因或结束托管
+                CompletableFuture.supplyAsync(DaemonClient::discover).thenAccept(running -> Platform.runLater(() -> {
+                    if (running != null) {
+                        attachDaemon(running);
+                    } else {
+                        updateButtonStatus();
+                        updateStatusLabel();
+                    }
+                }));
+                return;
+            }
+            attachDaemon(launched);
+            NotificationUtil.showSuccess("托管成功", "转发已由后台服务接管，关闭窗口后继续运行");
+        }));
+    }
+
+    private void attachDaemon(DaemonClient client) {
+        daemonClient = client;
+        updateButtonStatus();
+        updateStatusLabel();
+        updateNacosButtonStatus();
+        pollDaemon();
+    }
+
+    private void detachDaemon() {
+        daemonClient = null;
+        daemonStatus = null;
+        daemonMetrics = Map.of();
+        updateButtonStatus();
+        updateStatusLabel();
+        updateNacosButtonStatus();
+    }
+
+    /**
+     * 在后台读取后台服务的状态与指标，后台服务已退出时结束托管展示
+     */
+    private void pollDaemon() {
+        DaemonClient client = daemonClient;
+        if (client == null || !daemonPolling.compareAndSet(false, true)) {
+            return;
+        }
+        CompletableFuture.runAsync(() -> {
+            try {
+                daemonStatus = client.getStatus();
+                daemonMetrics = client.getMetrics();
+                Platform.runLater(this::updateStatusLabel);
+            } catch (IOException e) {
+                LOGGER.warn("后台服务不可用: {}", e.getMessage());
+                Platform.runLater(() -> {
+                    if (daemonClient == client) {
+                        detachDaemon();
+                    }
+                });
+            } finally {
+                daemonPolling.set(false);
+            }
+        });
+    }
+
+    /**
+     * 在后台服务的指标中查找
+     *
+     * @param kind 指标类别，forwards 或 routes
+     * @param name 指标名称
+     */
+    private TrafficStats findDaemonStats(String kind, String name) {
+        return daemonMetrics.getOrDefault(kind, List.of()).stream()
+                .filter(stats -> name.equals(stats.getName()))
+                .findFirst()
+                .orElse(null);
+    }
+
     /**
      * 停止所有服务
      * 关闭所有连接和转发，并重置UI状态
@@ -0,0 +1,153 @@
+package com.zjhy.love.worktools.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 后台服务状态
+ * 由后台服务的控制接口返回，界面据此展示托管的转发
+ */
+public class DaemonStatus {
+    /**
+     * 运行状态：stopped、starting、running、failed
+     */
+    private String state;
+
+    /**
+     * 后台服务进程号
+     */
+    private long pid;
+
+    /**
+     * 启动时间戳（毫秒）
+     */
+    private long startedAt;
+
+    /**
+     * SSH服务器地址
+     */
+    private String sshHost;
+
+    /**
+     * SSH是否有可用会话
+     */
+    private boolean sshConnected;
+
+    /**
+     * 各会话承载的通道数
+     */
+    private List<Integer> sessionLoads = new ArrayList<>();
+
+    /**
+     * 已启动的端口转发数
+     */
+    private int forwardCount;
+
+    /**
+     * Nacos服务器地址
+     */
+    private String nacosServerAddr;
+
+    /**
+     * 已转发的Nacos服务
+     */
+    private List<String> services = new ArrayList<>();
+
+    /**
+     * HTTP代理端口，未启动代理时为0
+     */
+    private int proxyPort;
+
+    /**
+     * 最近一次启动失败的原因
+     */
+    private String lastError;
+
+    public String getState() {
+        return state;
+    }
+
+    public void setState(String state) {
+        this.state = state;
+    }
+
+    public long getPid() {
+        return pid;
+    }
+
+    public void setPid(long pid) {
+        this.pid = pid;
+    }
+
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(long startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public String getSshHost() {
+        return sshHost;
+    }
+
+    public void setSshHost(String sshHost) {
+        this.sshHost = sshHost;
+    }
+
+    public boolean isSshConnected() {
+        return sshConnected;
+    }
+
+    public void setSshConnected(boolean sshConnected) {
+        this.sshConnected = sshConnected;
+    }
+
+    public List<Integer> getSessionLoads() {
+        return sessionLoads;
+    }
+
+    public void setSessionLoads(List<Integer> sessionLoads) {
+        this.sessionLoads = sessionLoads;
+    }
+
+    public int getForwardCount() {
+        return forwardCount;
+    }
+
+    public void setForwardCount(int forwardCount) {
+        this.forwardCount = forwardCount;
+    }
+
+    public String getNacosServerAddr() {
+        return nacosServerAddr;
+    }
+
+    public void setNacosServerAddr(String nacosServerAddr) {
+        this.nacosServerAddr = nacosServerAddr;
+    }
+
+    public List<String> getServices() {
+        return services;
+    }
+
+    public void setServices(List<String> services) {
+        this.services = services;
+    }
+
+    public int getProxyPort() {
+        return proxyPort;
+    }
+
+    public void setProxyPort(int proxyPort) {
+        this.proxyPort = proxyPort;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+}
@@ -0,0 +1,572 @@
+package com.zjhy.love.worktools.model;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * HTTP代理配置
+ * 用于存储本地HTTP代理的上游连接池等参数
+ */
+public class HttpProxyConfig {
+    /**
+     * 平台线程池
+     */
+    public static final String EXECUTOR_PLATFORM = "platform";
+
+    /**
+     * 虚拟线程
+     */
+    public static final String EXECUTOR_VIRTUAL = "virtual";
+
+    /**
+     * 默认监听器端口
+     */
+    private int port = 80;
+
+    /**
+     * 额外的监听器，与默认监听器共用同一容器与上游连接池
+     */
+    private List<ProxyListenerConfig> listeners = new ArrayList<>();
+
+    /**
+     * 默认监听器的静态路由规则，支持精确、通配符（*.example.com）、后缀（.example.com）与路径前缀写法
+     */
+    private Map<String, String> routes = new LinkedHashMap<>();
+
+    /**
+     * 上游连接池最大连接数
+     */
+    private int maxTotalConnections = 200;
+
+    /**
+     * 每个转发目标的最大连接数
+     */
+    private int maxConnectionsPerRoute = 32;
+
+    /**
+     * 空闲连接回收时间（毫秒）
+     */
+    private long idleEvictMillis = 30000;
+
+    /**
+     * 连接复用前的空闲校验时间（毫秒）
+     */
+    private int validateAfterInactivityMillis = 2000;
+
+    /**
+     * 上游分组成员连续失败多少次后暂时摘除
+     */
+    private int ejectFailureThreshold = 3;
+
+    /**
+     * 上游分组成员摘除时长（毫秒）
+     */
+    private long ejectMillis = 30000;
+
+    /**
+     * 是否启用异步非阻塞转发模式
+     * 开启后请求在容器线程之外完成读写，少量线程即可承载大量并发中的请求
+     */
+    private boolean asyncMode = false;
+
+    /**
+     * 异步模式下上游客户端的工作线程数
+     */
+    private int asyncThreads = 4;
+
+    /**
+     * 异步请求超时时间（毫秒），0表示不超时
+     * 默认不超时，SSE等长时间流式响应不会被中断；等待上游响应头的时间仍受 readTimeoutMillis 限制
+     */
+    private long asyncTimeoutMillis = 0;
+
+    /**
+     * 容器工作线程类型：platform 为固定平台线程池，virtual 为每请求一个虚拟线程（需运行在支持虚拟线程的JDK上）
+     */
+    private String executorType = EXECUTOR_PLATFORM;
+
+    /**
+     * 容器最大工作线程数（仅平台线程池生效）
+     */
+    private int maxThreads = 200;
+
+    /**
+     * 容器最小空闲线程数（仅平台线程池生效）
+     */
+    private int minSpareThreads = 10;
+
+    /**
+     * 连接数达到上限后的等待队列长度
+     */
+    private int acceptCount = 100;
+
+    /**
+     * 客户端长连接空闲超时（毫秒）
+     */
+    private int keepAliveTimeoutMillis = 60000;
+
+    /**
+     * 容器最大连接数
+     */
+    private int maxConnections = 8192;
+
+    /**
+     * 上游建连超时（毫秒）
+     */
+    private int connectTimeoutMillis = 3000;
+
+    /**
+     * 上游读取超时（毫秒），0表示不超时
+     */
+    private int readTimeoutMillis = 60000;
+
+    /**
+     * 从上游连接池获取连接的等待超时（毫秒）
+     */
+    private int connectionRequestTimeoutMillis = 5000;
+
+    /**
+     * 路由连续失败多少次后熔断，0表示不熔断
+     */
+    private int breakerFailureThreshold = 5;
+
+    /**
+     * 路由熔断时长（毫秒），期间请求直接返回503
+     */
+    private long breakerOpenMillis = 10000;
+
+    /**
+     * 熔断路由的后台探测间隔（毫秒）
+     */
+    private long probeIntervalMillis = 2000;
+
+    /**
+     * 是否向上游追加 X-Forwarded-For/Proto/Host 请求头
+     */
+    private boolean forwardedHeaders = true;
+
+    /**
+     * 是否记录访问日志
+     */
+    private boolean accessLogEnabled = true;
+
+    /**
+     * 访问日志文件，为空时写入用户目录下的 .work-tools/logs/proxy-access.log
+     */
+    private String accessLogFile;
+
+    /**
+     * 访问日志采样比例，取值 0~1，5xx 请求始终记录
+     */
+    private double accessLogSampleRate = 1.0;
+
+    /**
+     * 访问日志缓冲区容量（条）
+     */
+    private int accessLogBufferSize = 8192;
+
+    /**
+     * 单个访问日志文件的最大字节数
+     */
+    private long accessLogMaxFileBytes = 10L * 1024 * 1024;
+
+    /**
+     * 保留的访问日志文件数
+     */
+    private int accessLogMaxFiles = 5;
+
+    /**
+     * 启用响应缓存的路由目标（服务映射的目标地址或上游分组名），为空时不启用缓存。
+     * 只缓存 GET/HEAD 的200响应，遵循 Cache-Control、Expires 与 ETag/Last-Modified
+     */
+    private List<String> cacheRoutes = new ArrayList<>();
+
+    /**
+     * 响应缓存内存层容量（字节）
+     */
+    private long cacheMemoryBytes = 32L * 1024 * 1024;
+
+    /**
+     * 响应缓存磁盘层容量（字节），0表示不使用磁盘
+     */
+    private long cacheDiskBytes = 256L * 1024 * 1024;
+
+    /**
+     * 单个缓存响应体的最大字节数
+     */
+    private long cacheMaxEntryBytes = 8L * 1024 * 1024;
+
+    /**
+     * 响应缓存磁盘层目录，为空时使用用户目录下的 .work-tools/proxy-cache
+     */
+    private String cacheDir;
+
+    /**
+     * 是否启用压缩协商：向上游请求压缩响应以减少隧道流量，客户端不接受时在本地解压
+     */
+    private boolean compressionEnabled = false;
+
+    /**
+     * 监听器是否支持 HTTP/2 明文（h2c）：Upgrade 升级与先验知识直连均可，多个请求复用同一连接
+     */
+    private boolean http2Enabled = false;
+
+    /**
+     * 单个 HTTP/2 连接上允许的并发流数，同时也是可并行执行的流数
+     */
+    private int http2MaxConcurrentStreams = 128;
+
+    /**
+     * 异步模式下是否尝试以 HTTP/2 连接上游，上游不支持时回退为 HTTP/1.1
+     */
+    private boolean upstreamHttp2 = false;
+
+    /**
+     * 是否合并并发的相同 GET/HEAD 请求，只向上游发出一次，响应分发给所有等待的请求
+     */
+    private boolean singleFlightEnabled = false;
+
+    /**
+     * 合并请求时可共享的最大响应体字节数，超过时等待的请求各自回源
+     */
+    private long singleFlightMaxBytes = 4L * 1024 * 1024;
+
+    // Getters and Setters
+    public int getPort() {
+        return port;
+    }
+
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    public List<ProxyListenerConfig> getListeners() {
+        return listeners;
+    }
+
+    public void setListeners(List<ProxyListenerConfig> listeners) {
+        this.listeners = listeners;
+    }
+
+    public Map<String, String> getRoutes() {
+        return routes;
+    }
+
+    public void setRoutes(Map<String, String> routes) {
+        this.routes = routes;
+    }
+
+    public int getMaxTotalConnections() {
+        return maxTotalConnections;
+    }
+
+    public void setMaxTotalConnections(int maxTotalConnections) {
+        this.maxTotalConnections = maxTotalConnections;
+    }
+
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    }
+
+    public long getIdleEvictMillis() {
+        return idleEvictMillis;
+    }
+
+    public void setIdleEvictMillis(long idleEvictMillis) {
+        this.idleEvictMillis = idleEvictMillis;
+    }
+
+    public int getValidateAfterInactivityMillis() {
+        return validateAfterInactivityMillis;
+    }
+
+    public void setValidateAfterInactivityMillis(int validateAfterInactivityMillis) {
+        this.validateAfterInactivityMillis = validateAfterInactivityMillis;
+    }
+
+    public int getEjectFailureThreshold() {
+        return ejectFailureThreshold;
+    }
+
+    public void setEjectFailureThreshold(int ejectFailureThreshold) {
+        this.ejectFailureThreshold = ejectFailureThreshold;
+    }
+
+    public long getEjectMillis() {
+        return ejectMillis;
+    }
+
+    public void setEjectMillis(long ejectMillis) {
+        this.ejectMillis = ejectMillis;
+    }
+
+    public boolean isAsyncMode() {
+        return asyncMode;
+    }
+
+    public void setAsyncMode(boolean asyncMode) {
+        this.asyncMode = asyncMode;
+    }
+
+    public int getAsyncThreads() {
+        return asyncThreads;
+    }
+
+    public void setAsyncThreads(int asyncThreads) {
+        this.asyncThreads = asyncThreads;
+    }
+
+    public long getAsyncTimeoutMillis() {
+        return asyncTimeoutMillis;
+    }
+
+    public void setAsyncTimeoutMillis(long asyncTimeoutMillis) {
+        this.asyncTimeoutMillis = asyncTimeoutMillis;
+    }
+
+    public String getExecutorType() {
+        return executorType;
+    }
+
+    public void setExecutorType(String executorType) {
+        this.executorType = executorType;
+    }
+
+    public int getMaxThreads() {
+        return maxThreads;
+    }
+
+    public void setMaxThreads(int maxThreads) {
+        this.maxThreads = maxThreads;
+    }
+
+    public int getMinSpareThreads() {
+        return minSpareThreads;
+    }
+
+    public void setMinSpareThreads(int minSpareThreads) {
+        this.minSpareThreads = minSpareThreads;
+    }
+
+    public int getAcceptCount() {
+        return acceptCount;
+    }
+
+    public void setAcceptCount(int acceptCount) {
+        this.acceptCount = acceptCount;
+    }
+
+    public int getKeepAliveTimeoutMillis() {
+        return keepAliveTimeoutMillis;
+    }
+
+    public void setKeepAliveTimeoutMillis(int keepAliveTimeoutMillis) {
+        this.keepAliveTimeoutMillis = keepAliveTimeoutMillis;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    public int getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    public void setConnectTimeoutMillis(int connectTimeoutMillis) {
+        this.connectTimeoutMillis = connectTimeoutMillis;
+    }
+
+    public int getReadTimeoutMillis() {
+        return readTimeoutMillis;
+    }
+
+    public void setReadTimeoutMillis(int readTimeoutMillis) {
+        this.readTimeoutMillis = readTimeoutMillis;
+    }
+
+    public int getConnectionRequestTimeoutMillis() {
+        return connectionRequestTimeoutMillis;
+    }
+
+    public void setConnectionRequestTimeoutMillis(int connectionRequestTimeoutMillis) {
+        this.connectionRequestTimeoutMillis = connectionRequestTimeoutMillis;
+    }
+
+    public int getBreakerFailureThreshold() {
+        return breakerFailureThreshold;
+    }
+
+    public void setBreakerFailureThreshold(int breakerFailureThreshold) {
+        this.breakerFailureThreshold = breakerFailureThreshold;
+    }
+
+    public long getBreakerOpenMillis() {
+        return breakerOpenMillis;
+    }
+
+    public void setBreakerOpenMillis(long breakerOpenMillis) {
+        this.breakerOpenMillis = breakerOpenMillis;
+    }
+
+    public long getProbeIntervalMillis() {
+        return probeIntervalMillis;
+    }
+
+    public void setProbeIntervalMillis(long probeIntervalMillis) {
+        this.probeIntervalMillis = probeIntervalMillis;
+    }
+
+    public boolean isForwardedHeaders() {
+        return forwardedHeaders;
+    }
+
+    public void setForwardedHeaders(boolean forwardedHeaders) {
+        this.forwardedHeaders = forwardedHeaders;
+    }
+
+    public boolean isAccessLogEnabled() {
+        return accessLogEnabled;
+    }
+
+    public void setAccessLogEnabled(boolean accessLogEnabled) {
+        this.accessLogEnabled = accessLogEnabled;
+    }
+
+    public String getAccessLogFile() {
+        return accessLogFile;
+    }
+
+    public void setAccessLogFile(String accessLogFile) {
+        this.accessLogFile = accessLogFile;
+    }
+
+    public double getAccessLogSampleRate() {
+        return accessLogSampleRate;
+    }
+
+    public void setAccessLogSampleRate(double accessLogSampleRate) {
+        this.accessLogSampleRate = accessLogSampleRate;
+    }
+
+    public int getAccessLogBufferSize() {
+        return accessLogBufferSize;
+    }
+
+    public void setAccessLogBufferSize(int accessLogBufferSize) {
+        this.accessLogBufferSize = accessLogBufferSize;
+    }
+
+    public long getAccessLogMaxFileBytes() {
+        return accessLogMaxFileBytes;
+    }
+
+    public void setAccessLogMaxFileBytes(long accessLogMaxFileBytes) {
+        this.accessLogMaxFileBytes = accessLogMaxFileBytes;
+    }
+
+    public int getAccessLogMaxFiles() {
+        return accessLogMaxFiles;
+    }
+
+    public void setAccessLogMaxFiles(int accessLogMaxFiles) {
+        this.accessLogMaxFiles = accessLogMaxFiles;
+    }
+
+    public List<String> getCacheRoutes() {
+        return cacheRoutes;
+    }
+
+    public void setCacheRoutes(List<String> cacheRoutes) {
+        this.cacheRoutes = cacheRoutes;
+    }
+
+    public long getCacheMemoryBytes() {
+        return cacheMemoryBytes;
+    }
+
+    public void setCacheMemoryBytes(long cacheMemoryBytes) {
+        this.cacheMemoryBytes = cacheMemoryBytes;
+    }
+
+    public long getCacheDiskBytes() {
+        return cacheDiskBytes;
+    }
+
+    public void setCacheDiskBytes(long cacheDiskBytes) {
+        this.cacheDiskBytes = cacheDiskBytes;
+    }
+
+    public long getCacheMaxEntryBytes() {
+        return cacheMaxEntryBytes;
+    }
+
+    public void setCacheMaxEntryBytes(long cacheMaxEntryBytes) {
+        this.cacheMaxEntryBytes = cacheMaxEntryBytes;
+    }
+
+    public String getCacheDir() {
+        return cacheDir;
+    }
+
+    public void setCacheDir(String cacheDir) {
+        this.cacheDir = cacheDir;
+    }
+
+    public boolean isCompressionEnabled() {
+        return compressionEnabled;
+    }
+
+    public void setCompressionEnabled(boolean compressionEnabled) {
+        this.compressionEnabled = compressionEnabled;
+    }
+
+    public boolean isHttp2Enabled() {
+        return http2Enabled;
+    }
+
+    public void setHttp2Enabled(boolean http2Enabled) {
+        this.http2Enabled = http2Enabled;
+    }
+
+    public int getHttp2MaxConcurrentStreams() {
+        return http2MaxConcurrentStreams;
+    }
+
+    public void setHttp2MaxConcurrentStreams(int http2MaxConcurrentStreams) {
+        this.http2MaxConcurrentStreams = http2MaxConcurrentStreams;
+    }
+
+    public boolean isUpstreamHttp2() {
+        return upstreamHttp2;
+    }
+
+    public void setUpstreamHttp2(boolean upstreamHttp2) {
+        this.upstreamHttp2 = upstreamHttp2;
+    }
+
+    public boolean isSingleFlightEnabled() {
+        return singleFlightEnabled;
+    }
+
+    public void setSingleFlightEnabled(boolean singleFlightEnabled) {
+        this.singleFlightEnabled = singleFlightEnabled;
+    }
+
+    public long getSingleFlightMaxBytes() {
+        return singleFlightMaxBytes;
+    }
+
+    public void setSingleFlightMaxBytes(long singleFlightMaxBytes) {
+        this.singleFlightMaxBytes = singleFlightMaxBytes;
+    }
+}
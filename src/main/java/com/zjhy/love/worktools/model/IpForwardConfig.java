@@ -27,6 +27,21 @@ public class IpForwardConfig {
      * SSH密码
      */
     private String password;
+
+    /**
+     * 与SSH服务器之间维持的会话数，转发规则分散在这些会话上
+     */
+    private int sessionPoolSize = 2;
+
+    /**
+     * 保活间隔（秒），会话空闲时按此间隔向服务器发送保活消息
+     */
+    private int keepAliveSeconds = 15;
+
+    /**
+     * 保活消息连续无响应多少次后判定会话断开并重连
+     */
+    private int keepAliveCountMax = 3;
     
     /**
      * 转发规则列表
@@ -66,6 +81,30 @@ public class IpForwardConfig {
         this.password = password;
     }
 
+    public int getSessionPoolSize() {
+        return sessionPoolSize;
+    }
+
+    public void setSessionPoolSize(int sessionPoolSize) {
+        this.sessionPoolSize = sessionPoolSize;
+    }
+
+    public int getKeepAliveSeconds() {
+        return keepAliveSeconds;
+    }
+
+    public void setKeepAliveSeconds(int keepAliveSeconds) {
+        this.keepAliveSeconds = keepAliveSeconds;
+    }
+
+    public int getKeepAliveCountMax() {
+        return keepAliveCountMax;
+    }
+
+    public void setKeepAliveCountMax(int keepAliveCountMax) {
+        this.keepAliveCountMax = keepAliveCountMax;
+    }
+
     public List<ForwardEntry> getForwardEntries() {
         return forwardEntries;
     }
@@ -38,6 +38,31 @@ public class NacosConfig {
      */
     private String groupName = "DEFAULT_GROUP";
 
+    /**
+     * 每个服务最多转发的实例数，0表示转发全部健康实例
+     */
+    private int maxInstancesPerService = 0;
+
+    /**
+     * 服务实例间的负载均衡策略：round_robin、least_in_flight、weighted
+     */
+    private String loadBalanceStrategy = "round_robin";
+
+    /**
+     * 是否订阅服务实例变化，实例上下线时自动增删隧道与路由
+     */
+    private boolean subscribeEnabled = true;
+
+    /**
+     * 实例变化的合并窗口（毫秒），窗口内的多次变化只处理最后一次
+     */
+    private long subscribeDebounceMillis = 500;
+
+    /**
+     * 本地HTTP代理配置
+     */
+    private HttpProxyConfig proxyConfig = new HttpProxyConfig();
+
     // Getters and Setters
     public String getServerAddr() {
         return serverAddr;
@@ -86,4 +111,44 @@ public class NacosConfig {
     public void setGroupName(String groupName) {
         this.groupName = groupName;
     }
+
+    public int getMaxInstancesPerService() {
+        return maxInstancesPerService;
+    }
+
+    public void setMaxInstancesPerService(int maxInstancesPerService) {
+        this.maxInstancesPerService = maxInstancesPerService;
+    }
+
+    public String getLoadBalanceStrategy() {
+        return loadBalanceStrategy;
+    }
+
+    public void setLoadBalanceStrategy(String loadBalanceStrategy) {
+        this.loadBalanceStrategy = loadBalanceStrategy;
+    }
+
+    public boolean isSubscribeEnabled() {
+        return subscribeEnabled;
+    }
+
+    public void setSubscribeEnabled(boolean subscribeEnabled) {
+        this.subscribeEnabled = subscribeEnabled;
+    }
+
+    public long getSubscribeDebounceMillis() {
+        return subscribeDebounceMillis;
+    }
+
+    public void setSubscribeDebounceMillis(long subscribeDebounceMillis) {
+        this.subscribeDebounceMillis = subscribeDebounceMillis;
+    }
+
+    public HttpProxyConfig getProxyConfig() {
+        return proxyConfig;
+    }
+
+    public void setProxyConfig(HttpProxyConfig proxyConfig) {
+        this.proxyConfig = proxyConfig;
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,63 @@
+package com.zjhy.love.worktools.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 代理监听器配置
+ * 用于将部分服务拆分到独立的监听端口，避免热点服务占满默认监听器的工作线程
+ */
+public class ProxyListenerConfig {
+    /**
+     * 监听器名称
+     */
+    private String name;
+
+    /**
+     * 绑定地址，为空时监听所有地址
+     */
+    private String bindAddress;
+
+    /**
+     * 监听端口
+     */
+    private int port;
+
+    /**
+     * 路由到该监听器的服务名称列表
+     */
+    private List<String> serviceNames = new ArrayList<>();
+
+    // Getters and Setters
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getBindAddress() {
+        return bindAddress;
+    }
+
+    public void setBindAddress(String bindAddress) {
+        this.bindAddress = bindAddress;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    public List<String> getServiceNames() {
+        return serviceNames;
+    }
+
+    public void setServiceNames(List<String> serviceNames) {
+        this.serviceNames = serviceNames;
+    }
+}
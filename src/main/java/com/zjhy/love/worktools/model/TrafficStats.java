@@ -0,0 +1,177 @@
+package com.zjhy.love.worktools.model;
+
+/**
+ * 流量统计
+ * 端口转发或代理路由在某一时刻的指标快照，用于界面展示和导出
+ */
+public class TrafficStats {
+    /**
+     * 名称，端口转发为 本地地址:端口，代理路由为路由目标
+     */
+    private String name;
+
+    /**
+     * 活动连接数（代理路由为进行中的请求数）
+     */
+    private long activeConnections;
+
+    /**
+     * 累计连接数（代理路由为累计请求数）
+     */
+    private long totalConnections;
+
+    /**
+     * 入方向字节数
+     */
+    private long bytesIn;
+
+    /**
+     * 出方向字节数
+     */
+    private long bytesOut;
+
+    /**
+     * 错误次数
+     */
+    private long errors;
+
+    /**
+     * 建连耗时中位数（毫秒）
+     */
+    private double connectP50Millis;
+
+    /**
+     * 建连耗时P99（毫秒）
+     */
+    private double connectP99Millis;
+
+    /**
+     * 平均时长（毫秒）
+     */
+    private double latencyMeanMillis;
+
+    /**
+     * 时长中位数（毫秒）
+     */
+    private double latencyP50Millis;
+
+    /**
+     * 时长P90（毫秒）
+     */
+    private double latencyP90Millis;
+
+    /**
+     * 时长P99（毫秒）
+     */
+    private double latencyP99Millis;
+
+    /**
+     * 最大时长（毫秒）
+     */
+    private double latencyMaxMillis;
+
+    // Getters and Setters
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public long getActiveConnections() {
+        return activeConnections;
+    }
+
+    public void setActiveConnections(long activeConnections) {
+        this.activeConnections = activeConnections;
+    }
+
+    public long getTotalConnections() {
+        return totalConnections;
+    }
+
+    public void setTotalConnections(long totalConnections) {
+        this.totalConnections = totalConnections;
+    }
+
+    public long getBytesIn() {
+        return bytesIn;
+    }
+
+    public void setBytesIn(long bytesIn) {
+        this.bytesIn = bytesIn;
+    }
+
+    public long getBytesOut() {
+        return bytesOut;
+    }
+
+    public void setBytesOut(long bytesOut) {
+        this.bytesOut = bytesOut;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    public void setErrors(long errors) {
+        this.errors = errors;
+    }
+
+    public double getConnectP50Millis() {
+        return connectP50Millis;
+    }
+
+    public void setConnectP50Millis(double connectP50Millis) {
+        this.connectP50Millis = connectP50Millis;
+    }
+
+    public double getConnectP99Millis() {
+        return connectP99Millis;
+    }
+
+    public void setConnectP99Millis(double connectP99Millis) {
+        this.connectP99Millis = connectP99Millis;
+    }
+
+    public double getLatencyMeanMillis() {
+        return latencyMeanMillis;
+    }
+
+    public void setLatencyMeanMillis(double latencyMeanMillis) {
+        this.latencyMeanMillis = latencyMeanMillis;
+    }
+
+    public double getLatencyP50Millis() {
+        return latencyP50Millis;
+    }
+
+    public void setLatencyP50Millis(double latencyP50Millis) {
+        this.latencyP50Millis = latencyP50Millis;
+    }
+
+    public double getLatencyP90Millis() {
+        return latencyP90Millis;
+    }
+
+    public void setLatencyP90Millis(double latencyP90Millis) {
+        this.latencyP90Millis = latencyP90Millis;
+    }
+
+    public double getLatencyP99Millis() {
+        return latencyP99Millis;
+    }
+
+    public void setLatencyP99Millis(double latencyP99Millis) {
+        this.latencyP99Millis = latencyP99Millis;
+    }
+
+    public double getLatencyMaxMillis() {
+        return latencyMaxMillis;
+    }
+
+    public void setLatencyMaxMillis(double latencyMaxMillis) {
+        this.latencyMaxMillis = latencyMaxMillis;
+    }
+}
@@ -0,0 +1,223 @@
+package com.zjhy.love.worktools.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 转发编排
+ * 以有限并发批量启动转发：同时最多 parallelism 个条目在执行，每完成一个条目回调一次进度；
+ * 任一条目失败后不再启动剩余条目，等在途条目结束后按启动的逆序回滚已成功的条目，整体以首个异常失败
+ */
+public class ForwardOrchestrator {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ForwardOrchestrator.class);
+
+    /**
+     * 默认并发数
+     */
+    public static final int DEFAULT_PARALLELISM = 8;
+
+    /**
+     * 启动单个条目
+     */
+    @FunctionalInterface
+    public interface StartAction<T> {
+        void start(T entry) throws Exception;
+    }
+
+    /**
+     * 回滚单个已启动的条目
+     */
+    @FunctionalInterface
+    public interface RollbackAction<T> {
+        void rollback(T entry) throws Exception;
+    }
+
+    /**
+     * 进度回调，在工作线程上执行
+     */
+    @FunctionalInterface
+    public interface ProgressListener<T> {
+        /**
+         * @param entry     刚结束的条目
+         * @param error     失败原因，成功时为null
+         * @param completed 已结束的条目数
+         * @param total     条目总数
+         */
+        void onProgress(T entry, Throwable error, int completed, int total);
+    }
+
+    private final int parallelism;
+
+    private final ExecutorService executor;
+
+    /**
+     * @param parallelism 最大并发数
+     */
+    public ForwardOrchestrator(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "forward-orchestrator-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 批量启动
+     *
+     * @param entries  条目
+     * @param start    启动动作
+     * @param rollback 回滚动作，为null时不回滚
+     * @param listener 进度回调，为null时不回调
+     * @return 全部成功时返回启动的条目数；失败时已完成回滚，以首个异常结束；已调用 {@link #shutdown()} 时以
+     * {@link RejectedExecutionException} 结束
+     */
+    public <T> CompletableFuture<Integer> startAll(List<T> entries, StartAction<T> start, RollbackAction<T> rollback,
+                                                   ProgressListener<T> listener) {
+        List<T> snapshot = new ArrayList<>(entries);
+        CompletableFuture<Integer> result = new CompletableFuture<>();
+        if (snapshot.isEmpty()) {
+            result.complete(0);
+            return result;
+        }
+        Batch<T> batch = new Batch<>(snapshot, start, rollback, listener, result);
+        int workers = Math.min(parallelism, snapshot.size());
+        batch.runningWorkers.set(workers);
+        for (int i = 0; i < workers; i++) {
+            try {
+                executor.execute(batch::work);
+            } catch (RejectedExecutionException e) {
+                batch.reject(e, workers - i);
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 停止工作线程，只在退出时调用，之后的批量启动都会失败
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 一次批量启动
+     * 每个工作线程依次领取下一个条目，直到条目取完或出现失败
+     */
+    private static final class Batch<T> {
+
+        private final List<T> entries;
+
+        private final StartAction<T> start;
+
+        private final RollbackAction<T> rollback;
+
+        private final ProgressListener<T> listener;
+
+        private final CompletableFuture<Integer> result;
+
+        private final AtomicInteger nextIndex = new AtomicInteger();
+
+        private final AtomicInteger completed = new AtomicInteger();
+
+        private final AtomicInteger runningWorkers = new AtomicInteger();
+
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        /**
+         * 已成功启动的条目，按完成顺序排列
+         */
+        private final List<T> started = Collections.synchronizedList(new ArrayList<>());
+
+        private Batch(List<T> entries, StartAction<T> start, RollbackAction<T> rollback,
+                      ProgressListener<T> listener, CompletableFuture<Integer> result) {
+            this.entries = entries;
+            this.start = start;
+            this.rollback = rollback;
+            this.listener = listener;
+            this.result = result;
+        }
+
+        private void work() {
+            try {
+                int index;
+                while (failure.get() == null && (index = nextIndex.getAndIncrement()) < entries.size()) {
+                    T entry = entries.get(index);
+                    Throwable error = null;
+                    try {
+                        start.start(entry);
+                        started.add(entry);
+                    } catch (Exception e) {
+                        error = e;
+                        failure.compareAndSet(null, e);
+                    }
+                    notifyProgress(entry, error);
+                }
+            } finally {
+                if (runningWorkers.decrementAndGet() == 0) {
+                    finish();
+                }
+            }
+        }
+
+        /**
+         * 工作线程无法启动时按失败处理，已启动的工作线程领不到新条目后结束
+         *
+         * @param count 未能启动的工作线程数
+         */
+        private void reject(RejectedExecutionException e, int count) {
+            failure.compareAndSet(null, e);
+            if (runningWorkers.addAndGet(-count) == 0) {
+                finish();
+            }
+        }
+
+        private void notifyProgress(T entry, Throwable error) {
+            int done = completed.incrementAndGet();
+            if (listener == null) {
+                return;
+            }
+            try {
+                listener.onProgress(entry, error, done, entries.size());
+            } catch (RuntimeException e) {
+                LOGGER.error("转发进度回调异常", e);
+            }
+        }
+
+        /**
+         * 最后一个工作线程结束时调用
+         */
+        private void finish() {
+            Throwable error = failure.get();
+            if (error == null) {
+                result.complete(started.size());
+                return;
+            }
+            if (rollback != null) {
+                List<T> rollbackEntries = new ArrayList<>(started);
+                Collections.reverse(rollbackEntries);
+                for (T entry : rollbackEntries) {
+                    try {
+                        rollback.rollback(entry);
+                    } catch (Exception e) {
+                        LOGGER.warn("回滚转发失败: {}, {}", entry, e.getMessage());
+                    }
+                }
+                LOGGER.info("批量转发失败，已回滚{}个条目", rollbackEntries.size());
+            }
+            result.completeExceptionally(error);
+        }
+    }
+}
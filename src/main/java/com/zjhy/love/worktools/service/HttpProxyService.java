@@ -1,174 +1,832 @@
-package com.zjhy.love.worktools.service;
-
-import cn.hutool.core.io.StreamProgress;
-import cn.hutool.core.io.resource.InputStreamResource;
-import cn.hutool.core.text.CharSequenceUtil;
-import cn.hutool.core.util.ArrayUtil;
-import cn.hutool.http.HttpRequest;
-import cn.hutool.http.HttpResponse;
-import cn.hutool.http.HttpUtil;
-import org.apache.catalina.Context;
-import org.apache.catalina.LifecycleException;
-import org.apache.catalina.startup.Tomcat;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import javax.servlet.ServletInputStream;
-import javax.servlet.ServletOutputStream;
-import javax.servlet.http.HttpServlet;
-import javax.servlet.http.HttpServletRequest;
-import javax.servlet.http.HttpServletResponse;
-import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.util.Enumeration;
-import java.util.List;
-import java.util.Map;
-import java.util.Objects;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.function.Function;
-
-/**
- * HTTP代理服务
- * 处理HTTP请求的转发，支持基于域名的请求路由
- */
-public class HttpProxyService {
-
-    private static final Logger LOGGER = LoggerFactory.getLogger(HttpProxyService.class);
-
-    private static final StreamProgress STREAM_PROGRESS = new StreamProgress() {
-        @Override
-        public void start() {
-            LOGGER.info("开始拷贝转发内容");
-        }
-
-        @Override
-        public void progress(long total, long progressSize) {
-            LOGGER.info("拷贝转发内容进度：{}%", progressSize * 100 / total);
-        }
-
-        @Override
-        public void finish() {
-            LOGGER.info("完成拷贝转发内容");
-        }
-    };
-
-    /**
-     * 服务映射表
-     * 存储域名到目标服务器的映射关系
-     */
-    private final Map<String, String> serviceMapping = new ConcurrentHashMap<>();
-
-    private  Tomcat tomcat;
-
-    private  Context ctx;
-
-    /**
-     * 启动HTTP代理服务器
-     * 在指定端口启动代理服务，并初始化事件处理器
-     *
-     * @param port 监听端口
-     */
-    public void start(int port) {
-        tomcat = new Tomcat();
-        tomcat.setPort(80);
-        ctx = tomcat.addContext("", null);
-        try {
-            Tomcat.addServlet(ctx, "hostProxy", new HttpServlet() {
-                @Override
-                protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException {
-                    doProxy(req, resp, HttpUtil::createPost);
-                }
-
-                @Override
-                protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
-                    doProxy(req, resp, HttpUtil::createGet);
-                }
-            });
-            ctx.addServletMappingDecoded("/*", "hostProxy");
-            tomcat.getConnector();
-            tomcat.start();
-            LOGGER.info("HTTP代理服务器启动在端口: {}", port);
-        } catch (Exception e) {
-            LOGGER.error("启动HTTP代理服务器失败", e);
-            shutdown();
-        }
-    }
-
-
-    public void doProxy(HttpServletRequest req, HttpServletResponse resp, Function<String,HttpRequest> proxyCreator) throws IOException {
-        String originHost = req.getHeader("host");
-        LOGGER.info("originHost:{}", originHost);
-        String forwardHost = serviceMapping.get(originHost);
-        if (Objects.isNull(forwardHost)) {
-            forwardHost = originHost;
-        }
-        LOGGER.info("远程请求代理为本地请求:{}", forwardHost);
-        String forwardUrl = forwardHost + req.getRequestURI();
-        String queryString = req.getQueryString();
-        if (CharSequenceUtil.isNotBlank(queryString)) {
-            forwardUrl += "?" + queryString;
-        }
-        LOGGER.info("请求地地址：{}", forwardUrl);
-        HttpRequest httpRequest = proxyCreator.apply("http://" + forwardUrl);
-        Enumeration<String> headerNames = req.getHeaderNames();
-        while (headerNames.hasMoreElements()) {
-            String name = headerNames.nextElement();
-            httpRequest.header(name, req.getHeader(name));
-        }
-        try (ServletInputStream inputStream = req.getInputStream()){
-            httpRequest.body(new InputStreamResource(inputStream));
-            try (HttpResponse response = httpRequest.execute()) {
-                response.charset(StandardCharsets.UTF_8);
-                Map<String, List<String>> headers = response.headers();
-                headers.forEach((k, v) -> resp.setHeader(k, ArrayUtil.join(v.toArray(), ",")));
-                try (ServletOutputStream outputStream = resp.getOutputStream()) {
-                    response.writeBody(outputStream, true, STREAM_PROGRESS);
-                }
-            }
-        }
-    }
-
-    /**
-     * 添加服务映射
-     * 将域名映射到目标服务器地址
-     *
-     * @param domain 域名
-     * @param target 目标地址
-     */
-    public void addServiceMapping(String domain, String target) {
-        serviceMapping.put(domain, target);
-        LOGGER.info("添加服务映射: {} -> {}", domain, target);
-    }
-
-    /**
-     * 关闭���理服务器
-     * 清理所有资源并停止服务
-     */
-    public void shutdown() {
-        if (ctx != null) {
-            try {
-                ctx.stop();
-            } catch (LifecycleException e) {
-                LOGGER.error("停止http代理服务出错", e);
-            }
-        }
-
-        if (tomcat != null) {
-            try {
-                tomcat.stop();
-            } catch (LifecycleException e) {
-                LOGGER.error("停止http代理服务出错", e);
-            }
-        }
-        LOGGER.info("HTTP代理服务器已关闭");
-    }
-
-    /**
-     * 获取服务映射地址
-     * @param domain 域名
-     * @return 映射的目标地址
-     */
-    public String getServiceMapping(String domain) {
-        return serviceMapping.get(domain);
-    }
-}
+package com.zjhy.love.worktools.service;
+
+import cn.hutool.core.text.CharSequenceUtil;
+import com.zjhy.love.worktools.model.HttpProxyConfig;
+import com.zjhy.love.worktools.service.metrics.MetricsRegistry;
+import com.zjhy.love.worktools.service.proxy.AccessLogPipeline;
+import com.zjhy.love.worktools.service.proxy.AsyncProxyExchange;
+import com.zjhy.love.worktools.service.proxy.AsyncUpstreamClient;
+import com.zjhy.love.worktools.service.proxy.CompressionNegotiator;
+import com.zjhy.love.worktools.service.proxy.ConnectorProfile;
+import com.zjhy.love.worktools.service.proxy.ProxyHeaders;
+import com.zjhy.love.worktools.service.proxy.ProxyListener;
+import com.zjhy.love.worktools.service.proxy.ResponseCache;
+import com.zjhy.love.worktools.service.proxy.RouteHealth;
+import com.zjhy.love.worktools.service.proxy.RouteMetricsValve;
+import com.zjhy.love.worktools.service.proxy.SingleFlight;
+import com.zjhy.love.worktools.service.proxy.StreamRelay;
+import com.zjhy.love.worktools.service.proxy.StreamingEntity;
+import com.zjhy.love.worktools.service.proxy.UpgradeRelay;
+import com.zjhy.love.worktools.service.proxy.UpstreamClient;
+import com.zjhy.love.worktools.service.proxy.UpstreamGroup;
+import org.apache.catalina.Context;
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.Wrapper;
+import org.apache.catalina.connector.Connector;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.RequestBuilder;
+import org.apache.http.pool.PoolStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.SocketTimeoutException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * HTTP代理服务
+ * 处理HTTP请求的转发，支持基于域名的请求路由
+ * 可同时开启多个监听器，各自持有独立路由表，共用同一个容器与上游连接池
+ */
+public class HttpProxyService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HttpProxyService.class);
+
+    /**
+     * 默认监听器名称
+     */
+    public static final String DEFAULT_LISTENER = "default";
+
+    /**
+     * 未命中路由、按原始 Host 转发的请求合并记录到该名称下，避免每个 Host 各占一条指标
+     */
+    public static final String UNROUTED_METRICS = "(unrouted)";
+
+    /**
+     * 监听器列表
+     * 每个监听器对应一个连接器和一张路由表
+     */
+    private final List<ProxyListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * 各监听器对应的连接器
+     */
+    private final Map<String, Connector> connectors = new ConcurrentHashMap<>();
+
+    /**
+     * 连接器使用的外部工作线程池（如虚拟线程执行器），未配置时使用容器内置线程池
+     */
+    private final Map<String, ExecutorService> connectorExecutors = new ConcurrentHashMap<>();
+
+    /**
+     * 代理配置
+     */
+    private final HttpProxyConfig config;
+
+    /**
+     * 上游分组，路由目标为分组名称时在分组成员间负载均衡
+     */
+    private final Map<String, UpstreamGroup> upstreamGroups = new ConcurrentHashMap<>();
+
+    /**
+     * 各路由目标的流量指标
+     */
+    private final MetricsRegistry routeMetrics = new MetricsRegistry();
+
+    /**
+     * 上游连接池客户端
+     * 所有转发请求复用同一组长连接，避免每次请求都经SSH隧道重新建连
+     */
+    private UpstreamClient upstreamClient;
+
+    /**
+     * 异步模式下使用的非阻塞上游客户端
+     */
+    private AsyncUpstreamClient asyncUpstreamClient;
+
+    /**
+     * 上游熔断状态，代理启动后创建
+     */
+    private RouteHealth routeHealth;
+
+    /**
+     * 访问日志管道，未启用访问日志时为null
+     */
+    private AccessLogPipeline accessLog;
+
+    /**
+     * 响应缓存，未配置缓存路由时为null
+     */
+    private ResponseCache responseCache;
+
+    /**
+     * 压缩协商，未启用时为null
+     */
+    private CompressionNegotiator compressionNegotiator;
+
+    /**
+     * 请求合并，未启用时为null
+     */
+    private SingleFlight singleFlight;
+
+    private  Tomcat tomcat;
+
+    private  Context ctx;
+
+    public HttpProxyService() {
+        this(new HttpProxyConfig());
+    }
+
+    public HttpProxyService(HttpProxyConfig config) {
+        this.config = config;
+        listeners.add(new ProxyListener(DEFAULT_LISTENER, null, config.getPort()));
+    }
+
+    /**
+     * 启动HTTP代理服务器
+     * 在指定端口启动默认监听器，并为已添加的其他监听器创建连接器
+     *
+     * @param port 默认监听器端口
+     */
+    public void start(int port) {
+        ProxyListener defaultListener = getListener(DEFAULT_LISTENER);
+        if (defaultListener.getPort() != port) {
+            // 保留启动前已添加的路由
+            ProxyListener listener = new ProxyListener(DEFAULT_LISTENER, null, port);
+            listener.replaceRoutes(defaultListener.getRoutes());
+            listeners.set(listeners.indexOf(defaultListener), listener);
+            defaultListener = listener;
+        }
+        // 配置中的静态规则优先级低于运行时添加的同名规则
+        if (!config.getRoutes().isEmpty()) {
+            Map<String, String> rules = new LinkedHashMap<>(config.getRoutes());
+            rules.putAll(defaultListener.getRoutes());
+            defaultListener.replaceRoutes(rules);
+        }
+        upstreamClient = new UpstreamClient(config);
+        if (config.isAsyncMode()) {
+            asyncUpstreamClient = new AsyncUpstreamClient(config);
+        }
+        routeHealth = new RouteHealth(config.getBreakerFailureThreshold(), config.getBreakerOpenMillis(),
+                config.getConnectTimeoutMillis(), config.getProbeIntervalMillis());
+        if (!config.getCacheRoutes().isEmpty()) {
+            Path cacheDir = CharSequenceUtil.isNotBlank(config.getCacheDir()) ? Paths.get(config.getCacheDir())
+                    : Paths.get(System.getProperty("user.home"), ".work-tools", "proxy-cache");
+            responseCache = new ResponseCache(config.getCacheRoutes(), config.getCacheMemoryBytes(),
+                    config.getCacheDiskBytes(), config.getCacheMaxEntryBytes(), cacheDir);
+        }
+        if (config.isCompressionEnabled()) {
+            compressionNegotiator = new CompressionNegotiator();
+        }
+        if (config.isSingleFlightEnabled()) {
+            // 等待方最多等待一个上游读超时，之后自行回源
+            singleFlight = new SingleFlight(config.getSingleFlightMaxBytes(), config.getReadTimeoutMillis());
+        }
+        if (config.isAccessLogEnabled()) {
+            accessLog = new AccessLogPipeline(getAccessLogPath(), config.getAccessLogBufferSize(),
+                    config.getAccessLogSampleRate(), config.getAccessLogMaxFileBytes(), config.getAccessLogMaxFiles());
+            accessLog.start();
+        }
+        tomcat = new Tomcat();
+        ctx = tomcat.addContext("", null);
+        ctx.getPipeline().addValve(new RouteMetricsValve(accessLog));
+        try {
+            Wrapper wrapper = Tomcat.addServlet(ctx, "hostProxy", new HttpServlet() {
+                @Override
+                protected void service(HttpServletRequest req, HttpServletResponse resp) throws IOException, ServletException {
+                    // 不区分请求方法，统一转发
+                    doProxy(req, resp);
+                }
+            });
+            wrapper.setAsyncSupported(true);
+            ctx.addServletMappingDecoded("/*", "hostProxy");
+            listeners.forEach(this::addConnector);
+            tomcat.start();
+            LOGGER.info("HTTP代理服务器启动在端口: {}", port);
+        } catch (Exception e) {
+            LOGGER.error("启动HTTP代理服务器失败", e);
+            shutdown();
+        }
+    }
+
+    /**
+     * 添加监听器
+     * 代理已启动时立即开始监听
+     *
+     * @param name        监听器名称
+     * @param bindAddress 绑定地址，为空时监听所有地址
+     * @param port        监听端口
+     */
+    public void addListener(String name, String bindAddress, int port) {
+        if (getListener(name) != null) {
+            throw new IllegalArgumentException("监听器已存在: " + name);
+        }
+        ProxyListener listener = new ProxyListener(name, bindAddress, port);
+        listeners.add(listener);
+        if (tomcat != null) {
+            addConnector(listener);
+        }
+        LOGGER.info("添加代理监听器: {} -> {}:{}", name, Objects.requireNonNullElse(bindAddress, "*"), port);
+    }
+
+    /**
+     * 移除监听器，默认监听器不可移除
+     *
+     * @param name 监听器名称
+     */
+    public void removeListener(String name) {
+        ProxyListener listener = getListener(name);
+        if (listener == null || DEFAULT_LISTENER.equals(name)) {
+            return;
+        }
+        listeners.remove(listener);
+        Connector connector = connectors.remove(name);
+        if (connector != null && tomcat != null) {
+            tomcat.getService().removeConnector(connector);
+        }
+        ExecutorService executor = connectorExecutors.remove(name);
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        LOGGER.info("移除代理监听器: {}", name);
+    }
+
+    private void addConnector(ProxyListener listener) {
+        Connector connector = new Connector("HTTP/1.1");
+        connector.setPort(listener.getPort());
+        if (listener.getBindAddress() != null) {
+            connector.setProperty("address", listener.getBindAddress());
+        }
+        // 每个连接器有独立的工作线程池，热点服务拆到独立监听器后不会占满其他监听器的线程
+        ExecutorService executor = ConnectorProfile.apply(connector, config);
+        if (executor != null) {
+            connectorExecutors.put(listener.getName(), executor);
+        }
+        tomcat.getService().addConnector(connector);
+        connectors.put(listener.getName(), connector);
+    }
+
+    private ProxyListener getListener(String name) {
+        for (ProxyListener listener : listeners) {
+            if (listener.getName().equals(name)) {
+                return listener;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 根据连接的本地地址和端口确定所属监听器
+     */
+    private ProxyListener resolveListener(HttpServletRequest req) {
+        int localPort = req.getLocalPort();
+        String localAddr = req.getLocalAddr();
+        ProxyListener fallback = null;
+        for (ProxyListener listener : listeners) {
+            if (listener.accepts(localAddr, localPort)) {
+                return listener;
+            }
+            if (DEFAULT_LISTENER.equals(listener.getName())) {
+                fallback = listener;
+            }
+        }
+        return fallback;
+    }
+
+
+    public void doProxy(HttpServletRequest req, HttpServletResponse resp) throws IOException, ServletException {
+        String originHost = ProxyHeaders.authority(req);
+        String forwardHost = resolveListener(req).resolve(originHost, req.getRequestURI());
+        boolean routed = forwardHost != null;
+        if (!routed) {
+            forwardHost = originHost;
+        }
+        if (forwardHost != null) {
+            RouteMetricsValve.begin(req, routeMetrics.get(routed ? forwardHost : UNROUTED_METRICS));
+        }
+        ResponseCache cache = responseCache;
+        String cacheKey = null;
+        ResponseCache.Entry cached = null;
+        if (cache != null && cache.isEnabledFor(forwardHost)) {
+            if (ResponseCache.isCacheableRequest(req)) {
+                cacheKey = ResponseCache.key(forwardHost, req);
+                cached = cache.lookup(cacheKey, req);
+                if (cached != null && cached.isFresh() && !ResponseCache.requiresRevalidation(req)) {
+                    // 新鲜缓存直接应答，不经过隧道
+                    cache.serve(req, resp, cached, "HIT");
+                    return;
+                }
+            } else if (ResponseCache.isUnsafeMethod(req.getMethod())) {
+                // 可能修改了资源，之后的读取需回源
+                cache.invalidate(ResponseCache.key(forwardHost, req));
+            }
+        }
+        SingleFlight.Flight flight = null;
+        SingleFlight flights = singleFlight;
+        if (flights != null && forwardHost != null && cached == null && SingleFlight.isCoalescable(req)) {
+            flight = flights.join(forwardHost, req);
+            if (!flight.isLeader()) {
+                // 相同请求正在回源，等待共享其响应
+                try {
+                    if (flights.serve(flight, req, resp)) {
+                        return;
+                    }
+                } catch (IOException e) {
+                    RouteMetricsValve.markError(req);
+                    respondUpstreamFailure(resp, forwardHost, e);
+                    return;
+                }
+                flight = null;
+            }
+        }
+        try {
+            proxyToUpstream(req, resp, forwardHost, routed, cacheKey, cached, flight);
+        } finally {
+            if (flight != null) {
+                flight.finish();
+            }
+        }
+    }
+
+    /**
+     * 选择上游成员并转发，熔断中的上游直接失败
+     *
+     * @param routed 目标是否来自路由表，未命中路由时按原始 Host 转发
+     */
+    private void proxyToUpstream(HttpServletRequest req, HttpServletResponse resp, String forwardHost, boolean routed,
+                                 String cacheKey, ResponseCache.Entry cached, SingleFlight.Flight flight)
+            throws IOException, ServletException {
+        RouteHealth health = routeHealth;
+        UpstreamGroup group = forwardHost == null ? null : upstreamGroups.get(forwardHost);
+        // 跳过熔断中的成员，分组内还有健康成员时不返回503
+        UpstreamGroup.Member member = group == null ? null
+                : group.acquire(address -> health == null || health.isHealthy(address));
+        String target = member == null ? forwardHost : member.getAddress();
+        if (member != null) {
+            RouteMetricsValve.markTarget(req, target);
+        }
+        // 只为路由表与上游分组中的地址维护熔断状态，客户端随意填写的 Host 不会留下熔断器
+        boolean tracked = target != null && health != null && (routed || member != null);
+        if (tracked && !health.allow(target)) {
+            if (member != null) {
+                group.release(member, false);
+            }
+            if (cached != null && cached.isStaleAllowed()) {
+                // 上游已熔断时与转发失败一样以过期缓存应答
+                LOGGER.warn("上游已熔断，使用过期缓存: {}", target);
+                responseCache.serve(req, resp, cached, "STALE");
+                return;
+            }
+            // 上游已熔断，直接失败，不占用线程等待连接超时
+            RouteMetricsValve.markError(req);
+            resp.setHeader("Retry-After", String.valueOf(health.getRetryAfterSeconds()));
+            resp.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "上游不可用: " + target);
+            return;
+        }
+        // 同步转发在本方法内结束，异步转发由交换结束时归还成员
+        AtomicBoolean finished = new AtomicBoolean();
+        Consumer<Boolean> onFinish = success -> {
+            if (!finished.compareAndSet(false, true)) {
+                return;
+            }
+            if (!success) {
+                RouteMetricsValve.markError(req);
+            }
+            if (member != null) {
+                group.release(member, success);
+            }
+            if (tracked) {
+                health.record(target, success);
+            }
+        };
+        try {
+            forward(req, resp, target, cacheKey, cached, flight, onFinish);
+        } catch (IOException | ServletException | RuntimeException e) {
+            onFinish.accept(false);
+            throw e;
+        }
+    }
+
+    /**
+     * 将请求转发到指定上游
+     *
+     * @param forwardHost 上游地址
+     * @param cacheKey    缓存键，路由未启用缓存或请求不可缓存时为null
+     * @param cached      已过期或需重新验证的缓存，没有时为null
+     * @param flight      合并请求中由本请求回源时不为null，响应需发布给等待的请求
+     * @param onFinish    转发结束回调，参数表示上游是否正常响应
+     */
+    private void forward(HttpServletRequest req, HttpServletResponse resp, String forwardHost, String cacheKey,
+                         ResponseCache.Entry cached, SingleFlight.Flight flight, Consumer<Boolean> onFinish)
+            throws IOException, ServletException {
+        String forwardUrl = forwardHost + req.getRequestURI();
+        String queryString = req.getQueryString();
+        if (CharSequenceUtil.isNotBlank(queryString)) {
+            forwardUrl += "?" + queryString;
+        }
+        if (UpgradeRelay.isUpgradeRequest(req)) {
+            UpgradeRelay.relay(req, resp, forwardHost);
+            onFinish.accept(true);
+            return;
+        }
+        // 可缓存或被合并的请求需在响应写出时留存响应体，统一走同步客户端
+        if (asyncUpstreamClient != null && cacheKey == null && flight == null) {
+            AsyncProxyExchange.start(req, resp, "http://" + forwardUrl, asyncUpstreamClient,
+                    config.getAsyncTimeoutMillis(), config.isForwardedHeaders(), onFinish);
+            return;
+        }
+        String method = req.getMethod();
+        RequestBuilder requestBuilder = RequestBuilder.create(method).setUri("http://" + forwardUrl);
+        // 缓存路由保持客户端的编码协商，缓存中的表示与 Vary 保持一致
+        CompressionNegotiator negotiator = compressionNegotiator;
+        boolean negotiate = negotiator != null && cacheKey == null && CompressionNegotiator.isNegotiable(req);
+        ProxyHeaders.copyRequestHeaders(req, config.isForwardedHeaders(), (name, value) -> {
+            // 有缓存时以缓存的验证器向上游验证，客户端自带的条件在应答时判断
+            if ((cached == null || !ResponseCache.isConditionalHeader(name))
+                    && !(negotiate && "Accept-Encoding".equalsIgnoreCase(name))) {
+                requestBuilder.addHeader(name, value);
+            }
+        });
+        if (negotiate) {
+            requestBuilder.addHeader("Accept-Encoding", negotiator.upstreamAcceptEncoding(req));
+        }
+        if (cached != null) {
+            if (cached.getETag() != null) {
+                requestBuilder.addHeader("If-None-Match", cached.getETag());
+            }
+            if (cached.getLastModified() != null) {
+                requestBuilder.addHeader("If-Modified-Since", cached.getLastModified());
+            }
+        }
+        try (ServletInputStream inputStream = req.getInputStream()) {
+            if (hasRequestBody(req)) {
+                requestBuilder.setEntity(new StreamingEntity(inputStream, req.getContentLengthLong()));
+            }
+            CloseableHttpResponse upstreamResponse;
+            try {
+                upstreamResponse = upstreamClient.execute(requestBuilder.build());
+            } catch (IOException e) {
+                onFinish.accept(false);
+                if (flight != null) {
+                    flight.publishFailure(e);
+                }
+                if (cached != null && cached.isStaleAllowed()) {
+                    // 隧道不可用时以过期缓存应答
+                    LOGGER.warn("请求上游失败，使用过期缓存: {} {}", forwardHost, e.toString());
+                    responseCache.serve(req, resp, cached, "STALE");
+                    return;
+                }
+                respondUpstreamFailure(resp, forwardHost, e);
+                return;
+            }
+            try (CloseableHttpResponse response = upstreamResponse) {
+                RouteMetricsValve.markResponseHead(req);
+                int status = response.getStatusLine().getStatusCode();
+                // 上游已给出响应头，后续写客户端失败不计为上游故障
+                onFinish.accept(status < HttpServletResponse.SC_BAD_GATEWAY || status > HttpServletResponse.SC_GATEWAY_TIMEOUT);
+                boolean head = "HEAD".equals(method);
+                Header[] connection = response.getHeaders("Connection");
+                Set<String> connectionTokens = connection.length == 0 ? Collections.emptySet()
+                        : ProxyHeaders.connectionTokens(Arrays.stream(connection).map(Header::getValue).collect(Collectors.toList()));
+                List<String[]> headers = new ArrayList<>();
+                for (Header header : response.getAllHeaders()) {
+                    String name = header.getName();
+                    // 长度由容器维护，HEAD 响应没有响应体，需保留上游声明的长度
+                    if (ProxyHeaders.isHopByHop(name, connectionTokens)
+                            || (!head && "Content-Length".equalsIgnoreCase(name))) {
+                        continue;
+                    }
+                    headers.add(new String[]{name, header.getValue()});
+                }
+                if (cached != null && status == HttpServletResponse.SC_NOT_MODIFIED) {
+                    responseCache.refresh(cached, headers);
+                    responseCache.serve(req, resp, cached, "REVALIDATED");
+                    return;
+                }
+                HttpEntity entity = response.getEntity();
+                String contentEncoding = getHeader(headers, "Content-Encoding");
+                CompressionNegotiator.Mode mode = negotiate && entity != null
+                        ? negotiator.decide(req, status, contentEncoding, entity.getContentLength())
+                        : CompressionNegotiator.Mode.PASS;
+                CompressionNegotiator.rewriteHeaders(headers, mode);
+                resp.setStatus(status);
+                headers.forEach(header -> resp.addHeader(header[0], header[1]));
+                long freshness = -1;
+                if (cacheKey != null) {
+                    resp.setHeader(ResponseCache.CACHE_STATUS_HEADER, "MISS");
+                    freshness = ResponseCache.freshnessMillis(status, headers);
+                    if (freshness < 0) {
+                        responseCache.invalidate(cacheKey);
+                    }
+                }
+                if (entity == null) {
+                    if (flight != null) {
+                        flight.publish(status, headers, new byte[0]);
+                    }
+                    return;
+                }
+                // 长度已知时原样声明，未知时由容器以分块编码逐段下发
+                long contentLength = entity.getContentLength();
+                if (contentLength >= 0 && mode == CompressionNegotiator.Mode.PASS) {
+                    resp.setContentLengthLong(contentLength);
+                }
+                boolean store = !head && freshness >= 0 && contentLength <= responseCache.getMaxEntryBytes();
+                try (InputStream body = mode == CompressionNegotiator.Mode.DECODE
+                        ? CompressionNegotiator.decode(entity.getContent(), contentEncoding) : entity.getContent();
+                     ServletOutputStream outputStream = resp.getOutputStream()) {
+                    // 合并请求留存写给客户端的字节，压缩后的响应体可直接分发给等待的请求
+                    ResponseCache.Capture shared = null;
+                    if (flight != null && mode == CompressionNegotiator.Mode.PASS && contentLength > singleFlight.getMaxBytes()) {
+                        // 已知超过共享上限，不必让等待的请求等到传输结束
+                        flight.finish();
+                    } else if (flight != null) {
+                        shared = new ResponseCache.Capture(outputStream, singleFlight.getMaxBytes());
+                    }
+                    OutputStream out = shared == null ? outputStream : shared;
+                    if (!store) {
+                        StreamRelay.relay(body, out);
+                    } else {
+                        ResponseCache.Capture capture = new ResponseCache.Capture(out, responseCache.getMaxEntryBytes());
+                        StreamRelay.relay(body, capture);
+                        byte[] captured = capture.getBody();
+                        if (captured != null && (contentLength < 0 || captured.length == contentLength)) {
+                            responseCache.store(cacheKey, req, status, headers, captured, freshness);
+                        }
+                    }
+                    if (shared != null) {
+                        flight.publish(status, headers, shared.getBody());
+                    }
+                }
+            }
+        }
+    }
+
+    private static String getHeader(List<String[]> headers, String name) {
+        for (String[] header : headers) {
+            if (header[0].equalsIgnoreCase(name)) {
+                return header[1];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 上游连接或等待响应失败时快速返回网关错误，等待响应超时返回504，其余返回502
+     */
+    private static void respondUpstreamFailure(HttpServletResponse resp, String forwardHost, IOException e)
+            throws IOException {
+        LOGGER.warn("请求上游失败: {} {}", forwardHost, e.toString());
+        if (resp.isCommitted()) {
+            return;
+        }
+        resp.sendError(e instanceof SocketTimeoutException
+                ? HttpServletResponse.SC_GATEWAY_TIMEOUT : HttpServletResponse.SC_BAD_GATEWAY, "上游不可用: " + forwardHost);
+    }
+
+    private Path getAccessLogPath() {
+        if (CharSequenceUtil.isNotBlank(config.getAccessLogFile())) {
+            return Paths.get(config.getAccessLogFile());
+        }
+        return Paths.get(System.getProperty("user.home"), ".work-tools", "logs", "proxy-access.log");
+    }
+
+    /**
+     * 请求是否携带请求体
+     */
+    private static boolean hasRequestBody(HttpServletRequest req) {
+        return req.getContentLengthLong() > 0 || req.getHeader("Transfer-Encoding") != null;
+    }
+
+    /**
+     * 添加服务映射
+     * 将域名映射到目标服务器地址
+     *
+     * @param domain 域名
+     * @param target 目标地址
+     */
+    public void addServiceMapping(String domain, String target) {
+        addServiceMapping(DEFAULT_LISTENER, domain, target);
+    }
+
+    /**
+     * 向指定监听器添加服务映射
+     *
+     * @param listenerName 监听器名称
+     * @param domain       域名
+     * @param target       目标地址
+     */
+    public void addServiceMapping(String listenerName, String domain, String target) {
+        ProxyListener listener = getListener(listenerName);
+        if (listener == null) {
+            throw new IllegalArgumentException("监听器不存在: " + listenerName);
+        }
+        listener.addRoute(domain, target);
+        LOGGER.info("添加服务映射: [{}] {} -> {}", listenerName, domain, target);
+    }
+
+    /**
+     * 获取上游分组，不存在时创建
+     * 分组名称可作为服务映射的目标地址，转发时在分组成员间负载均衡
+     *
+     * @param name     分组名称
+     * @param strategy 负载均衡策略，见 {@link UpstreamGroup}
+     * @return 上游分组
+     */
+    public UpstreamGroup getOrCreateUpstreamGroup(String name, String strategy) {
+        return upstreamGroups.computeIfAbsent(name, key -> new UpstreamGroup(
+                key, strategy, config.getEjectFailureThreshold(), config.getEjectMillis()));
+    }
+
+    /**
+     * 向上游分组添加成员
+     *
+     * @param groupName 分组名称
+     * @param address   成员地址，格式为 host:port
+     * @param weight    权重
+     */
+    public void addUpstreamMember(String groupName, String address, double weight) {
+        UpstreamGroup group = upstreamGroups.get(groupName);
+        if (group == null) {
+            throw new IllegalArgumentException("上游分组不存在: " + groupName);
+        }
+        group.addMember(address, weight);
+        LOGGER.info("添加上游成员: [{}] {} weight={}", groupName, address, weight);
+    }
+
+    /**
+     * 从上游分组移除成员，移除后新请求不再分配到该成员
+     *
+     * @param groupName 分组名称
+     * @param address   成员地址
+     */
+    public void removeUpstreamMember(String groupName, String address) {
+        UpstreamGroup group = upstreamGroups.get(groupName);
+        if (group != null) {
+            group.removeMember(address);
+            if (routeHealth != null) {
+                routeHealth.forget(address);
+            }
+            LOGGER.info("移除上游成员: [{}] {}", groupName, address);
+        }
+    }
+
+    /**
+     * 获取上游分组
+     *
+     * @param name 分组名称
+     * @return 上游分组，不存在时返回null
+     */
+    public UpstreamGroup getUpstreamGroup(String name) {
+        return upstreamGroups.get(name);
+    }
+
+    /**
+     * 删除服务映射
+     *
+     * @param listenerName 监听器名称
+     * @param domain       域名规则
+     */
+    public void removeServiceMapping(String listenerName, String domain) {
+        ProxyListener listener = getListener(listenerName);
+        if (listener != null) {
+            listener.removeRoute(domain);
+            LOGGER.info("删除服务映射: [{}] {}", listenerName, domain);
+        }
+    }
+
+    /**
+     * 批量修改服务映射，整批只重新编译一次路由表
+     *
+     * @param listenerName 监听器名称
+     * @param put          增加或覆盖的映射，域名规则到目标地址
+     * @param remove       删除的域名规则
+     */
+    public void updateServiceMappings(String listenerName, Map<String, String> put, Collection<String> remove) {
+        if (put.isEmpty() && remove.isEmpty()) {
+            return;
+        }
+        ProxyListener listener = getListener(listenerName);
+        if (listener == null) {
+            if (put.isEmpty()) {
+                return;
+            }
+            throw new IllegalArgumentException("监听器不存在: " + listenerName);
+        }
+        listener.updateRoutes(put, remove);
+        LOGGER.info("更新服务映射: [{}] 添加{}条, 删除{}条", listenerName, put.size(), remove.size());
+    }
+
+    /**
+     * 热更新路由表
+     * 新路由表编译完成后整体替换，进行中的请求不受影响，无需重启容器
+     *
+     * @param listenerName 监听器名称
+     * @param rules        新的全部路由规则
+     */
+    public void reloadRoutes(String listenerName, Map<String, String> rules) {
+        ProxyListener listener = getListener(listenerName);
+        if (listener == null) {
+            throw new IllegalArgumentException("监听器不存在: " + listenerName);
+        }
+        listener.replaceRoutes(rules);
+        LOGGER.info("重新加载路由表: [{}] 共{}条规则", listenerName, rules.size());
+    }
+
+    /**
+     * 关闭���理服务器
+     * 清理所有资源并停止服务
+     */
+    public void shutdown() {
+        if (ctx != null) {
+            try {
+                ctx.stop();
+            } catch (LifecycleException e) {
+                LOGGER.error("停止http代理服务出错", e);
+            }
+        }
+
+        if (tomcat != null) {
+            try {
+                tomcat.stop();
+            } catch (LifecycleException e) {
+                LOGGER.error("停止http代理服务出错", e);
+            }
+        }
+
+        if (upstreamClient != null) {
+            upstreamClient.close();
+            upstreamClient = null;
+        }
+        if (asyncUpstreamClient != null) {
+            asyncUpstreamClient.close();
+            asyncUpstreamClient = null;
+        }
+        if (routeHealth != null) {
+            routeHealth.close();
+            routeHealth = null;
+        }
+        if (accessLog != null) {
+            accessLog.close();
+            accessLog = null;
+        }
+        if (responseCache != null) {
+            responseCache.close();
+            responseCache = null;
+        }
+        connectorExecutors.values().forEach(ExecutorService::shutdownNow);
+        connectorExecutors.clear();
+        connectors.clear();
+        tomcat = null;
+        LOGGER.info("HTTP代理服务器已关闭");
+    }
+
+    /**
+     * 获取服务映射地址
+     * @param domain 域名
+     * @return 映射的目标地址
+     */
+    public String getServiceMapping(String domain) {
+        for (ProxyListener listener : listeners) {
+            String target = listener.resolve(domain, null);
+            if (target != null) {
+                return target;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 获取上游连接池统计
+     *
+     * @return 各转发目标的连接池使用情况
+     */
+    public Map<String, PoolStats> getUpstreamStats() {
+        return upstreamClient == null ? Map.of() : upstreamClient.getRouteStats();
+    }
+
+    /**
+     * 获取代理路由的流量指标
+     *
+     * @return 以路由目标为名称的指标注册表
+     */
+    public MetricsRegistry getRouteMetrics() {
+        return routeMetrics;
+    }
+}
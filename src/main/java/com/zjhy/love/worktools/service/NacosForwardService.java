@@ -0,0 +1,387 @@
+package com.zjhy.love.worktools.service;
+
+import com.alibaba.nacos.api.naming.listener.EventListener;
+import com.alibaba.nacos.api.naming.listener.NamingEvent;
+import com.alibaba.nacos.api.naming.pojo.Instance;
+import com.zjhy.love.worktools.model.NacosConfig;
+import com.zjhy.love.worktools.service.proxy.UpstreamGroup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Nacos服务转发
+ * 为服务的每个健康实例建立一条SSH隧道，并将这些隧道注册为HTTP代理的同一个上游分组，
+ * 访问任一实例地址的请求都会在全部隧道间负载均衡。
+ * 开启订阅后，实例变化经合并窗口批量处理，只对新增和下线的实例增删隧道与路由
+ */
+public class NacosForwardService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(NacosForwardService.class);
+
+    private static final String LOCAL_HOST = "127.0.0.1";
+
+    private final NacosService nacosService;
+
+    private final SshService sshService;
+
+    private final HttpProxyService httpProxyService;
+
+    private final String groupName;
+
+    private final int maxInstances;
+
+    private final String strategy;
+
+    private final boolean subscribeEnabled;
+
+    private final long debounceMillis;
+
+    /**
+     * 服务名称到代理监听器名称的映射
+     */
+    private final Function<String, String> listenerResolver;
+
+    /**
+     * 各服务已建立的隧道，实例地址到本地端口的映射
+     */
+    private final Map<String, Map<String, Integer>> tunnels = new ConcurrentHashMap<>();
+
+    /**
+     * 各服务的订阅监听器
+     */
+    private final Map<String, EventListener> subscriptions = new ConcurrentHashMap<>();
+
+    /**
+     * 各服务的同步锁，不同服务的隧道可以并行建立
+     */
+    private final Map<String, Object> serviceLocks = new ConcurrentHashMap<>();
+
+    /**
+     * 合并窗口内待处理的实例变化，同一服务只保留最后一次的全量实例
+     */
+    private final Map<String, List<Instance>> pendingChanges = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * 隧道或路由变化后的回调
+     */
+    private volatile Runnable onChange = () -> {
+    };
+
+    /**
+     * @param nacosService     Nacos服务
+     * @param sshService       SSH服务
+     * @param httpProxyService 已启动的HTTP代理服务
+     * @param config           Nacos配置，提供分组、实例数上限、负载均衡策略与订阅参数
+     * @param listenerResolver 服务名称到代理监听器名称的映射
+     */
+    public NacosForwardService(NacosService nacosService, SshService sshService, HttpProxyService httpProxyService,
+                               NacosConfig config, Function<String, String> listenerResolver) {
+        this.nacosService = nacosService;
+        this.sshService = sshService;
+        this.httpProxyService = httpProxyService;
+        this.groupName = config.getGroupName();
+        this.maxInstances = config.getMaxInstancesPerService();
+        this.strategy = config.getLoadBalanceStrategy();
+        this.subscribeEnabled = config.isSubscribeEnabled();
+        this.debounceMillis = config.getSubscribeDebounceMillis();
+        this.listenerResolver = listenerResolver;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "nacos-forward-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 设置隧道或路由变化后的回调，回调在后台线程执行
+     */
+    public void setOnChange(Runnable onChange) {
+        this.onChange = onChange;
+    }
+
+    /**
+     * 转发服务
+     * 为服务的健康实例逐个建立隧道并加入上游分组，开启订阅时随后跟踪实例变化
+     *
+     * @param serviceName 服务名称
+     * @return 本次建立的隧道数
+     * @throws NoInstanceException 服务没有可用实例且未开启订阅
+     * @throws Exception           获取实例或订阅失败，或服务的实例隧道全部建立失败
+     */
+    public int forward(String serviceName) throws Exception {
+        List<Instance> instances = nacosService.getHealthyInstances(serviceName, groupName);
+        if (instances.isEmpty() && !subscribeEnabled) {
+            throw new NoInstanceException(serviceName);
+        }
+        synchronized (lockOf(serviceName)) {
+            int created = sync(serviceName, instances).added;
+            if (subscribeEnabled && !subscriptions.containsKey(serviceName)) {
+                EventListener listener = event -> {
+                    if (event instanceof NamingEvent) {
+                        onInstancesChanged(serviceName, ((NamingEvent) event).getInstances());
+                    }
+                };
+                nacosService.subscribe(serviceName, groupName, listener);
+                subscriptions.put(serviceName, listener);
+            }
+            return created;
+        }
+    }
+
+    /**
+     * 释放服务的转发
+     * 停止跟踪实例变化，摘除成员与路由并关闭该服务的全部隧道，用于启动失败时的回滚
+     *
+     * @param serviceName 服务名称
+     */
+    public void release(String serviceName) {
+        synchronized (lockOf(serviceName)) {
+            EventListener listener = subscriptions.remove(serviceName);
+            if (listener != null) {
+                nacosService.unsubscribe(serviceName, groupName, listener);
+            }
+            pendingChanges.remove(serviceName);
+            Map<String, Integer> serviceTunnels = tunnels.remove(serviceName);
+            if (serviceTunnels == null || serviceTunnels.isEmpty()) {
+                return;
+            }
+            String listenerName = listenerResolver.apply(serviceName);
+            String upstreamName = getUpstreamName(serviceName);
+            httpProxyService.updateServiceMappings(listenerName, Map.of(), serviceTunnels.keySet());
+            serviceTunnels.forEach((remote, localPort) -> removeTunnel(serviceName, upstreamName, remote, localPort));
+            LOGGER.info("已释放服务转发: {}, 关闭隧道{}条", serviceName, serviceTunnels.size());
+        }
+    }
+
+    /**
+     * 获取服务的本地隧道地址
+     *
+     * @param serviceName 服务名称
+     * @return 本地地址列表，未转发时为空
+     */
+    public List<String> getLocalAddresses(String serviceName) {
+        Map<String, Integer> serviceTunnels = tunnels.get(serviceName);
+        if (serviceTunnels == null) {
+            return List.of();
+        }
+        return serviceTunnels.values().stream().map(port -> LOCAL_HOST + ":" + port).collect(Collectors.toList());
+    }
+
+    /**
+     * 停止跟踪实例变化
+     * 已建立的隧道随SSH连接、路由随HTTP代理一起关闭
+     */
+    public void close() {
+        subscriptions.forEach((serviceName, listener) -> nacosService.unsubscribe(serviceName, groupName, listener));
+        subscriptions.clear();
+        pendingChanges.clear();
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 记录实例变化，合并窗口结束后统一处理
+     */
+    private void onInstancesChanged(String serviceName, List<Instance> instances) {
+        pendingChanges.put(serviceName, instances);
+        if (flushScheduled.compareAndSet(false, true)) {
+            scheduler.schedule(this::flushChanges, debounceMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void flushChanges() {
+        flushScheduled.set(false);
+        boolean changed = false;
+        Iterator<Map.Entry<String, List<Instance>>> iterator = pendingChanges.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, List<Instance>> entry = iterator.next();
+            iterator.remove();
+            List<Instance> healthy = entry.getValue().stream()
+                    .filter(instance -> instance.isHealthy() && instance.isEnabled())
+                    .collect(Collectors.toList());
+            try {
+                SyncResult result;
+                synchronized (lockOf(entry.getKey())) {
+                    if (!subscriptions.containsKey(entry.getKey())) {
+                        // 服务已释放
+                        continue;
+                    }
+                    result = sync(entry.getKey(), healthy);
+                }
+                changed |= result.added > 0 || result.removed > 0;
+                LOGGER.info("服务实例变化已同步: {}, 新增{}个, 下线{}个", entry.getKey(), result.added, result.removed);
+            } catch (RuntimeException e) {
+                LOGGER.error("同步服务实例失败: {}", entry.getKey(), e);
+            }
+        }
+        if (changed) {
+            onChange.run();
+        }
+    }
+
+    /**
+     * 将服务的隧道与实例列表对齐：先下线已消失的实例，再为新实例建立隧道，调用时需持有该服务的锁
+     *
+     * @return 本次新增与下线的隧道数
+     * @throws IllegalStateException 有待转发的实例，但同步后服务没有任何可用隧道
+     */
+    private SyncResult sync(String serviceName, List<Instance> instances) {
+        Map<String, Instance> desired = new LinkedHashMap<>();
+        for (Instance instance : selectInstances(instances)) {
+            desired.put(instance.getIp() + ":" + instance.getPort(), instance);
+        }
+        String upstreamName = getUpstreamName(serviceName);
+        UpstreamGroup group = httpProxyService.getOrCreateUpstreamGroup(upstreamName, strategy);
+        Map<String, Integer> serviceTunnels = tunnels.computeIfAbsent(serviceName, key -> new ConcurrentHashMap<>());
+        String listenerName = listenerResolver.apply(serviceName);
+
+        SyncResult result = new SyncResult();
+        List<Exception> failures = new ArrayList<>();
+        // 路由整批修改，避免每个实例都重新编译一次路由表
+        List<String> removedRoutes = new ArrayList<>();
+        for (String remote : serviceTunnels.keySet()) {
+            if (!desired.containsKey(remote)) {
+                removedRoutes.add(remote);
+            }
+        }
+        httpProxyService.updateServiceMappings(listenerName, Map.of(), removedRoutes);
+        for (String remote : removedRoutes) {
+            removeTunnel(serviceName, upstreamName, remote, serviceTunnels.remove(remote));
+            result.removed++;
+        }
+
+        Map<String, String> addedRoutes = new LinkedHashMap<>();
+        for (Map.Entry<String, Instance> entry : desired.entrySet()) {
+            String remote = entry.getKey();
+            Instance instance = entry.getValue();
+            Integer existingPort = serviceTunnels.get(remote);
+            if (existingPort != null) {
+                updateWeight(group, upstreamName, LOCAL_HOST + ":" + existingPort, instance.getWeight());
+                continue;
+            }
+            try {
+                serviceTunnels.put(remote, addTunnel(serviceName, upstreamName, instance));
+                addedRoutes.put(remote, upstreamName);
+                result.added++;
+            } catch (Exception e) {
+                LOGGER.error("建立实例隧道失败: {} -> {}", serviceName, remote, e);
+                failures.add(e);
+            }
+        }
+        httpProxyService.updateServiceMappings(listenerName, addedRoutes, List.of());
+        // 有可用实例却一条隧道都没有，视为转发失败，交由调用方提示并回滚
+        if (!failures.isEmpty() && serviceTunnels.isEmpty()) {
+            IllegalStateException error = new IllegalStateException(String.format("服务 %s 的%d个实例隧道均建立失败: %s",
+                    serviceName, failures.size(), failures.get(0).getMessage()), failures.get(0));
+            failures.stream().skip(1).forEach(error::addSuppressed);
+            throw error;
+        }
+        return result;
+    }
+
+    /**
+     * 建立实例隧道并加入上游分组，路由由调用方整批添加
+     */
+    private int addTunnel(String serviceName, String upstreamName, Instance instance) throws Exception {
+        String remote = instance.getIp() + ":" + instance.getPort();
+        // 本地端口由分配器在绑定时一并分配，先建立隧道再加入分组，避免请求被分配到尚未就绪的成员
+        int localPort = sshService.addPortForwarding(LOCAL_HOST, 0, instance.getIp(), instance.getPort());
+        LOGGER.debug("启动服务转发 - 服务: {}, 本地端口: {}, 目标: {}", serviceName, localPort, remote);
+        httpProxyService.addUpstreamMember(upstreamName, LOCAL_HOST + ":" + localPort, instance.getWeight());
+        return localPort;
+    }
+
+    /**
+     * 下线实例隧道，路由由调用方事先整批删除
+     */
+    private void removeTunnel(String serviceName, String upstreamName, String remote, int localPort) {
+        LOGGER.debug("下线服务转发 - 服务: {}, 本地端口: {}, 目标: {}", serviceName, localPort, remote);
+        // 先摘除成员，不再有新请求进入后再关闭隧道
+        httpProxyService.removeUpstreamMember(upstreamName, LOCAL_HOST + ":" + localPort);
+        try {
+            sshService.removePortForwarding(LOCAL_HOST, localPort);
+        } catch (Exception e) {
+            LOGGER.warn("删除实例隧道失败: {}:{}, {}", LOCAL_HOST, localPort, e.getMessage());
+        }
+    }
+
+    private Object lockOf(String serviceName) {
+        return serviceLocks.computeIfAbsent(serviceName, key -> new Object());
+    }
+
+    private void updateWeight(UpstreamGroup group, String upstreamName, String local, double weight) {
+        for (UpstreamGroup.Member member : group.getMembers()) {
+            if (member.getAddress().equals(local) && member.getWeight() != weight && weight > 0) {
+                httpProxyService.addUpstreamMember(upstreamName, local, weight);
+                return;
+            }
+        }
+    }
+
+    /**
+     * 按权重从高到低选取实例，超出上限的实例不转发
+     */
+    private List<Instance> selectInstances(List<Instance> instances) {
+        List<Instance> selected = new ArrayList<>(instances);
+        selected.sort(Comparator.comparingDouble(Instance::getWeight).reversed());
+        if (maxInstances > 0 && selected.size() > maxInstances) {
+            return selected.subList(0, maxInstances);
+        }
+        return selected;
+    }
+
+    /**
+     * 上游分组名称，沿用Nacos的 分组@@服务 写法，同时作为代理路由指标的名称
+     *
+     * @param serviceName 服务名称
+     * @return 上游分组名称
+     */
+    public String getUpstreamName(String serviceName) {
+        return upstreamName(groupName, serviceName);
+    }
+
+    /**
+     * 上游分组名称，用于在没有转发服务实例时（如转发由后台服务托管）查找路由指标
+     *
+     * @param groupName   分组名称
+     * @param serviceName 服务名称
+     * @return 上游分组名称
+     */
+    public static String upstreamName(String groupName, String serviceName) {
+        return "nacos:" + groupName + "@@" + serviceName;
+    }
+
+    /**
+     * 服务没有可用实例
+     */
+    public static class NoInstanceException extends IllegalStateException {
+
+        public NoInstanceException(String serviceName) {
+            super("服务没有可用的实例: " + serviceName);
+        }
+    }
+
+    /**
+     * 一次同步的结果
+     */
+    private static final class SyncResult {
+        private int added;
+        private int removed;
+    }
+}
@@ -2,11 +2,14 @@ package com.zjhy.love.worktools.service;
 
 import com.alibaba.nacos.api.NacosFactory;
 import com.alibaba.nacos.api.naming.NamingService;
+import com.alibaba.nacos.api.naming.listener.EventListener;
 import com.alibaba.nacos.api.naming.pojo.Instance;
+import com.alibaba.nacos.api.naming.pojo.ListView;
 import com.zjhy.love.worktools.model.NacosConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
 
@@ -16,8 +19,18 @@ import java.util.Properties;
  */
 public class NacosService {
     private static final Logger LOGGER = LoggerFactory.getLogger(NacosService.class);
+    /**
+     * 分页获取服务列表时的每页数量
+     */
+    private static final int SERVICE_PAGE_SIZE = 500;
+
     private NamingService namingService;
 
+    /**
+     * 当前连接的命名空间
+     */
+    private String namespace;
+
     /**
      * 连接Nacos服务器
      * @param config Nacos连接配置
@@ -30,6 +43,7 @@ public class NacosService {
         properties.setProperty("password", config.getPassword());
 
         namingService = NacosFactory.createNamingService(properties);
+        namespace = config.getNamespace();
         LOGGER.info("Nacos连接成功: {}", config.getServerAddr());
     }
 
@@ -46,14 +60,77 @@ public class NacosService {
         return namingService.getAllInstances(serviceName, groupName);
     }
 
+    /**
+     * 获取健康的服务实例列表
+     * @param serviceName 服务名称
+     * @param groupName 分组名称
+     * @return 健康且已启用的服务实例列表
+     */
+    public List<Instance> getHealthyInstances(String serviceName, String groupName) throws Exception {
+        if (namingService == null) {
+            throw new IllegalStateException("Nacos未连接");
+        }
+        return namingService.selectInstances(serviceName, groupName, true);
+    }
+
+    /**
+     * 订阅服务实例变化
+     * @param serviceName 服务名称
+     * @param groupName 分组名称
+     * @param listener 实例变化监听器，回调中携带服务的全量实例
+     */
+    public void subscribe(String serviceName, String groupName, EventListener listener) throws Exception {
+        if (namingService == null) {
+            throw new IllegalStateException("Nacos未连接");
+        }
+        namingService.subscribe(serviceName, groupName, listener);
+    }
+
+    /**
+     * 取消订阅服务实例变化
+     * @param serviceName 服务名称
+     * @param groupName 分组名称
+     * @param listener 订阅时使用的监听器
+     */
+    public void unsubscribe(String serviceName, String groupName, EventListener listener) {
+        if (namingService == null) {
+            return;
+        }
+        try {
+            namingService.unsubscribe(serviceName, groupName, listener);
+        } catch (Exception e) {
+            LOGGER.warn("取消订阅服务失败: {}, {}", serviceName, e.getMessage());
+        }
+    }
+
     /**
      * 获取服务列表
+     * 按页拉取，避免服务数量很多时单次请求过大
      */
     public List<String> getServiceList(String groupName) throws Exception {
         if (namingService == null) {
             throw new IllegalStateException("Nacos未连接");
         }
-        return namingService.getServicesOfServer(1, Integer.MAX_VALUE, groupName).getData();
+        List<String> services = new ArrayList<>();
+        for (int pageNo = 1; ; pageNo++) {
+            ListView<String> page = namingService.getServicesOfServer(pageNo, SERVICE_PAGE_SIZE, groupName);
+            List<String> data = page.getData();
+            if (data == null || data.isEmpty()) {
+                break;
+            }
+            services.addAll(data);
+            if (data.size() < SERVICE_PAGE_SIZE || services.size() >= page.getCount()) {
+                break;
+            }
+        }
+        return services;
+    }
+
+    /**
+     * 获取当前连接的命名空间
+     */
+    public String getNamespace() {
+        return namespace;
     }
 
     /**
@@ -0,0 +1,286 @@
+package com.zjhy.love.worktools.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Nacos服务目录
+ * 按 命名空间|分组 缓存服务列表并建立搜索索引。缓存过期后调用方可先通过 {@link #peek} 展示旧数据，
+ * {@link #load} 在后台刷新完成时给出新数据，打开服务选择对话框时无需等待网络请求
+ */
+public class ServiceCatalog {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ServiceCatalog.class);
+
+    private final NacosService nacosService;
+
+    private final long ttlMillis;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "nacos-catalog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * @param nacosService Nacos服务
+     * @param ttlMillis    缓存有效期（毫秒）
+     */
+    public ServiceCatalog(NacosService nacosService, long ttlMillis) {
+        this.nacosService = nacosService;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * 获取已缓存的服务索引，不触发加载
+     *
+     * @param groupName 分组名称
+     * @return 服务索引，尚未加载时返回null
+     */
+    public Index peek(String groupName) {
+        Entry entry = entries.get(cacheKey(groupName));
+        return entry == null ? null : entry.index;
+    }
+
+    /**
+     * 加载服务索引
+     * 缓存有效时直接返回；缓存过期时在后台刷新，刷新完成后返回新数据，刷新失败时退回旧数据；没有缓存时异步拉取
+     *
+     * @param groupName 分组名称
+     * @return 服务索引
+     */
+    public CompletableFuture<Index> load(String groupName) {
+        String key = cacheKey(groupName);
+        Entry entry = entries.get(key);
+        if (entry != null && entry.index != null) {
+            if (System.currentTimeMillis() - entry.loadedAt <= ttlMillis) {
+                return CompletableFuture.completedFuture(entry.index);
+            }
+            Index stale = entry.index;
+            return refresh(key, groupName).exceptionally(e -> {
+                LOGGER.warn("刷新服务目录失败，继续使用旧数据: {}, {}", key, e.getMessage());
+                return stale;
+            });
+        }
+        return refresh(key, groupName);
+    }
+
+    /**
+     * 清空缓存，切换Nacos连接时调用
+     */
+    public void invalidate() {
+        entries.clear();
+    }
+
+    private synchronized CompletableFuture<Index> refresh(String key, String groupName) {
+        Entry entry = entries.get(key);
+        // 同一分组同时只有一个加载请求
+        if (entry != null && entry.loading != null) {
+            return entry.loading;
+        }
+        CompletableFuture<Index> loading = CompletableFuture.supplyAsync(() -> {
+            try {
+                long start = System.currentTimeMillis();
+                Index index = new Index(nacosService.getServiceList(groupName));
+                LOGGER.info("加载服务目录: {}, 共{}个服务, 耗时{}ms", key, index.size(), System.currentTimeMillis() - start);
+                return index;
+            } catch (Exception e) {
+                throw new IllegalStateException("获取服务列表失败: " + e.getMessage(), e);
+            }
+        }, executor);
+        Entry pending = entry == null ? new Entry(null, 0) : entry;
+        pending.loading = loading;
+        entries.put(key, pending);
+        loading.whenComplete((index, e) -> {
+            synchronized (this) {
+                if (e == null) {
+                    entries.put(key, new Entry(index, System.currentTimeMillis()));
+                } else if (pending.index == null) {
+                    entries.remove(key, pending);
+                } else {
+                    pending.loading = null;
+                }
+            }
+        });
+        return loading;
+    }
+
+    private String cacheKey(String groupName) {
+        return Objects.requireNonNullElse(nacosService.getNamespace(), "") + "|" + groupName;
+    }
+
+    private static final class Entry {
+        private final Index index;
+        private final long loadedAt;
+        private CompletableFuture<Index> loading;
+
+        private Entry(Index index, long loadedAt) {
+            this.index = index;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    /**
+     * 服务名称索引
+     * 以1至3个字符的子串建立倒排表，查询不超过3个字符时直接命中，较长的查询取各三元组倒排表的交集后再校验；
+     * 以查询串开头的名称排在前面
+     */
+    public static final class Index {
+
+        private static final int GRAM = 3;
+
+        /**
+         * 按小写名称排序后的服务名称
+         */
+        private final String[] names;
+
+        private final String[] lowerNames;
+
+        private final Map<String, int[]> postings;
+
+        Index(List<String> services) {
+            String[] sorted = services.stream().distinct().toArray(String[]::new);
+            Arrays.sort(sorted, String.CASE_INSENSITIVE_ORDER);
+            this.names = sorted;
+            this.lowerNames = new String[sorted.length];
+            Map<String, List<Integer>> builder = new HashMap<>();
+            for (int i = 0; i < sorted.length; i++) {
+                String lower = sorted[i].toLowerCase(Locale.ROOT);
+                lowerNames[i] = lower;
+                for (int n = 1; n <= GRAM; n++) {
+                    for (int start = 0; start + n <= lower.length(); start++) {
+                        List<Integer> list = builder.computeIfAbsent(lower.substring(start, start + n), k -> new ArrayList<>());
+                        // 同一名称内重复出现的子串只记录一次
+                        if (list.isEmpty() || list.get(list.size() - 1) != i) {
+                            list.add(i);
+                        }
+                    }
+                }
+            }
+            this.postings = new HashMap<>(builder.size() * 2);
+            builder.forEach((gram, list) -> postings.put(gram, list.stream().mapToInt(Integer::intValue).toArray()));
+        }
+
+        /**
+         * 服务数量
+         */
+        public int size() {
+            return names.length;
+        }
+
+        /**
+         * 全部服务名称
+         */
+        public List<String> all() {
+            return Collections.unmodifiableList(Arrays.asList(names));
+        }
+
+        /**
+         * 搜索包含查询串的服务名称，不区分大小写
+         *
+         * @param query 查询串
+         * @return 匹配的服务名称，前缀匹配在前
+         */
+        public List<String> search(String query) {
+            String lower = query == null ? "" : query.trim().toLowerCase(Locale.ROOT);
+            if (lower.isEmpty()) {
+                return all();
+            }
+            int[] candidates;
+            if (lower.length() <= GRAM) {
+                candidates = postings.getOrDefault(lower, new int[0]);
+            } else {
+                candidates = intersectTrigrams(lower);
+            }
+            List<String> prefixed = new ArrayList<>();
+            List<String> others = new ArrayList<>();
+            for (int i : candidates) {
+                String name = lowerNames[i];
+                if (name.startsWith(lower)) {
+                    prefixed.add(names[i]);
+                } else if (lower.length() <= GRAM || name.contains(lower)) {
+                    others.add(names[i]);
+                }
+            }
+            prefixed.addAll(others);
+            return prefixed;
+        }
+
+        /**
+         * 在上一次的结果上继续过滤
+         * 新查询串包含上一次的查询串时，结果必然是上一次结果的子集，无需再查索引
+         *
+         * @param previousQuery   上一次的查询串
+         * @param previousResults 上一次的结果
+         * @param query           新查询串
+         * @return 匹配的服务名称
+         */
+        public List<String> refine(String previousQuery, List<String> previousResults, String query) {
+            String lower = query == null ? "" : query.trim().toLowerCase(Locale.ROOT);
+            String previous = previousQuery == null ? "" : previousQuery.trim().toLowerCase(Locale.ROOT);
+            if (previous.isEmpty() || previousResults == null || !lower.contains(previous)) {
+                return search(query);
+            }
+            List<String> prefixed = new ArrayList<>();
+            List<String> others = new ArrayList<>();
+            for (String name : previousResults) {
+                String lowerName = name.toLowerCase(Locale.ROOT);
+                if (lowerName.startsWith(lower)) {
+                    prefixed.add(name);
+                } else if (lowerName.contains(lower)) {
+                    others.add(name);
+                }
+            }
+            prefixed.addAll(others);
+            return prefixed;
+        }
+
+        private int[] intersectTrigrams(String lower) {
+            int[] result = null;
+            for (int start = 0; start + GRAM <= lower.length(); start++) {
+                int[] list = postings.get(lower.substring(start, start + GRAM));
+                if (list == null) {
+                    return new int[0];
+                }
+                result = result == null ? list : intersect(result, list);
+                if (result.length == 0) {
+                    break;
+                }
+            }
+            return result;
+        }
+
+        private static int[] intersect(int[] a, int[] b) {
+            int[] out = new int[Math.min(a.length, b.length)];
+            int i = 0;
+            int j = 0;
+            int k = 0;
+            while (i < a.length && j < b.length) {
+                if (a[i] == b[j]) {
+                    out[k++] = a[i];
+                    i++;
+                    j++;
+                } else if (a[i] < b[j]) {
+                    i++;
+                } else {
+                    j++;
+                }
+            }
+            return Arrays.copyOf(out, k);
+        }
+    }
+}
@@ -2,18 +2,143 @@ package com.zjhy.love.worktools.service;
 
 import com.jcraft.jsch.JSch;
 import com.jcraft.jsch.Session;
+import com.zjhy.love.worktools.common.util.RetryPolicy;
+import com.zjhy.love.worktools.common.util.RetryUtil;
+import com.zjhy.love.worktools.service.metrics.MetricsRegistry;
+import com.zjhy.love.worktools.service.tunnel.PortAllocator;
+import com.zjhy.love.worktools.service.tunnel.TunnelEngine;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 /**
  * SSH服务类
  * 处理SSH连接和端口转发功能
+ * 与跳板机之间维持一组会话，本地监听与数据转发由 {@link TunnelEngine} 以固定数量的线程完成，
+ * 每个新连接在通道数最少的会话上打开通道。
+ * 会话由JSch按保活间隔向服务器发送保活消息，连续无响应时自行断开；后台监督线程发现会话断开后按指数退避加随机抖动重建，
+ * 转发的本地监听不受影响，会话恢复后新连接即可正常转发
  */
 public class SshService {
     private static final Logger LOGGER = LoggerFactory.getLogger(SshService.class);
-    private Session session;
+
+    /**
+     * 默认会话数
+     */
+    public static final int DEFAULT_POOL_SIZE = 2;
+
+    /**
+     * 默认保活间隔（秒）
+     */
+    public static final int DEFAULT_KEEP_ALIVE_SECONDS = 15;
+
+    /**
+     * 默认保活最大无响应次数
+     */
+    public static final int DEFAULT_KEEP_ALIVE_COUNT_MAX = 3;
+
+    /**
+     * 会话状态检查间隔（毫秒），只读取本地状态，不产生网络请求
+     */
+    private static final long SUPERVISE_INTERVAL_MILLIS = 1000;
+
+    /**
+     * 重连退避的初始与最大间隔（毫秒）
+     */
+    private static final long RECONNECT_BASE_MILLIS = 1000;
+
+    private static final long RECONNECT_MAX_MILLIS = 60000;
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 30000;
+
+    /**
+     * 隧道引擎的选择器线程数
+     */
+    private static final int TUNNEL_SELECTOR_THREADS = 2;
+
+    private final List<PooledSession> sessions = new ArrayList<>();
+
+    private String host;
+
+    private int port;
+
+    private String username;
+
+    private String password;
+
+    private int keepAliveSeconds = DEFAULT_KEEP_ALIVE_SECONDS;
+
+    private int keepAliveCountMax = DEFAULT_KEEP_ALIVE_COUNT_MAX;
+
+    /**
+     * 连接监督线程，负责建立连接和检查会话状态
+     */
+    private final ScheduledExecutorService supervisor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ssh-supervisor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private ScheduledFuture<?> superviseTask;
+
+    /**
+     * 连接代次，每次断开递增，用于丢弃过期的连接和重连结果
+     */
+    private int generation;
+
+    /**
+     * 上一次通知的连接状态
+     */
+    private boolean lastConnected;
+
+    /**
+     * 连接状态变化回调，在监督线程上执行
+     */
+    private volatile Consumer<Boolean> connectionListener = connected -> {
+    };
+
+    private TunnelEngine tunnelEngine;
+
+    /**
+     * 各转发的流量指标，跨重连保留
+     */
+    private final MetricsRegistry forwardMetrics = new MetricsRegistry();
+
+    /**
+     * 本地监听端口的租用情况，转发删除或连接断开时归还
+     */
+    private final PortAllocator portAllocator = new PortAllocator();
+
+    /**
+     * 设置保活参数，下次建立会话时生效
+     *
+     * @param intervalSeconds 保活间隔（秒）
+     * @param countMax        连续无响应多少次后断开
+     */
+    public synchronized void setKeepAlive(int intervalSeconds, int countMax) {
+        this.keepAliveSeconds = intervalSeconds > 0 ? intervalSeconds : DEFAULT_KEEP_ALIVE_SECONDS;
+        this.keepAliveCountMax = countMax > 0 ? countMax : DEFAULT_KEEP_ALIVE_COUNT_MAX;
+    }
+
+    /**
+     * 设置连接状态变化回调
+     * 全部会话断开或任一会话恢复时调用，参数表示当前是否有可用会话
+     */
+    public void setConnectionListener(Consumer<Boolean> connectionListener) {
+        this.connectionListener = connectionListener;
+    }
 
     /**
      * 连接SSH服务器
@@ -24,50 +149,329 @@ public class SshService {
      * @throws Exception 连接异常
      */
     public void connect(String host, int port, String username, String password) throws Exception {
-        JSch jsch = new JSch();
-        session = jsch.getSession(username, host, port);
-        session.setPassword(password);
+        connect(host, port, username, password, DEFAULT_POOL_SIZE);
+    }
 
-        Properties config = new Properties();
-        config.put("StrictHostKeyChecking", "no");
-        session.setConfig(config);
+    /**
+     * 在监督线程上连接SSH服务器，不阻塞调用线程
+     * @param host SSH服务器地址
+     * @param port SSH服务器端口
+     * @param username 用户名
+     * @param password 密码
+     * @param poolSize 会话数
+     * @return 连接完成的结果
+     */
+    public CompletableFuture<Void> connectAsync(String host, int port, String username, String password, int poolSize) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                connect(host, port, username, password, poolSize);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, supervisor);
+    }
 
-        session.connect(30000);
-        LOGGER.info("SSH连接成功: {}@{}", username, host);
+    /**
+     * 连接SSH服务器并建立会话池
+     * 建立会话较慢，在锁外进行，期间查询连接状态不会被阻塞
+     * @param host SSH服务器地址
+     * @param port SSH服务器端口
+     * @param username 用户名
+     * @param password 密码
+     * @param poolSize 会话数
+     * @throws Exception 连接异常，任一会话建立失败时已建立的会话会被关闭
+     */
+    public void connect(String host, int port, String username, String password, int poolSize) throws Exception {
+        int connectGeneration;
+        synchronized (this) {
+            disconnect();
+            this.host = host;
+            this.port = port;
+            this.username = username;
+            this.password = password;
+            connectGeneration = generation;
+        }
+        List<PooledSession> opened = new ArrayList<>();
+        TunnelEngine engine;
+        try {
+            for (int i = 0; i < Math.max(1, poolSize); i++) {
+                opened.add(new PooledSession(i, openSession()));
+            }
+            engine = new TunnelEngine(new PoolSessionProvider(), TUNNEL_SELECTOR_THREADS, forwardMetrics);
+        } catch (Exception e) {
+            opened.forEach(pooled -> pooled.session.disconnect());
+            throw e;
+        }
+        synchronized (this) {
+            if (connectGeneration != generation) {
+                // 连接期间已被断开
+                engine.close();
+                opened.forEach(pooled -> pooled.session.disconnect());
+                throw new IllegalStateException("连接已取消");
+            }
+            sessions.addAll(opened);
+            tunnelEngine = engine;
+            superviseTask = supervisor.scheduleWithFixedDelay(this::superviseSessions,
+                    SUPERVISE_INTERVAL_MILLIS, SUPERVISE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        LOGGER.info("SSH连接成功: {}@{}, 会话数: {}", username, host, opened.size());
+        notifyConnectionState();
     }
 
     /**
      * 添加端口转发规则
+     * 本地监听由隧道引擎承担，每个连接在当前通道数最少的会话上打开通道；
+     * 绑定监听在服务锁外进行，多个转发可并行建立
      * @param localHost 本地监听地址
-     * @param localPort 本地监听端口
+     * @param localPort 本地监听端口，0表示由端口分配器分配，绑定即租用
      * @param remoteHost 远程目标地址
      * @param remotePort 远程目标端口
+     * @return 实际监听的本地端口
      * @throws Exception 转发异常
      */
-    public void addPortForwarding(String localHost, int localPort, String remoteHost, int remotePort) throws Exception {
-        if (session == null || !session.isConnected()) {
+    public int addPortForwarding(String localHost, int localPort, String remoteHost, int remotePort) throws Exception {
+        TunnelEngine engine;
+        synchronized (this) {
+            engine = tunnelEngine;
+        }
+        if (engine == null) {
             throw new IllegalStateException("SSH未连接");
         }
-        session.setPortForwardingL(localHost, localPort, remoteHost, remotePort);
-        LOGGER.info("添加端口转发: {}:{} -> {}:{}", localHost, localPort, remoteHost, remotePort);
+        int boundPort;
+        if (localPort == 0) {
+            boundPort = portAllocator.allocate(port -> engine.addForward(localHost, port, remoteHost, remotePort));
+        } else {
+            boundPort = engine.addForward(localHost, localPort, remoteHost, remotePort);
+            portAllocator.reserve(boundPort);
+        }
+        synchronized (this) {
+            if (tunnelEngine != engine) {
+                // 绑定期间连接已断开或重建，撤销本次监听
+                engine.removeForward(localHost, boundPort);
+                portAllocator.release(boundPort);
+                throw new IllegalStateException("SSH连接已断开");
+            }
+        }
+        LOGGER.info("添加端口转发: {}:{} -> {}:{}", localHost, boundPort, remoteHost, remotePort);
+        return boundPort;
+    }
+
+    /**
+     * 删除端口转发规则
+     * @param localHost 本地监听地址
+     * @param localPort 本地监听端口
+     */
+    public synchronized void removePortForwarding(String localHost, int localPort) {
+        if (tunnelEngine != null) {
+            tunnelEngine.removeForward(localHost, localPort);
+            portAllocator.release(localPort);
+            LOGGER.info("删除端口转发: {}:{}", localHost, localPort);
+        }
     }
 
     /**
      * 断开SSH连接
+     * 同时取消监督任务和尚未执行的重连
      */
     public void disconnect() {
-        if (session != null && session.isConnected()) {
-            session.disconnect();
+        boolean connected;
+        synchronized (this) {
+            generation++;
+            if (superviseTask != null) {
+                superviseTask.cancel(false);
+                superviseTask = null;
+            }
+            if (tunnelEngine != null) {
+                tunnelEngine.close();
+                tunnelEngine = null;
+            }
+            portAllocator.releaseAll();
+            connected = isConnected();
+            sessions.forEach(pooled -> pooled.session.disconnect());
+            sessions.clear();
+        }
+        if (connected) {
             LOGGER.info("SSH连接已断开");
         }
+        notifyConnectionState();
     }
 
     /**
      * 检查SSH连接状态
      *
-     * @return 是否已连接
+     * @return 是否有可用会话
+     */
+    public synchronized boolean isConnected() {
+        return sessions.stream().anyMatch(pooled -> pooled.session.isConnected());
+    }
+
+    /**
+     * 获取各会话承载的通道数
+     *
+     * @return 按会话序号排列的活动通道数，已断开的会话为-1
+     */
+    public synchronized List<Integer> getSessionLoads() {
+        List<Integer> loads = new ArrayList<>();
+        sessions.forEach(pooled -> loads.add(pooled.session.isConnected() ? pooled.channels.get() : -1));
+        return loads;
+    }
+
+    /**
+     * 获取端口转发的流量指标
+     *
+     * @return 以 本地地址:端口 为名称的指标注册表
+     */
+    public MetricsRegistry getForwardMetrics() {
+        return forwardMetrics;
+    }
+
+    private Session openSession() throws Exception {
+        String sessionHost;
+        int sessionPort;
+        String sessionUser;
+        String sessionPassword;
+        int aliveSeconds;
+        int aliveCountMax;
+        synchronized (this) {
+            sessionHost = host;
+            sessionPort = port;
+            sessionUser = username;
+            sessionPassword = password;
+            aliveSeconds = keepAliveSeconds;
+            aliveCountMax = keepAliveCountMax;
+        }
+        JSch jsch = new JSch();
+        Session session = jsch.getSession(sessionUser, sessionHost, sessionPort);
+        session.setPassword(sessionPassword);
+
+        Properties config = new Properties();
+        config.put("StrictHostKeyChecking", "no");
+        session.setConfig(config);
+        // 由会话读线程在空闲时发送保活消息，连续无响应达到上限后断开会话
+        session.setServerAliveInterval((int) TimeUnit.SECONDS.toMillis(aliveSeconds));
+        session.setServerAliveCountMax(aliveCountMax);
+
+        session.connect(CONNECT_TIMEOUT_MILLIS);
+        return session;
+    }
+
+    /**
+     * 检查会话状态，为新断开的会话安排重连
+     */
+    private void superviseSessions() {
+        synchronized (this) {
+            for (PooledSession pooled : sessions) {
+                if (!pooled.session.isConnected() && !pooled.reconnecting) {
+                    LOGGER.warn("SSH会话{}已断开, 准备重连", pooled.index);
+                    pooled.reconnecting = true;
+                    pooled.session.disconnect();
+                    scheduleReconnect(pooled, generation);
+                }
+            }
+        }
+        notifyConnectionState();
+    }
+
+    /**
+     * 由重试引擎按指数退避加随机抖动重建会话，直到成功或连接被断开，等待期间不占用线程，调用时需持有本对象的锁
+     */
+    private void scheduleReconnect(PooledSession pooled, int reconnectGeneration) {
+        RetryPolicy policy = RetryPolicy.exponential(RECONNECT_BASE_MILLIS, RECONNECT_MAX_MILLIS)
+                .retryOn(e -> isCurrentGeneration(reconnectGeneration));
+        RetryUtil.retryAsync("SSH会话" + pooled.index, () -> {
+            if (!isCurrentGeneration(reconnectGeneration)) {
+                throw new IllegalStateException("连接已断开");
+            }
+            return openSession();
+        }, policy).whenComplete((fresh, e) -> onReconnected(pooled, reconnectGeneration, fresh));
+    }
+
+    /**
+     * 替换重建的会话，连接已被断开时丢弃
+     */
+    private void onReconnected(PooledSession pooled, int reconnectGeneration, Session fresh) {
+        if (fresh == null) {
+            return;
+        }
+        synchronized (this) {
+            if (reconnectGeneration != generation) {
+                fresh.disconnect();
+                return;
+            }
+            pooled.session = fresh;
+            pooled.channels.set(0);
+            pooled.reconnecting = false;
+        }
+        LOGGER.info("SSH会话{}已重建", pooled.index);
+        notifyConnectionState();
+    }
+
+    private synchronized boolean isCurrentGeneration(int expected) {
+        return expected == generation;
+    }
+
+    /**
+     * 连接状态变化时通知回调
+     */
+    private void notifyConnectionState() {
+        boolean connected;
+        synchronized (this) {
+            connected = isConnected();
+            if (connected == lastConnected) {
+                return;
+            }
+            lastConnected = connected;
+        }
+        try {
+            connectionListener.accept(connected);
+        } catch (RuntimeException e) {
+            LOGGER.error("连接状态回调异常", e);
+        }
+    }
+
+    /**
+     * 从会话池为隧道引擎分配会话
+     */
+    private final class PoolSessionProvider implements TunnelEngine.SessionProvider {
+
+        @Override
+        public Session acquire() {
+            synchronized (SshService.this) {
+                PooledSession target = sessions.stream()
+                        .filter(pooled -> pooled.session.isConnected())
+                        .min(Comparator.comparingInt(pooled -> pooled.channels.get()))
+                        .orElseThrow(() -> new IllegalStateException("SSH未连接"));
+                target.channels.incrementAndGet();
+                return target.session;
+            }
+        }
+
+        @Override
+        public void release(Session session) {
+            synchronized (SshService.this) {
+                // 会话已被替换时计数已清零，无需处理
+                for (PooledSession pooled : sessions) {
+                    if (pooled.session == session) {
+                        pooled.channels.decrementAndGet();
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 会话池中的会话
      */
-    public boolean isConnected() {
-        return session != null && session.isConnected();
+    private static final class PooledSession {
+        private final int index;
+        private final AtomicInteger channels = new AtomicInteger();
+        private Session session;
+        private boolean reconnecting;
+
+        private PooledSession(int index, Session session) {
+            this.index = index;
+            this.session = session;
+        }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,183 @@
+package com.zjhy.love.worktools.service.daemon;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zjhy.love.worktools.Startup;
+import com.zjhy.love.worktools.model.DaemonStatus;
+import com.zjhy.love.worktools.model.TrafficStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 后台服务客户端
+ * 通过 daemon.json 找到本机运行中的后台服务并调用其控制接口，界面借此接管或查看托管的转发
+ */
+public class DaemonClient {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DaemonClient.class);
+
+    /**
+     * 查询类请求的超时时间
+     */
+    private static final Duration QUERY_TIMEOUT = Duration.ofSeconds(3);
+
+    /**
+     * 启动类请求的超时时间，需覆盖建立连接与转发的耗时
+     */
+    private static final Duration START_TIMEOUT = Duration.ofMinutes(2);
+
+    /**
+     * 拉起后台服务后等待其就绪的时间（毫秒）
+     */
+    private static final long LAUNCH_WAIT_MILLIS = 15000;
+
+    private static final long LAUNCH_POLL_MILLIS = 200;
+
+    private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(QUERY_TIMEOUT).build();
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final String baseUrl;
+
+    private final String token;
+
+    private DaemonClient(int port, String token) {
+        this.baseUrl = "http://127.0.0.1:" + port;
+        this.token = token;
+    }
+
+    /**
+     * 查找本机运行中的后台服务
+     *
+     * @return 客户端，没有运行中的后台服务时返回null
+     */
+    public static DaemonClient discover() {
+        if (!Files.exists(DaemonServer.DAEMON_FILE)) {
+            return null;
+        }
+        try {
+            JsonNode info = new ObjectMapper().readTree(DaemonServer.DAEMON_FILE.toFile());
+            DaemonClient client = new DaemonClient(info.path("port").asInt(), info.path("token").asText());
+            client.getStatus();
+            return client;
+        } catch (Exception e) {
+            // 进程已退出但文件残留
+            LOGGER.debug("后台服务不可用: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 以当前程序的类路径启动后台服务进程，等待控制接口就绪
+     *
+     * @return 客户端
+     * @throws IOException 启动失败或等待超时
+     */
+    public static DaemonClient launch() throws IOException {
+        DaemonClient existing = discover();
+        if (existing != null) {
+            return existing;
+        }
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        File log = DaemonServer.DAEMON_FILE.resolveSibling("daemon.log").toFile();
+        // 由界面拉起时不自动转发，界面随后通过 /reload 启动
+        new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), Startup.class.getName(),
+                Startup.DAEMON_ARG, TunnelDaemon.NO_AUTOSTART_ARG)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.appendTo(log))
+                .start();
+        long deadline = System.currentTimeMillis() + LAUNCH_WAIT_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            DaemonClient client = discover();
+            if (client != null) {
+                LOGGER.info("后台服务已启动");
+                return client;
+            }
+            try {
+                Thread.sleep(LAUNCH_POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("等待后台服务启动被中断", e);
+            }
+        }
+        throw new IOException("后台服务启动超时，日志: " + log);
+    }
+
+    public DaemonStatus getStatus() throws IOException {
+        return mapper.readValue(send("GET", "/status", QUERY_TIMEOUT), DaemonStatus.class);
+    }
+
+    /**
+     * 获取指标，forwards 为端口转发，routes 为代理路由
+     */
+    public Map<String, List<TrafficStats>> getMetrics() throws IOException {
+        return mapper.readValue(send("GET", "/metrics", QUERY_TIMEOUT),
+                new TypeReference<Map<String, List<TrafficStats>>>() {
+                });
+    }
+
+    /**
+     * 按后台服务已加载的配置启动转发
+     */
+    public DaemonStatus start() throws IOException {
+        return mapper.readValue(send("POST", "/start", START_TIMEOUT), DaemonStatus.class);
+    }
+
+    /**
+     * 重新读取配置文件并重启转发
+     */
+    public DaemonStatus reload() throws IOException {
+        return mapper.readValue(send("POST", "/reload", START_TIMEOUT), DaemonStatus.class);
+    }
+
+    /**
+     * 停止全部转发，后台服务继续运行
+     */
+    public DaemonStatus stop() throws IOException {
+        return mapper.readValue(send("POST", "/stop", START_TIMEOUT), DaemonStatus.class);
+    }
+
+    /**
+     * 停止转发并退出后台服务
+     */
+    public void shutdown() throws IOException {
+        send("POST", "/shutdown", QUERY_TIMEOUT);
+    }
+
+    private String send(String method, String path, Duration timeout) throws IOException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(timeout)
+                .header(DaemonServer.TOKEN_HEADER, token)
+                .method(method, HttpRequest.BodyPublishers.noBody())
+                .build();
+        HttpResponse<String> response;
+        try {
+            response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("请求后台服务被中断", e);
+        }
+        if (response.statusCode() != 200) {
+            String message = response.body();
+            try {
+                message = mapper.readTree(message).path("error").asText(message);
+            } catch (IOException ignored) {
+                // 非JSON响应，直接使用原文
+            }
+            throw new IOException("后台服务返回错误: " + message);
+        }
+        return response.body();
+    }
+}
@@ -0,0 +1,254 @@
+package com.zjhy.love.worktools.service.daemon;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.AclEntry;
+import java.nio.file.attribute.AclEntryPermission;
+import java.nio.file.attribute.AclEntryType;
+import java.nio.file.attribute.AclFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.EnumSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 后台服务控制接口
+ * 只监听回环地址，启动后将端口与访问令牌写入用户目录下的 daemon.json，请求需携带该令牌。
+ * 接口：GET /status、GET /metrics、POST /start、POST /stop、POST /reload、POST /shutdown
+ */
+public class DaemonServer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DaemonServer.class);
+
+    /**
+     * 记录端口与令牌的文件
+     */
+    static final Path DAEMON_FILE = Paths.get(System.getProperty("user.home"), ".work-tools", "daemon.json");
+
+    /**
+     * 令牌请求头
+     */
+    static final String TOKEN_HEADER = "X-Daemon-Token";
+
+    private static final int HANDLER_THREADS = 4;
+
+    /**
+     * 启动转发所用的配置来源
+     */
+    public interface ConfigSource {
+        /**
+         * 读取最新的配置并启动运行时
+         *
+         * @param runtime 转发运行时
+         * @param reload  是否重新读取配置文件
+         */
+        void start(ForwardRuntime runtime, boolean reload) throws Exception;
+    }
+
+    private final ForwardRuntime runtime;
+
+    private final ConfigSource configSource;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final String token;
+
+    private HttpServer server;
+
+    private ExecutorService executor;
+
+    /**
+     * 收到关闭请求后的回调
+     */
+    private volatile Runnable onShutdown = () -> {
+    };
+
+    public DaemonServer(ForwardRuntime runtime, ConfigSource configSource) {
+        this.runtime = runtime;
+        this.configSource = configSource;
+        byte[] bytes = new byte[16];
+        new SecureRandom().nextBytes(bytes);
+        this.token = HexFormat.of().formatHex(bytes);
+    }
+
+    public void setOnShutdown(Runnable onShutdown) {
+        this.onShutdown = onShutdown;
+    }
+
+    /**
+     * 启动控制接口
+     *
+     * @param port 监听端口，0表示由系统分配
+     * @return 实际监听的端口
+     * @throws IOException 监听或写入 daemon.json 失败
+     */
+    public int start(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(HANDLER_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "daemon-control-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/status", exchange -> handle(exchange, "GET", () -> runtime.getStatus()));
+        server.createContext("/metrics", exchange -> handle(exchange, "GET", runtime::getMetrics));
+        server.createContext("/start", exchange -> handle(exchange, "POST", () -> {
+            configSource.start(runtime, false);
+            return runtime.getStatus();
+        }));
+        server.createContext("/reload", exchange -> handle(exchange, "POST", () -> {
+            configSource.start(runtime, true);
+            return runtime.getStatus();
+        }));
+        server.createContext("/stop", exchange -> handle(exchange, "POST", () -> {
+            runtime.stop();
+            return runtime.getStatus();
+        }));
+        server.createContext("/shutdown", exchange -> handle(exchange, "POST", () -> {
+            // 先返回响应再退出
+            Thread thread = new Thread(() -> onShutdown.run(), "daemon-shutdown");
+            thread.start();
+            return Map.of("state", "shutting_down");
+        }));
+        server.start();
+        int boundPort = server.getAddress().getPort();
+
+        Map<String, Object> info = new LinkedHashMap<>();
+        info.put("pid", ProcessHandle.current().pid());
+        info.put("port", boundPort);
+        info.put("token", token);
+        writePrivateFile(DAEMON_FILE, mapper.writeValueAsBytes(info));
+        LOGGER.info("后台服务控制接口已启动: 127.0.0.1:{}", boundPort);
+        return boundPort;
+    }
+
+    /**
+     * 写入只有当前用户可读写的文件
+     * 先以受限权限创建同目录下的临时文件再写入内容，最后原子替换目标文件，令牌任何时刻都不会以宽松权限落盘
+     *
+     * @param target 目标文件
+     * @param bytes  文件内容
+     * @throws IOException 写入失败，或文件系统不支持限制权限
+     */
+    static void writePrivateFile(Path target, byte[] bytes) throws IOException {
+        Path dir = target.getParent();
+        Files.createDirectories(dir);
+        Path temp;
+        if (dir.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            temp = Files.createTempFile(dir, target.getFileName().toString(), ".tmp",
+                    PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } else {
+            temp = Files.createTempFile(dir, target.getFileName().toString(), ".tmp");
+        }
+        try {
+            restrictToOwner(temp);
+            Files.write(temp, bytes);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    /**
+     * 非POSIX文件系统（Windows）上将ACL替换为只允许文件所有者访问
+     */
+    private static void restrictToOwner(Path file) throws IOException {
+        if (Files.getFileAttributeView(file, PosixFileAttributeView.class) != null) {
+            return;
+        }
+        AclFileAttributeView aclView = Files.getFileAttributeView(file, AclFileAttributeView.class);
+        if (aclView == null) {
+            throw new IOException("文件系统不支持限制文件权限: " + file);
+        }
+        AclEntry ownerOnly = AclEntry.newBuilder()
+                .setType(AclEntryType.ALLOW)
+                .setPrincipal(aclView.getOwner())
+                .setPermissions(EnumSet.allOf(AclEntryPermission.class))
+                .build();
+        aclView.setAcl(List.of(ownerOnly));
+    }
+
+    /**
+     * 停止控制接口并删除 daemon.json
+     */
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        try {
+            Files.deleteIfExists(DAEMON_FILE);
+        } catch (IOException e) {
+            LOGGER.warn("删除后台服务信息失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 请求处理
+     */
+    private interface Action {
+        Object run() throws Exception;
+    }
+
+    private void handle(HttpExchange exchange, String method, Action action) throws IOException {
+        try (exchange) {
+            if (!isValidToken(exchange.getRequestHeaders().getFirst(TOKEN_HEADER))) {
+                respond(exchange, 403, Map.of("error", "令牌无效"));
+                return;
+            }
+            if (!method.equals(exchange.getRequestMethod())) {
+                respond(exchange, 405, Map.of("error", "仅支持" + method));
+                return;
+            }
+            try {
+                respond(exchange, 200, action.run());
+            } catch (Exception e) {
+                LOGGER.error("处理控制请求失败: {}", exchange.getRequestURI(), e);
+                respond(exchange, 500, Map.of("error", String.valueOf(e.getMessage())));
+            }
+        }
+    }
+
+    /**
+     * 以与内容无关的耗时比较令牌
+     */
+    private boolean isValidToken(String candidate) {
+        return candidate != null && MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8),
+                candidate.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void respond(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = mapper.writeValueAsString(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
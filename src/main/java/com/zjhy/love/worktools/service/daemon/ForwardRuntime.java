@@ -0,0 +1,233 @@
+package com.zjhy.love.worktools.service.daemon;
+
+import com.zjhy.love.worktools.model.DaemonStatus;
+import com.zjhy.love.worktools.model.ForwardEntry;
+import com.zjhy.love.worktools.model.HttpProxyConfig;
+import com.zjhy.love.worktools.model.IpForwardConfig;
+import com.zjhy.love.worktools.model.NacosConfig;
+import com.zjhy.love.worktools.model.ProxyListenerConfig;
+import com.zjhy.love.worktools.model.TrafficStats;
+import com.zjhy.love.worktools.service.ForwardOrchestrator;
+import com.zjhy.love.worktools.service.HttpProxyService;
+import com.zjhy.love.worktools.service.NacosForwardService;
+import com.zjhy.love.worktools.service.NacosService;
+import com.zjhy.love.worktools.service.SshService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletionException;
+
+/**
+ * 转发运行时
+ * 不依赖界面，按SSH配置与Nacos配置启动端口转发、HTTP代理和服务转发，供后台服务使用。
+ * 启动与停止互斥执行，状态与指标查询不会被正在进行的启动阻塞
+ */
+public class ForwardRuntime {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ForwardRuntime.class);
+
+    public static final String STATE_STOPPED = "stopped";
+
+    public static final String STATE_STARTING = "starting";
+
+    public static final String STATE_RUNNING = "running";
+
+    public static final String STATE_FAILED = "failed";
+
+    private final Object lifecycleLock = new Object();
+
+    private final SshService sshService = new SshService();
+
+    private final NacosService nacosService = new NacosService();
+
+    private final ForwardOrchestrator forwardOrchestrator = new ForwardOrchestrator(ForwardOrchestrator.DEFAULT_PARALLELISM);
+
+    private volatile HttpProxyService httpProxyService;
+
+    private volatile NacosForwardService nacosForwardService;
+
+    private volatile String state = STATE_STOPPED;
+
+    private volatile String lastError;
+
+    private volatile long startedAt;
+
+    private volatile String sshHost;
+
+    private volatile int forwardCount;
+
+    private volatile String nacosServerAddr;
+
+    private volatile List<String> services = List.of();
+
+    private volatile int proxyPort;
+
+    /**
+     * 按配置启动全部转发，已在运行时先停止
+     *
+     * @param sshConfig   SSH配置，未配置主机时不建立SSH连接
+     * @param nacosConfig Nacos配置，未配置地址或服务时不启动服务转发
+     * @throws Exception 启动失败，已启动的部分会被关闭
+     */
+    public void start(IpForwardConfig sshConfig, NacosConfig nacosConfig) throws Exception {
+        synchronized (lifecycleLock) {
+            teardown();
+            state = STATE_STARTING;
+            lastError = null;
+            startedAt = System.currentTimeMillis();
+            try {
+                if (sshConfig != null && !isBlank(sshConfig.getHost())) {
+                    startSsh(sshConfig);
+                }
+                if (nacosConfig != null && !isBlank(nacosConfig.getServerAddr())
+                        && !nacosConfig.getServiceNames().isEmpty()) {
+                    startNacos(nacosConfig);
+                }
+                state = STATE_RUNNING;
+                LOGGER.info("转发运行时已启动, 端口转发{}个, 服务转发{}个", forwardCount, services.size());
+            } catch (Exception e) {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                LOGGER.error("转发运行时启动失败", cause);
+                teardown();
+                state = STATE_FAILED;
+                lastError = cause.getMessage();
+                throw cause instanceof Exception ? (Exception) cause : e;
+            }
+        }
+    }
+
+    /**
+     * 停止全部转发
+     */
+    public void stop() {
+        synchronized (lifecycleLock) {
+            teardown();
+            state = STATE_STOPPED;
+            LOGGER.info("转发运行时已停止");
+        }
+    }
+
+    /**
+     * 停止全部转发并释放线程，之后不能再启动
+     */
+    public void shutdown() {
+        stop();
+        forwardOrchestrator.shutdown();
+    }
+
+    /**
+     * 当前状态
+     */
+    public DaemonStatus getStatus() {
+        DaemonStatus status = new DaemonStatus();
+        status.setState(state);
+        status.setPid(ProcessHandle.current().pid());
+        status.setStartedAt(startedAt);
+        status.setSshHost(sshHost);
+        status.setSshConnected(sshService.isConnected());
+        status.setSessionLoads(sshService.getSessionLoads());
+        status.setForwardCount(forwardCount);
+        status.setNacosServerAddr(nacosServerAddr);
+        status.setServices(new ArrayList<>(services));
+        status.setProxyPort(proxyPort);
+        status.setLastError(lastError);
+        return status;
+    }
+
+    /**
+     * 当前指标，forwards 为端口转发，routes 为代理路由
+     */
+    public Map<String, List<TrafficStats>> getMetrics() {
+        Map<String, List<TrafficStats>> metrics = new LinkedHashMap<>();
+        metrics.put("forwards", sshService.getForwardMetrics().snapshot());
+        HttpProxyService proxy = httpProxyService;
+        metrics.put("routes", proxy == null ? List.of() : proxy.getRouteMetrics().snapshot());
+        return metrics;
+    }
+
+    private void startSsh(IpForwardConfig config) throws Exception {
+        sshHost = config.getHost();
+        sshService.setKeepAlive(config.getKeepAliveSeconds(), config.getKeepAliveCountMax());
+        sshService.connect(config.getHost(), config.getPort(), config.getUsername(), config.getPassword(),
+                config.getSessionPoolSize() > 0 ? config.getSessionPoolSize() : SshService.DEFAULT_POOL_SIZE);
+        List<ForwardEntry> entries = config.getForwardEntries();
+        forwardOrchestrator.startAll(entries,
+                entry -> sshService.addPortForwarding(entry.getLocalHost(), entry.getLocalPort(),
+                        entry.getRemoteHost(), entry.getRemotePort()),
+                entry -> sshService.removePortForwarding(entry.getLocalHost(), entry.getLocalPort()),
+                null).join();
+        forwardCount = entries.size();
+    }
+
+    private void startNacos(NacosConfig config) throws Exception {
+        if (!sshService.isConnected()) {
+            throw new IllegalStateException("服务转发需要先建立SSH连接");
+        }
+        nacosServerAddr = config.getServerAddr();
+        nacosService.connect(config);
+        HttpProxyConfig proxyConfig = Objects.requireNonNullElseGet(config.getProxyConfig(), HttpProxyConfig::new);
+        HttpProxyService proxy = new HttpProxyService(proxyConfig);
+        for (ProxyListenerConfig listener : proxyConfig.getListeners()) {
+            proxy.addListener(listener.getName(), listener.getBindAddress(), listener.getPort());
+        }
+        httpProxyService = proxy;
+        proxy.start(proxyConfig.getPort());
+        proxyPort = proxyConfig.getPort();
+        NacosForwardService forwardService = new NacosForwardService(nacosService, sshService, proxy, config,
+                serviceName -> getListenerName(proxyConfig, serviceName));
+        nacosForwardService = forwardService;
+        List<String> serviceNames = new ArrayList<>(config.getServiceNames());
+        // 其他失败向上抛出，由启动流程记录错误并整体关闭
+        forwardOrchestrator.startAll(serviceNames, serviceName -> {
+            try {
+                forwardService.forward(serviceName);
+            } catch (NacosForwardService.NoInstanceException e) {
+                // 服务暂无可用实例时跳过，不影响其他服务
+                LOGGER.warn("服务 {} 未转发: {}", serviceName, e.getMessage());
+            }
+        }, forwardService::release, null).join();
+        services = serviceNames;
+    }
+
+    /**
+     * 关闭已启动的部分，调用时需持有生命周期锁
+     */
+    private void teardown() {
+        if (nacosForwardService != null) {
+            nacosForwardService.close();
+            nacosForwardService = null;
+        }
+        if (httpProxyService != null) {
+            httpProxyService.shutdown();
+            httpProxyService = null;
+        }
+        if (nacosServerAddr != null) {
+            nacosService.shutdown();
+        }
+        sshService.disconnect();
+        sshHost = null;
+        forwardCount = 0;
+        nacosServerAddr = null;
+        services = List.of();
+        proxyPort = 0;
+    }
+
+    /**
+     * 获取服务所属的代理监听器，未单独配置的服务使用默认监听器
+     */
+    private static String getListenerName(HttpProxyConfig proxyConfig, String serviceName) {
+        return proxyConfig.getListeners().stream()
+                .filter(listener -> listener.getServiceNames().contains(serviceName))
+                .map(ProxyListenerConfig::getName)
+                .findFirst()
+                .orElse(HttpProxyService.DEFAULT_LISTENER);
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+}
@@ -0,0 +1,70 @@
+package com.zjhy.love.worktools.service.daemon;
+
+import com.zjhy.love.worktools.common.util.HistoryUtil;
+import com.zjhy.love.worktools.model.IpForwardConfig;
+import com.zjhy.love.worktools.model.NacosConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * 后台服务入口
+ * 不启动界面，读取界面保存的SSH与Nacos配置（history.json 中的 ipForward 与 nacos）启动转发，
+ * 并在回环地址上提供控制接口；界面关闭后转发继续运行
+ */
+public class TunnelDaemon {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TunnelDaemon.class);
+
+    /**
+     * 启动后不立即转发，由界面移交时通过 /reload 启动
+     */
+    public static final String NO_AUTOSTART_ARG = "--no-autostart";
+
+    private TunnelDaemon() {
+    }
+
+    /**
+     * @param args 支持 --control-port=端口 指定控制接口端口（默认由系统分配），--no-autostart 启动后不立即转发
+     */
+    public static void main(String[] args) throws Exception {
+        int controlPort = 0;
+        boolean autostart = true;
+        for (String arg : args) {
+            if (arg.startsWith("--control-port=")) {
+                controlPort = Integer.parseInt(arg.substring("--control-port=".length()));
+            } else if (NO_AUTOSTART_ARG.equals(arg)) {
+                autostart = false;
+            }
+        }
+
+        ForwardRuntime runtime = new ForwardRuntime();
+        DaemonServer server = new DaemonServer(runtime, TunnelDaemon::startFromHistory);
+        CountDownLatch stopped = new CountDownLatch(1);
+        server.setOnShutdown(stopped::countDown);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            runtime.shutdown();
+        }, "daemon-shutdown-hook"));
+        server.start(controlPort);
+
+        if (autostart) {
+            try {
+                startFromHistory(runtime, false);
+            } catch (Exception e) {
+                // 失败原因记录在状态中，可修改配置后通过 /reload 重试
+                LOGGER.error("按保存的配置启动转发失败: {}", e.getMessage());
+            }
+        }
+        stopped.await();
+        System.exit(0);
+    }
+
+    private static void startFromHistory(ForwardRuntime runtime, boolean reload) throws Exception {
+        if (reload) {
+            HistoryUtil.reloadHistory();
+        }
+        runtime.start(HistoryUtil.getHistory("ipForward", IpForwardConfig.class),
+                HistoryUtil.getHistory("nacos", NacosConfig.class));
+    }
+}
@@ -0,0 +1,64 @@
+package com.zjhy.love.worktools.service.metrics;
+
+import com.zjhy.love.worktools.model.TrafficStats;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * 指标注册表
+ * 按名称维护一组流量指标，端口转发以 本地地址:端口 为名称，代理路由以路由目标为名称
+ */
+public class MetricsRegistry {
+
+    private final Map<String, TrafficMetrics> metrics = new ConcurrentHashMap<>();
+
+    /**
+     * 获取指标，不存在时创建
+     *
+     * @param name 名称
+     * @return 流量指标
+     */
+    public TrafficMetrics get(String name) {
+        return metrics.computeIfAbsent(name, TrafficMetrics::new);
+    }
+
+    /**
+     * 查找指标
+     *
+     * @param name 名称
+     * @return 流量指标，不存在时返回null
+     */
+    public TrafficMetrics find(String name) {
+        return metrics.get(name);
+    }
+
+    /**
+     * 移除指标
+     *
+     * @param name 名称
+     */
+    public void remove(String name) {
+        metrics.remove(name);
+    }
+
+    /**
+     * 清空全部指标
+     */
+    public void clear() {
+        metrics.clear();
+    }
+
+    /**
+     * 全部指标的快照，按名称排序
+     */
+    public List<TrafficStats> snapshot() {
+        return metrics.values().stream()
+                .map(TrafficMetrics::snapshot)
+                .sorted(Comparator.comparing(TrafficStats::getName))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,113 @@
+package com.zjhy.love.worktools.service.metrics;
+
+import com.zjhy.love.worktools.model.TrafficStats;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 流量指标
+ * 一条端口转发或一个代理路由目标的计数器，所有计数均为 LongAdder，转发线程记录时无锁竞争。
+ * 端口转发：入为远端到本地，出为本地到远端，建连耗时为打开SSH通道的耗时，时长为连接存活时间；
+ * 代理路由：入为请求字节，出为响应字节，建连耗时为收到上游响应头的耗时，时长为完整请求耗时
+ */
+public class TrafficMetrics {
+
+    private final String name;
+
+    private final LongAdder activeConnections = new LongAdder();
+
+    private final LongAdder totalConnections = new LongAdder();
+
+    private final LongAdder bytesIn = new LongAdder();
+
+    private final LongAdder bytesOut = new LongAdder();
+
+    private final LongAdder errors = new LongAdder();
+
+    private final LatencyHistogram connectLatency = new LatencyHistogram();
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    public TrafficMetrics(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 记录新连接或新请求
+     */
+    public void connectionOpened() {
+        activeConnections.increment();
+        totalConnections.increment();
+    }
+
+    /**
+     * 记录连接或请求结束
+     *
+     * @param durationNanos 持续时间（纳秒）
+     */
+    public void connectionClosed(long durationNanos) {
+        activeConnections.decrement();
+        latency.record(durationNanos);
+    }
+
+    public void addBytesIn(long bytes) {
+        bytesIn.add(bytes);
+    }
+
+    public void addBytesOut(long bytes) {
+        bytesOut.add(bytes);
+    }
+
+    public void recordConnect(long nanos) {
+        connectLatency.record(nanos);
+    }
+
+    public void recordError() {
+        errors.increment();
+    }
+
+    public long getActiveConnections() {
+        return activeConnections.sum();
+    }
+
+    public long getBytesIn() {
+        return bytesIn.sum();
+    }
+
+    public long getBytesOut() {
+        return bytesOut.sum();
+    }
+
+    public LatencyHistogram getConnectLatency() {
+        return connectLatency;
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * 生成当前指标快照，用于展示和导出
+     */
+    public TrafficStats snapshot() {
+        TrafficStats stats = new TrafficStats();
+        stats.setName(name);
+        stats.setActiveConnections(activeConnections.sum());
+        stats.setTotalConnections(totalConnections.sum());
+        stats.setBytesIn(bytesIn.sum());
+        stats.setBytesOut(bytesOut.sum());
+        stats.setErrors(errors.sum());
+        stats.setConnectP50Millis(connectLatency.getPercentileMillis(0.5));
+        stats.setConnectP99Millis(connectLatency.getPercentileMillis(0.99));
+        stats.setLatencyMeanMillis(latency.getMeanMillis());
+        stats.setLatencyP50Millis(latency.getPercentileMillis(0.5));
+        stats.setLatencyP90Millis(latency.getPercentileMillis(0.9));
+        stats.setLatencyP99Millis(latency.getPercentileMillis(0.99));
+        stats.setLatencyMaxMillis(latency.getMaxMillis());
+        return stats;
+    }
+}
@@ -0,0 +1,360 @@
+package com.zjhy.love.worktools.service.proxy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 代理访问日志管道
+ * 请求结束时每个请求只生成一条访问事件，放入无锁环形缓冲区后立即返回；由后台线程批量格式化并写入按大小滚动的日志文件。
+ * 缓冲区写满时丢弃新事件并计数，不阻塞请求线程。支持按比例采样，5xx 与未完成的请求始终记录
+ */
+public class AccessLogPipeline {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AccessLogPipeline.class);
+
+    /**
+     * 缓冲区为空时写线程的休眠时长
+     */
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    /**
+     * 关闭时等待写线程写完剩余事件的时长（毫秒）
+     */
+    private static final long CLOSE_WAIT_MILLIS = 2000;
+
+    private static final DateTimeFormatter TIME_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+    /**
+     * 一次请求的访问事件
+     */
+    static final class Event {
+        final long timestamp;
+        final String method;
+        final String host;
+        final String uri;
+        final String query;
+        final String route;
+        final String target;
+        final int status;
+        final long bytesIn;
+        final long bytesOut;
+        final long latencyNanos;
+
+        Event(long timestamp, String method, String host, String uri, String query, String route, String target,
+              int status, long bytesIn, long bytesOut, long latencyNanos) {
+            this.timestamp = timestamp;
+            this.method = method;
+            this.host = host;
+            this.uri = uri;
+            this.query = query;
+            this.route = route;
+            this.target = target;
+            this.status = status;
+            this.bytesIn = bytesIn;
+            this.bytesOut = bytesOut;
+            this.latencyNanos = latencyNanos;
+        }
+    }
+
+    private final Path file;
+
+    private final double sampleRate;
+
+    private final long maxFileBytes;
+
+    private final int maxFiles;
+
+    private final AtomicReferenceArray<Event> ring;
+
+    private final int mask;
+
+    /**
+     * 下一个待写入的槽位序号，由请求线程竞争推进
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * 下一个待读取的槽位序号，只由写线程推进
+     */
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * 因缓冲区已满被丢弃、尚未写入日志提示的事件数
+     */
+    private final LongAdder dropped = new LongAdder();
+
+    private volatile boolean running;
+
+    private Thread writerThread;
+
+    private BufferedWriter writer;
+
+    private long fileSize;
+
+    /**
+     * @param file         日志文件
+     * @param bufferSize   环形缓冲区容量，向上取整为2的幂
+     * @param sampleRate   采样比例，取值 0~1
+     * @param maxFileBytes 单个日志文件的最大字节数，超过后滚动
+     * @param maxFiles     保留的日志文件数，含当前文件
+     */
+    public AccessLogPipeline(Path file, int bufferSize, double sampleRate, long maxFileBytes, int maxFiles) {
+        this.file = file;
+        this.sampleRate = Math.max(0, Math.min(1, sampleRate));
+        this.maxFileBytes = maxFileBytes;
+        this.maxFiles = Math.max(1, maxFiles);
+        int capacity = Integer.highestOneBit(Math.max(2, bufferSize) - 1) << 1;
+        this.ring = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * 启动后台写线程
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        writerThread = new Thread(this::drainLoop, "proxy-access-log");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * 只接收事件、不启动写线程，事件由调用方通过 {@link #drainNow()} 写出，供测试使用
+     */
+    synchronized void startPaused() {
+        running = true;
+    }
+
+    /**
+     * 在当前线程写出已发布的事件，只能在未启动写线程时调用
+     *
+     * @return 写出的事件数
+     */
+    int drainNow() {
+        int written = drain(new StringBuilder(256));
+        flush();
+        return written;
+    }
+
+    /**
+     * 缓冲区容量
+     */
+    int capacity() {
+        return ring.length();
+    }
+
+    /**
+     * 记录一次请求，未被采样或缓冲区已满时直接返回
+     *
+     * @return 是否进入缓冲区
+     */
+    public boolean offer(String method, String host, String uri, String query, String route, String target,
+                         int status, long bytesIn, long bytesOut, long latencyNanos) {
+        if (!running) {
+            return false;
+        }
+        boolean alwaysLog = status == 0 || status >= 500;
+        if (!alwaysLog && sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return false;
+        }
+        long sequence;
+        do {
+            sequence = tail.get();
+            if (sequence - head.get() >= ring.length()) {
+                dropped.increment();
+                return false;
+            }
+        } while (!tail.compareAndSet(sequence, sequence + 1));
+        ring.lazySet((int) (sequence & mask), new Event(System.currentTimeMillis(), method, host, uri, query,
+                route, target, status, bytesIn, bytesOut, latencyNanos));
+        return true;
+    }
+
+    /**
+     * 停止写线程，写完缓冲区中剩余的事件后关闭文件
+     */
+    public void close() {
+        Thread thread;
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            running = false;
+            thread = writerThread;
+            writerThread = null;
+        }
+        if (thread == null) {
+            closeWriter();
+            return;
+        }
+        LockSupport.unpark(thread);
+        try {
+            thread.join(CLOSE_WAIT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drainLoop() {
+        StringBuilder line = new StringBuilder(256);
+        try {
+            while (running || head.get() != tail.get()) {
+                int written = drain(line);
+                if (written == 0) {
+                    flush();
+                    if (running) {
+                        LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                    } else if (head.get() != tail.get()) {
+                        // 槽位已被占用但事件尚未发布
+                        Thread.onSpinWait();
+                    }
+                }
+            }
+        } finally {
+            closeWriter();
+        }
+    }
+
+    /**
+     * 写出当前已发布的全部事件
+     *
+     * @return 写出的事件数
+     */
+    private int drain(StringBuilder line) {
+        int count = 0;
+        long sequence = head.get();
+        while (sequence != tail.get()) {
+            int index = (int) (sequence & mask);
+            Event event = ring.get(index);
+            if (event == null) {
+                break;
+            }
+            ring.lazySet(index, null);
+            head.lazySet(++sequence);
+            write(format(event, line));
+            count++;
+        }
+        long droppedCount = dropped.sumThenReset();
+        if (droppedCount > 0) {
+            line.setLength(0);
+            write(line.append(TIME_FORMAT.format(Instant.now())).append(" 访问日志缓冲区已满，丢弃")
+                    .append(droppedCount).append("条").append('\n'));
+        }
+        return count;
+    }
+
+    private StringBuilder format(Event event, StringBuilder line) {
+        line.setLength(0);
+        line.append(TIME_FORMAT.format(Instant.ofEpochMilli(event.timestamp))).append(' ')
+                .append(event.method).append(' ')
+                .append(event.host).append(event.uri);
+        if (event.query != null) {
+            line.append('?').append(event.query);
+        }
+        line.append(' ').append(event.route)
+                .append(' ').append(event.target)
+                .append(' ').append(event.status)
+                .append(' ').append(event.bytesIn)
+                .append(' ').append(event.bytesOut)
+                .append(' ').append(TimeUnit.NANOSECONDS.toMicros(event.latencyNanos) / 1000.0).append("ms")
+                .append('\n');
+        return line;
+    }
+
+    private void write(CharSequence line) {
+        try {
+            if (writer != null && fileSize > 0 && fileSize + line.length() > maxFileBytes) {
+                closeWriter();
+                rotate();
+            }
+            if (writer == null) {
+                open();
+            }
+            writer.append(line);
+            fileSize += line.length();
+        } catch (IOException e) {
+            LOGGER.warn("写入访问日志失败: {}", e.getMessage());
+            closeWriter();
+        }
+    }
+
+    /**
+     * 以追加方式打开日志文件，已有文件超过大小上限时先滚动
+     */
+    private void open() throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        if (Files.exists(file) && Files.size(file) >= maxFileBytes) {
+            rotate();
+        }
+        fileSize = Files.exists(file) ? Files.size(file) : 0;
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * 将当前文件依次重命名为 .1、.2 …，超出保留数量的最旧文件被删除
+     */
+    private void rotate() throws IOException {
+        Files.deleteIfExists(rotated(maxFiles - 1));
+        for (int i = maxFiles - 2; i >= 1; i--) {
+            Path source = rotated(i);
+            if (Files.exists(source)) {
+                Files.move(source, rotated(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        if (maxFiles > 1) {
+            Files.move(file, rotated(1), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private Path rotated(int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+
+    private void flush() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            LOGGER.warn("写入访问日志失败: {}", e.getMessage());
+            closeWriter();
+        }
+    }
+
+    private void closeWriter() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            LOGGER.debug("关闭访问日志失败: {}", e.getMessage());
+        }
+        writer = null;
+    }
+}
@@ -0,0 +1,193 @@
+package com.zjhy.love.worktools.service.proxy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * 异步代理交换
+ * 基于 AsyncContext 与 Servlet 非阻塞 I/O 完成一次转发：请求体由 ReadListener 推给上游，响应体由 WriteListener 写回客户端，
+ * 整个过程不占用容器线程
+ */
+public class AsyncProxyExchange implements AsyncListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncProxyExchange.class);
+
+    private final HttpServletRequest req;
+
+    private final HttpServletResponse resp;
+
+    private final AsyncContext asyncContext;
+
+    private final AtomicBoolean finished = new AtomicBoolean();
+
+    /**
+     * 交换结束回调，参数表示上游是否正常响应
+     */
+    private final Consumer<Boolean> onFinish;
+
+    private volatile int upstreamStatus;
+
+    private ServletBodySubscriber bodySubscriber;
+
+    private CompletableFuture<HttpResponse<Void>> upstreamFuture;
+
+    private AsyncProxyExchange(HttpServletRequest req, HttpServletResponse resp, long timeoutMillis,
+                               Consumer<Boolean> onFinish) {
+        this.req = req;
+        this.resp = resp;
+        this.onFinish = onFinish;
+        this.asyncContext = req.startAsync(req, resp);
+        this.asyncContext.setTimeout(timeoutMillis);
+        this.asyncContext.addListener(this);
+    }
+
+    /**
+     * 以异步方式转发请求
+     *
+     * @param req           客户端请求
+     * @param resp          客户端响应
+     * @param url           上游地址
+     * @param client        异步上游客户端
+     * @param timeoutMillis 超时时间，0表示不超时
+     * @param forwarded     是否追加 X-Forwarded-* 请求头
+     * @param onFinish      交换结束回调，参数表示上游是否正常响应
+     */
+    public static void start(HttpServletRequest req, HttpServletResponse resp, String url,
+                             AsyncUpstreamClient client, long timeoutMillis, boolean forwarded,
+                             Consumer<Boolean> onFinish) throws IOException {
+        new AsyncProxyExchange(req, resp, timeoutMillis, onFinish).execute(url, client, forwarded);
+    }
+
+    private void execute(String url, AsyncUpstreamClient client, boolean forwarded) throws IOException {
+        String method = req.getMethod();
+        HttpRequest.BodyPublisher publisher = HttpRequest.BodyPublishers.noBody();
+        if (req.getContentLengthLong() > 0 || req.getHeader("Transfer-Encoding") != null) {
+            ServletInputStream in = req.getInputStream();
+            ServletBodyPublisher bodyPublisher = new ServletBodyPublisher(in, req.getContentLengthLong());
+            in.setReadListener(bodyPublisher);
+            publisher = bodyPublisher;
+        }
+
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url)).method(method, publisher);
+        ProxyHeaders.copyRequestHeaders(req, forwarded, builder::header);
+
+        ServletOutputStream out = resp.getOutputStream();
+        bodySubscriber = new ServletBodySubscriber(out, this);
+        out.setWriteListener(bodySubscriber);
+
+        boolean head = "HEAD".equals(method);
+        upstreamFuture = client.send(builder.build(), responseInfo -> {
+            writeResponseHead(responseInfo, head);
+            return bodySubscriber;
+        });
+        upstreamFuture.whenComplete((response, e) -> {
+            if (e != null) {
+                fail(e);
+            }
+        });
+    }
+
+    private void writeResponseHead(HttpResponse.ResponseInfo responseInfo, boolean head) {
+        RouteMetricsValve.markResponseHead(req);
+        upstreamStatus = responseInfo.statusCode();
+        resp.setStatus(upstreamStatus);
+        Set<String> connectionTokens = ProxyHeaders.connectionTokens(responseInfo.headers().allValues("connection"));
+        for (Map.Entry<String, List<String>> entry : responseInfo.headers().map().entrySet()) {
+            String name = entry.getKey();
+            // 长度由容器按实际写出的响应体维护，HEAD 响应没有响应体，需保留上游声明的长度
+            if (name.startsWith(":") || ProxyHeaders.isHopByHop(name, connectionTokens)
+                    || (!head && "content-length".equalsIgnoreCase(name))) {
+                continue;
+            }
+            entry.getValue().forEach(value -> resp.addHeader(name, value));
+        }
+        if (!head) {
+            responseInfo.headers().firstValueAsLong("content-length").ifPresent(resp::setContentLengthLong);
+        }
+    }
+
+    /**
+     * 正常结束交换
+     */
+    void complete() {
+        if (finished.compareAndSet(false, true)) {
+            onFinish.accept(upstreamStatus < HttpServletResponse.SC_BAD_GATEWAY
+                    || upstreamStatus > HttpServletResponse.SC_GATEWAY_TIMEOUT);
+            asyncContext.complete();
+        }
+    }
+
+    /**
+     * 异常结束交换，响应尚未提交时返回502
+     */
+    void fail(Throwable e) {
+        if (!finished.compareAndSet(false, true)) {
+            return;
+        }
+        LOGGER.warn("异步转发失败: {} {}, {}", req.getMethod(), req.getRequestURI(), e.getMessage());
+        onFinish.accept(false);
+        if (upstreamFuture != null) {
+            upstreamFuture.cancel(true);
+        }
+        if (bodySubscriber != null) {
+            bodySubscriber.cancel();
+        }
+        if (!resp.isCommitted()) {
+            resp.reset();
+            resp.setStatus(HttpServletResponse.SC_BAD_GATEWAY);
+        }
+        asyncContext.complete();
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+        // 正常结束无需处理
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+        if (!finished.compareAndSet(false, true)) {
+            return;
+        }
+        LOGGER.warn("异步转发超时: {} {}", req.getMethod(), req.getRequestURI());
+        onFinish.accept(false);
+        if (upstreamFuture != null) {
+            upstreamFuture.cancel(true);
+        }
+        if (bodySubscriber != null) {
+            bodySubscriber.cancel();
+        }
+        if (!resp.isCommitted()) {
+            resp.setStatus(HttpServletResponse.SC_GATEWAY_TIMEOUT);
+        }
+        asyncContext.complete();
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+        fail(event.getThrowable());
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+        // 不会重复开启异步
+    }
+}
@@ -0,0 +1,91 @@
+package com.zjhy.love.worktools.service.proxy;
+
+import com.zjhy.love.worktools.model.HttpProxyConfig;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 异步上游客户端
+ * 基于JDK非阻塞HttpClient，少量线程即可驱动大量并发中的上游请求
+ */
+public class AsyncUpstreamClient {
+
+    /**
+     * 允许JDK客户端设置受限请求头的系统属性
+     * 代理需要原样转发客户端的 Host 头，而该属性只在 java.net.http 首次初始化时读取一次，
+     * 必须在启动参数中指定（-Djdk.httpclient.allowRestrictedHeaders=host）或由 {@code Startup} 在任何HTTP客户端创建前设置
+     */
+    public static final String ALLOW_RESTRICTED_HEADERS = "jdk.httpclient.allowRestrictedHeaders";
+
+    private static final AtomicInteger THREAD_INDEX = new AtomicInteger();
+
+    private final ExecutorService executor;
+
+    private final HttpClient httpClient;
+
+    /**
+     * 等待上游响应头的超时，未配置时为null
+     */
+    private final Duration readTimeout;
+
+    public AsyncUpstreamClient(HttpProxyConfig config) {
+        if (!hostHeaderAllowed()) {
+            throw new IllegalStateException("异步模式需要在启动参数中指定 -D" + ALLOW_RESTRICTED_HEADERS + "=host");
+        }
+        executor = Executors.newFixedThreadPool(config.getAsyncThreads(), r -> {
+            Thread thread = new Thread(r, "proxy-async-" + THREAD_INDEX.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        httpClient = HttpClient.newBuilder()
+                .executor(executor)
+                // HTTP/2 时对明文上游先以 h2c 升级试探，不支持的上游继续使用 HTTP/1.1 连接
+                .version(config.isUpstreamHttp2() ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(Duration.ofMillis(config.getConnectTimeoutMillis()))
+                .build();
+        readTimeout = config.getReadTimeoutMillis() > 0 ? Duration.ofMillis(config.getReadTimeoutMillis()) : null;
+    }
+
+    /**
+     * 异步发送上游请求
+     *
+     * @param request     请求
+     * @param bodyHandler 响应体处理器
+     * @return 响应结果
+     */
+    public <T> CompletableFuture<HttpResponse<T>> send(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler) {
+        if (readTimeout != null && request.timeout().isEmpty()) {
+            request = HttpRequest.newBuilder(request, (name, value) -> true).timeout(readTimeout).build();
+        }
+        return httpClient.sendAsync(request, bodyHandler);
+    }
+
+    /**
+     * 检查 Host 头是否已被JDK客户端放行
+     * 属性设置得晚于 java.net.http 初始化时不会生效，以实际构造请求的结果为准
+     */
+    private static boolean hostHeaderAllowed() {
+        try {
+            HttpRequest.newBuilder(URI.create("http://localhost/")).header("Host", "localhost");
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 关闭客户端工作线程
+     */
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,142 @@
+package com.zjhy.love.worktools.service.proxy;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * 压缩协商
+ * 向上游请求压缩编码，使响应以压缩形式穿过隧道；客户端不接受该编码时在本地解压。
+ * 上游未压缩的响应原样转发：在本地压缩只作用于代理到客户端的本机连接，不减少隧道流量。
+ * 客户端自身接受 gzip 时原样转发其 Accept-Encoding，br 等本地无法解码的编码仅透传
+ */
+public class CompressionNegotiator {
+
+    /**
+     * 本地解码压缩流的缓冲大小
+     */
+    private static final int CODEC_BUFFER_SIZE = 8 * 1024;
+
+    /**
+     * 代客户端向上游声明的编码，均可在本地解码
+     */
+    private static final String UPSTREAM_ACCEPT_ENCODING = "gzip, deflate";
+
+    /**
+     * 对响应的处理方式
+     */
+    public enum Mode {
+        /**
+         * 原样转发
+         */
+        PASS,
+        /**
+         * 解压后转发
+         */
+        DECODE
+    }
+
+    /**
+     * 请求是否参与协商，HEAD 与范围请求不改变编码
+     */
+    public static boolean isNegotiable(HttpServletRequest req) {
+        return !"HEAD".equals(req.getMethod()) && req.getHeader("Range") == null;
+    }
+
+    /**
+     * 转发给上游的 Accept-Encoding
+     */
+    public String upstreamAcceptEncoding(HttpServletRequest req) {
+        String accept = req.getHeader("Accept-Encoding");
+        return accepts(accept, "gzip") ? accept : UPSTREAM_ACCEPT_ENCODING;
+    }
+
+    /**
+     * 决定响应的处理方式
+     *
+     * @param req             客户端请求
+     * @param status          上游状态码
+     * @param contentEncoding 上游的 Content-Encoding，未压缩时为null
+     * @param contentLength   上游响应体长度，未知时为-1
+     */
+    public Mode decide(HttpServletRequest req, int status, String contentEncoding, long contentLength) {
+        if (status < 200 || status == 204 || status == 304 || contentLength == 0 || contentEncoding == null) {
+            return Mode.PASS;
+        }
+        String encoding = contentEncoding.trim().toLowerCase(Locale.ROOT);
+        boolean decodable = "gzip".equals(encoding) || "x-gzip".equals(encoding) || "deflate".equals(encoding);
+        return decodable && !accepts(req.getHeader("Accept-Encoding"), encoding) ? Mode.DECODE : Mode.PASS;
+    }
+
+    /**
+     * 按处理方式改写响应头：解压时去掉 Content-Encoding；
+     * 解压后的响应体与上游不再逐字节一致，强 ETag 改为弱 ETag
+     *
+     * @param headers 不含 Content-Length 的响应头
+     * @param mode    处理方式
+     */
+    public static void rewriteHeaders(List<String[]> headers, Mode mode) {
+        if (mode == Mode.PASS) {
+            return;
+        }
+        headers.removeIf(header -> "Content-Encoding".equalsIgnoreCase(header[0]));
+        for (String[] header : headers) {
+            if ("ETag".equalsIgnoreCase(header[0]) && !header[1].startsWith("W/")) {
+                header[1] = "W/" + header[1];
+            }
+        }
+    }
+
+    /**
+     * 解码上游响应体
+     *
+     * @param body            上游响应体
+     * @param contentEncoding 上游的 Content-Encoding
+     */
+    public static InputStream decode(InputStream body, String contentEncoding) throws IOException {
+        if ("deflate".equalsIgnoreCase(contentEncoding.trim())) {
+            return new InflaterInputStream(body);
+        }
+        return new GZIPInputStream(body, CODEC_BUFFER_SIZE);
+    }
+
+    /**
+     * Accept-Encoding 是否接受指定编码，q=0 表示拒绝，x-gzip 与 gzip 等同
+     */
+    static boolean accepts(String acceptEncoding, String encoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        boolean wildcard = false;
+        for (String part : acceptEncoding.split(",")) {
+            String[] tokens = part.split(";");
+            String name = tokens[0].trim();
+            boolean rejected = false;
+            for (int i = 1; i < tokens.length; i++) {
+                String param = tokens[i].trim();
+                if (param.startsWith("q=") || param.startsWith("Q=")) {
+                    try {
+                        rejected = Double.parseDouble(param.substring(2)) <= 0;
+                    } catch (NumberFormatException e) {
+                        rejected = false;
+                    }
+                }
+            }
+            if (name.equalsIgnoreCase(encoding) || (isGzip(name) && isGzip(encoding))) {
+                return !rejected;
+            }
+            if ("*".equals(name)) {
+                wildcard = !rejected;
+            }
+        }
+        return wildcard;
+    }
+
+    private static boolean isGzip(String encoding) {
+        return "gzip".equalsIgnoreCase(encoding) || "x-gzip".equalsIgnoreCase(encoding);
+    }
+}
@@ -0,0 +1,85 @@
+package com.zjhy.love.worktools.service.proxy;
+
+import com.zjhy.love.worktools.model.HttpProxyConfig;
+import org.apache.catalina.connector.Connector;
+import org.apache.coyote.AbstractProtocol;
+import org.apache.coyote.ProtocolHandler;
+import org.apache.coyote.http2.Http2Protocol;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 连接器配置
+ * 将代理配置中的线程模型、连接参数与 HTTP/2 支持应用到 Tomcat 连接器
+ */
+public final class ConnectorProfile {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConnectorProfile.class);
+
+    private ConnectorProfile() {
+    }
+
+    /**
+     * 应用连接器配置
+     *
+     * @param connector 连接器
+     * @param config    代理配置
+     * @return 外部创建的工作线程池，由调用方在停止时关闭；使用容器内置线程池时返回null
+     */
+    public static ExecutorService apply(Connector connector, HttpProxyConfig config) {
+        ProtocolHandler handler = connector.getProtocolHandler();
+        if (!(handler instanceof AbstractProtocol)) {
+            LOGGER.warn("不支持的连接器协议，忽略连接器配置: {}", handler.getClass().getName());
+            return null;
+        }
+        AbstractProtocol<?> protocol = (AbstractProtocol<?>) handler;
+        protocol.setAcceptCount(config.getAcceptCount());
+        protocol.setKeepAliveTimeout(config.getKeepAliveTimeoutMillis());
+        protocol.setMaxConnections(config.getMaxConnections());
+        protocol.setMaxThreads(config.getMaxThreads());
+        protocol.setMinSpareThreads(config.getMinSpareThreads());
+        if (config.isHttp2Enabled()) {
+            connector.addUpgradeProtocol(newHttp2Protocol(config));
+        }
+
+        if (!HttpProxyConfig.EXECUTOR_VIRTUAL.equalsIgnoreCase(config.getExecutorType())) {
+            return null;
+        }
+        ExecutorService executor = newVirtualThreadExecutor();
+        if (executor != null) {
+            protocol.setExecutor(executor);
+            LOGGER.info("HTTP代理连接器使用虚拟线程执行请求");
+        }
+        return executor;
+    }
+
+    /**
+     * 创建 HTTP/2 明文协议
+     * 流在连接器的工作线程池中执行，并发流数与可并行执行的流数一致，避免同一连接上的请求在容器内排队
+     */
+    private static Http2Protocol newHttp2Protocol(HttpProxyConfig config) {
+        Http2Protocol http2 = new Http2Protocol();
+        http2.setMaxConcurrentStreams(config.getHttp2MaxConcurrentStreams());
+        http2.setMaxConcurrentStreamExecution(config.getHttp2MaxConcurrentStreams());
+        http2.setKeepAliveTimeout(config.getKeepAliveTimeoutMillis());
+        return http2;
+    }
+
+    /**
+     * 创建每任务一个虚拟线程的执行器
+     * 项目以JDK 17编译，通过反射调用以便在JDK 21及以上运行时启用
+     *
+     * @return 执行器，当前JDK不支持虚拟线程时返回null
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            LOGGER.warn("当前JDK不支持虚拟线程，回退为平台线程池: {}", System.getProperty("java.version"));
+            return null;
+        }
+    }
+}
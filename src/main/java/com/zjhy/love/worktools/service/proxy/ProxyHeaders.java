@@ -0,0 +1,179 @@
+package com.zjhy.love.worktools.service.proxy;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.BiConsumer;
+
+/**
+ * 代理请求头/响应头处理
+ * 逐跳头（Connection 及其列出的头、Keep-Alive、Transfer-Encoding 等）只作用于单个连接，转发时剔除；
+ * 其余头按原值逐个透传，多值头不合并。过滤集合预先构建、大小写不敏感，常规请求不产生额外分配
+ */
+public final class ProxyHeaders {
+
+    public static final String X_FORWARDED_FOR = "X-Forwarded-For";
+
+    public static final String X_FORWARDED_PROTO = "X-Forwarded-Proto";
+
+    public static final String X_FORWARDED_HOST = "X-Forwarded-Host";
+
+    static final String HTTP2 = "HTTP/2.0";
+
+    /**
+     * 逐跳头，见 RFC 7230 6.1
+     */
+    private static final Set<String> HOP_BY_HOP = caseInsensitiveSet(
+            "Connection", "Keep-Alive", "Proxy-Connection", "Proxy-Authenticate", "Proxy-Authorization",
+            "TE", "Trailer", "Transfer-Encoding", "Upgrade");
+
+    /**
+     * 请求中由客户端库或容器重新生成的头：长度由实际转发的请求体决定，100-continue 已由容器应答客户端
+     */
+    private static final Set<String> REQUEST_MANAGED = caseInsensitiveSet("Content-Length", "Expect");
+
+    /**
+     * 由代理重新计算的转发头
+     */
+    private static final Set<String> FORWARDED = caseInsensitiveSet(X_FORWARDED_FOR, X_FORWARDED_PROTO, X_FORWARDED_HOST);
+
+    private ProxyHeaders() {
+    }
+
+    /**
+     * 复制需转发给上游的请求头
+     *
+     * @param req       客户端请求
+     * @param forwarded 是否追加 X-Forwarded-* 头
+     * @param sink      接收头名称与单个值，多值头会被多次调用
+     */
+    public static void copyRequestHeaders(HttpServletRequest req, boolean forwarded, BiConsumer<String, String> sink) {
+        Set<String> connectionTokens = connectionTokens(req.getHeaders("Connection"));
+        Enumeration<String> headerNames = req.getHeaderNames();
+        while (headerNames.hasMoreElements()) {
+            String name = headerNames.nextElement();
+            if (isHopByHop(name, connectionTokens) || REQUEST_MANAGED.contains(name)
+                    || (forwarded && FORWARDED.contains(name))) {
+                continue;
+            }
+            Enumeration<String> values = req.getHeaders(name);
+            while (values.hasMoreElements()) {
+                sink.accept(name, values.nextElement());
+            }
+        }
+        if (req.getHeader("Host") == null) {
+            String authority = authority(req);
+            if (authority != null) {
+                sink.accept("Host", authority);
+            }
+        }
+        if (forwarded) {
+            addForwardedHeaders(req, sink);
+        }
+    }
+
+    /**
+     * 请求的目标主机
+     * HTTP/1.1 取 Host 头；HTTP/2 请求以 :authority 伪头代替 Host，容器将其解析为主机名与端口，据此还原
+     *
+     * @return host[:port]，无法确定时为null
+     */
+    public static String authority(HttpServletRequest req) {
+        String host = req.getHeader("Host");
+        if (host != null || !HTTP2.equals(req.getProtocol())) {
+            return host;
+        }
+        String name = req.getServerName();
+        if (name == null || name.isEmpty()) {
+            return null;
+        }
+        if (name.indexOf(':') >= 0 && !name.startsWith("[")) {
+            name = "[" + name + "]";
+        }
+        int port = req.getServerPort();
+        boolean defaultPort = port <= 0 || ("http".equals(req.getScheme()) && port == 80)
+                || ("https".equals(req.getScheme()) && port == 443);
+        return defaultPort ? name : name + ":" + port;
+    }
+
+    /**
+     * 是否为不能透传的逐跳头
+     *
+     * @param name             头名称
+     * @param connectionTokens 同一报文 Connection 头列出的名称，由 {@link #connectionTokens} 得到
+     */
+    public static boolean isHopByHop(String name, Set<String> connectionTokens) {
+        return HOP_BY_HOP.contains(name) || connectionTokens.contains(name);
+    }
+
+    /**
+     * 解析 Connection 头列出的名称，没有额外名称时返回共享的空集合
+     *
+     * @param values Connection 头的全部值
+     */
+    public static Set<String> connectionTokens(Enumeration<String> values) {
+        return values == null ? Collections.emptySet() : connectionTokens(values.asIterator());
+    }
+
+    /**
+     * 解析 Connection 头列出的名称，没有额外名称时返回共享的空集合
+     *
+     * @param values Connection 头的全部值
+     */
+    public static Set<String> connectionTokens(Iterable<String> values) {
+        return connectionTokens(values.iterator());
+    }
+
+    private static Set<String> connectionTokens(Iterator<String> iterator) {
+        Set<String> tokens = null;
+        while (iterator.hasNext()) {
+            for (String token : iterator.next().split(",")) {
+                token = token.trim();
+                // close 与 keep-alive 为连接选项而非头名称
+                if (token.isEmpty() || "close".equalsIgnoreCase(token) || "keep-alive".equalsIgnoreCase(token)) {
+                    continue;
+                }
+                if (tokens == null) {
+                    tokens = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+                }
+                tokens.add(token);
+            }
+        }
+        return tokens == null ? Collections.emptySet() : tokens;
+    }
+
+    /**
+     * 追加 X-Forwarded-For/Proto/Host，已有的 X-Forwarded-For 链保留并追加客户端地址，
+     * 已有的 Proto/Host 表示更前一级代理看到的原始值，原样保留
+     */
+    private static void addForwardedHeaders(HttpServletRequest req, BiConsumer<String, String> sink) {
+        Enumeration<String> priorFor = req.getHeaders(X_FORWARDED_FOR);
+        if (priorFor != null && priorFor.hasMoreElements()) {
+            StringBuilder chain = new StringBuilder(priorFor.nextElement());
+            while (priorFor.hasMoreElements()) {
+                chain.append(", ").append(priorFor.nextElement());
+            }
+            sink.accept(X_FORWARDED_FOR, chain.append(", ").append(req.getRemoteAddr()).toString());
+        } else {
+            sink.accept(X_FORWARDED_FOR, req.getRemoteAddr());
+        }
+        String proto = req.getHeader(X_FORWARDED_PROTO);
+        sink.accept(X_FORWARDED_PROTO, proto != null ? proto : req.getScheme());
+        String host = req.getHeader(X_FORWARDED_HOST);
+        if (host == null) {
+            host = authority(req);
+        }
+        if (host != null) {
+            sink.accept(X_FORWARDED_HOST, host);
+        }
+    }
+
+    private static Set<String> caseInsensitiveSet(String... names) {
+        Set<String> set = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        Collections.addAll(set, names);
+        return Collections.unmodifiableSet(set);
+    }
+}
@@ -0,0 +1,143 @@
+package com.zjhy.love.worktools.service.proxy;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * 代理监听器
+ * 对应一个监听地址与端口，持有独立的路由表
+ */
+public class ProxyListener {
+
+    private final String name;
+
+    private final String bindAddress;
+
+    private final int port;
+
+    /**
+     * 绑定地址解析结果，监听所有地址时为null
+     */
+    private final InetAddress bindInetAddress;
+
+    /**
+     * 路由表
+     * 存储域名规则到目标服务器的映射关系，修改时整体替换，请求线程读取时无需加锁
+     */
+    private volatile RouteTable<String> routes = RouteTable.empty();
+
+    /**
+     * @param name        监听器名称
+     * @param bindAddress 绑定地址，为空时监听所有地址
+     * @param port        监听端口
+     */
+    public ProxyListener(String name, String bindAddress, int port) {
+        this.name = name;
+        this.bindAddress = bindAddress;
+        this.port = port;
+        this.bindInetAddress = resolveBindAddress(bindAddress);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getBindAddress() {
+        return bindAddress;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * 是否接收发往指定本地地址和端口的连接
+     *
+     * @param localAddr 连接的本地地址
+     * @param localPort 连接的本地端口
+     */
+    public boolean accepts(String localAddr, int localPort) {
+        if (port != localPort) {
+            return false;
+        }
+        if (bindInetAddress == null) {
+            return true;
+        }
+        try {
+            // 本地地址为IP字面量，解析不会触发DNS查询；按地址比较以兼容主机名与IPv6缩写
+            return bindInetAddress.equals(InetAddress.getByName(localAddr));
+        } catch (UnknownHostException e) {
+            return false;
+        }
+    }
+
+    private static InetAddress resolveBindAddress(String bindAddress) {
+        if (bindAddress == null || bindAddress.isBlank()) {
+            return null;
+        }
+        try {
+            InetAddress address = InetAddress.getByName(bindAddress);
+            return address.isAnyLocalAddress() ? null : address;
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("无法解析监听地址: " + bindAddress, e);
+        }
+    }
+
+    /**
+     * 添加路由
+     *
+     * @param rule   路由规则，写法见 {@link RouteTable}
+     * @param target 目标地址
+     */
+    public synchronized void addRoute(String rule, String target) {
+        routes = routes.with(rule, target);
+    }
+
+    /**
+     * 删除路由
+     *
+     * @param rule 路由规则
+     */
+    public synchronized void removeRoute(String rule) {
+        routes = routes.without(rule);
+    }
+
+    /**
+     * 批量修改路由，整批只重新编译一次路由表
+     *
+     * @param put    增加或覆盖的路由
+     * @param remove 删除的路由规则
+     */
+    public synchronized void updateRoutes(Map<String, String> put, Collection<String> remove) {
+        routes = routes.update(put, remove);
+    }
+
+    /**
+     * 整体替换路由表
+     *
+     * @param rules 新的路由规则
+     */
+    public synchronized void replaceRoutes(Map<String, String> rules) {
+        routes = RouteTable.of(rules);
+    }
+
+    /**
+     * 查找路由
+     *
+     * @param host 请求的 Host 头
+     * @param path 请求路径
+     * @return 目标地址，未命中时返回null
+     */
+    public String resolve(String host, String path) {
+        return routes.lookup(host, path);
+    }
+
+    /**
+     * 获取全部路由规则
+     */
+    public Map<String, String> getRoutes() {
+        return routes.getRules();
+    }
+}
@@ -0,0 +1,104 @@
+package com.zjhy.love.worktools.service.proxy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.http.HttpUpgradeHandler;
+import javax.servlet.http.WebConnection;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 升级连接处理器
+ * 协议升级完成后，在客户端连接与上游连接之间双向搬运字节，任一方向结束即关闭两端
+ */
+public class RelayUpgradeHandler implements HttpUpgradeHandler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RelayUpgradeHandler.class);
+
+    private static final AtomicInteger THREAD_INDEX = new AtomicInteger();
+
+    /**
+     * 管道搬运线程池，升级连接为长连接，每个方向占用一个线程
+     */
+    private static final ExecutorService PUMP_EXECUTOR = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "proxy-upgrade-" + THREAD_INDEX.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private Socket upstream;
+
+    private InputStream upstreamIn;
+
+    private WebConnection connection;
+
+    /**
+     * 绑定已完成握手的上游连接
+     *
+     * @param upstream   上游套接字
+     * @param upstreamIn 上游输入流（可能已缓冲握手后的首批数据）
+     */
+    void bind(Socket upstream, InputStream upstreamIn) {
+        this.upstream = upstream;
+        this.upstreamIn = upstreamIn;
+    }
+
+    @Override
+    public void init(WebConnection webConnection) {
+        this.connection = webConnection;
+        try {
+            InputStream clientIn = webConnection.getInputStream();
+            OutputStream clientOut = webConnection.getOutputStream();
+            OutputStream upstreamOut = upstream.getOutputStream();
+            PUMP_EXECUTOR.execute(() -> pump(clientIn, upstreamOut));
+            PUMP_EXECUTOR.execute(() -> pump(upstreamIn, clientOut));
+        } catch (IOException e) {
+            LOGGER.warn("建立升级连接管道失败: {}", e.getMessage());
+            close();
+        }
+    }
+
+    private void pump(InputStream in, OutputStream out) {
+        try {
+            StreamRelay.relay(in, out);
+        } catch (IOException e) {
+            if (!closed.get()) {
+                LOGGER.debug("升级连接中断: {}", e.getMessage());
+            }
+        } finally {
+            close();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        close();
+    }
+
+    private void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            upstream.close();
+        } catch (IOException ignored) {
+            // 上游连接已关闭
+        }
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (Exception ignored) {
+                // 客户端连接已关闭
+            }
+        }
+    }
+}
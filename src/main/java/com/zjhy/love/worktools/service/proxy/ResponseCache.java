@@ -0,0 +1,666 @@
+package com.zjhy.love.worktools.service.proxy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * 代理响应缓存
+ * 按 Cache-Control/Expires 计算新鲜期，过期后凭 ETag/Last-Modified 向上游条件请求重新验证。
+ * 分两级存储：较小的响应体放在内存，内存超出上限时按最近最少使用淘汰到磁盘；磁盘上的响应体以内存映射方式读取，
+ * 超出上限时按最近最少使用删除。索引只保存在内存中，缓存目录在启动和关闭时清空
+ */
+public class ResponseCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResponseCache.class);
+
+    /**
+     * 标识缓存状态的响应头：HIT 命中、REVALIDATED 经上游验证、STALE 上游不可用时使用过期缓存、MISS 未命中
+     */
+    public static final String CACHE_STATUS_HEADER = "X-Cache";
+
+    /**
+     * 超过该大小的响应体直接存入磁盘
+     */
+    private static final int MEMORY_ENTRY_LIMIT = 1024 * 1024;
+
+    /**
+     * 转发响应体的同时留存一份副本，超过上限后放弃留存
+     */
+    public static final class Capture extends FilterOutputStream {
+        private final long limit;
+        private ByteArrayOutputStream copy = new ByteArrayOutputStream();
+
+        public Capture(OutputStream out, long limit) {
+            super(out);
+            this.limit = limit;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            if (copy != null) {
+                copy.write(b);
+                checkLimit();
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            if (copy != null) {
+                copy.write(b, off, len);
+                checkLimit();
+            }
+        }
+
+        /**
+         * 留存的响应体，超过上限时返回null
+         */
+        public byte[] getBody() {
+            return copy == null ? null : copy.toByteArray();
+        }
+
+        private void checkLimit() {
+            if (copy.size() > limit) {
+                copy = null;
+            }
+        }
+    }
+
+    /**
+     * 缓存的一个响应
+     */
+    public static final class Entry {
+        private final String key;
+        private final int status;
+        private final Map<String, String> varyValues;
+        private final long length;
+        private volatile List<String[]> headers;
+        private volatile long storedAt;
+        private volatile long freshUntil;
+        private volatile byte[] body;
+        private volatile Path file;
+        private volatile MappedByteBuffer mapped;
+
+        private Entry(String key, int status, List<String[]> headers, Map<String, String> varyValues, byte[] body,
+                      long storedAt, long freshUntil) {
+            this.key = key;
+            this.status = status;
+            this.headers = headers;
+            this.varyValues = varyValues;
+            this.body = body;
+            this.length = body.length;
+            this.storedAt = storedAt;
+            this.freshUntil = freshUntil;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        /**
+         * 端到端响应头，不含 Content-Length
+         */
+        public List<String[]> getHeaders() {
+            return headers;
+        }
+
+        public long getLength() {
+            return length;
+        }
+
+        public String getETag() {
+            return getHeader("ETag");
+        }
+
+        public String getLastModified() {
+            return getHeader("Last-Modified");
+        }
+
+        /**
+         * 自存入或上次验证以来经过的秒数
+         */
+        public long getAgeSeconds() {
+            return Math.max(0, (System.currentTimeMillis() - storedAt) / 1000);
+        }
+
+        public boolean isFresh() {
+            return System.currentTimeMillis() < freshUntil;
+        }
+
+        /**
+         * 上游不可用时能否以过期的缓存应答，上游声明 must-revalidate、proxy-revalidate 或 s-maxage 时不能
+         */
+        public boolean isStaleAllowed() {
+            return allowsStale(headers);
+        }
+
+        private String getHeader(String name) {
+            for (String[] header : headers) {
+                if (header[0].equalsIgnoreCase(name)) {
+                    return header[1];
+                }
+            }
+            return null;
+        }
+    }
+
+    private final Set<String> routes;
+
+    private final long memoryBytes;
+
+    private final long diskBytes;
+
+    private final long maxEntryBytes;
+
+    private final Path directory;
+
+    private final LinkedHashMap<String, Entry> memory = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final LinkedHashMap<String, Entry> disk = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long memoryUsed;
+
+    private long diskUsed;
+
+    private final AtomicLong fileIndex = new AtomicLong();
+
+    /**
+     * @param routes        启用缓存的路由目标
+     * @param memoryBytes   内存层容量（字节）
+     * @param diskBytes     磁盘层容量（字节），0表示不使用磁盘
+     * @param maxEntryBytes 单个响应体的最大字节数，更大的响应不缓存
+     * @param directory     磁盘层目录
+     */
+    public ResponseCache(Collection<String> routes, long memoryBytes, long diskBytes, long maxEntryBytes,
+                         Path directory) {
+        this.routes = Set.copyOf(routes);
+        this.memoryBytes = memoryBytes;
+        this.diskBytes = diskBytes;
+        this.maxEntryBytes = maxEntryBytes;
+        this.directory = directory;
+        clearDirectory();
+    }
+
+    /**
+     * 路由是否启用缓存
+     *
+     * @param route 路由目标
+     */
+    public boolean isEnabledFor(String route) {
+        return route != null && routes.contains(route);
+    }
+
+    /**
+     * 单个响应体的最大字节数
+     */
+    public long getMaxEntryBytes() {
+        return maxEntryBytes;
+    }
+
+    /**
+     * 缓存键，同一路由下 GET 与 HEAD 共用
+     * 包含请求的主机名：多个主机名共用同一上游时，上游可能按 Host 返回不同的内容
+     */
+    public static String key(String route, HttpServletRequest req) {
+        StringBuilder key = new StringBuilder(route).append(' ')
+                .append(ProxyHeaders.authority(req)).append(req.getRequestURI());
+        String query = req.getQueryString();
+        if (query != null) {
+            key.append('?').append(query);
+        }
+        return key.toString();
+    }
+
+    /**
+     * 请求能否使用缓存：仅限 GET/HEAD，携带凭据、范围请求或声明 no-store 的请求不使用缓存
+     */
+    public static boolean isCacheableRequest(HttpServletRequest req) {
+        String method = req.getMethod();
+        if (!"GET".equals(method) && !"HEAD".equals(method)) {
+            return false;
+        }
+        if (req.getHeader("Authorization") != null || req.getHeader("Range") != null) {
+            return false;
+        }
+        return !hasDirective(req.getHeader("Cache-Control"), "no-store");
+    }
+
+    /**
+     * 是否为可能修改资源的请求方法
+     */
+    public static boolean isUnsafeMethod(String method) {
+        return !"GET".equals(method) && !"HEAD".equals(method) && !"OPTIONS".equals(method) && !"TRACE".equals(method);
+    }
+
+    /**
+     * 是否为条件请求头
+     */
+    public static boolean isConditionalHeader(String name) {
+        return "If-None-Match".equalsIgnoreCase(name) || "If-Modified-Since".equalsIgnoreCase(name);
+    }
+
+    /**
+     * 客户端是否要求跳过新鲜缓存、向上游重新验证
+     */
+    public static boolean requiresRevalidation(HttpServletRequest req) {
+        String cacheControl = req.getHeader("Cache-Control");
+        return hasDirective(cacheControl, "no-cache") || "0".equals(directiveValue(cacheControl, "max-age"))
+                || (cacheControl == null && hasDirective(req.getHeader("Pragma"), "no-cache"));
+    }
+
+    /**
+     * 查找与请求匹配的缓存，包括已过期的
+     *
+     * @return 缓存的响应，不存在或 Vary 头不匹配时返回null
+     */
+    public Entry lookup(String key, HttpServletRequest req) {
+        Entry entry;
+        synchronized (this) {
+            entry = memory.get(key);
+            if (entry == null) {
+                entry = disk.get(key);
+            }
+        }
+        if (entry == null) {
+            return null;
+        }
+        for (Map.Entry<String, String> vary : entry.varyValues.entrySet()) {
+            if (!Objects.equals(vary.getValue(), req.getHeader(vary.getKey()))) {
+                return null;
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * 计算响应可缓存的时长
+     *
+     * @param status  响应状态码
+     * @param headers 响应头
+     * @return 新鲜期（毫秒），0表示每次都需重新验证，-1表示不可缓存
+     */
+    public static long freshnessMillis(int status, List<String[]> headers) {
+        if (status != 200) {
+            return -1;
+        }
+        String cacheControl = joinHeader(headers, "Cache-Control");
+        if (hasDirective(cacheControl, "no-store") || hasDirective(cacheControl, "private")) {
+            return -1;
+        }
+        String vary = joinHeader(headers, "Vary");
+        if (vary != null && vary.contains("*")) {
+            return -1;
+        }
+        // 携带会话的响应不能共享给其他客户端
+        if (containsHeader(headers, "Set-Cookie") || containsHeader(headers, "Set-Cookie2")) {
+            return -1;
+        }
+        long freshness = 0;
+        if (!hasDirective(cacheControl, "no-cache")) {
+            String maxAge = directiveValue(cacheControl, "s-maxage");
+            if (maxAge == null) {
+                maxAge = directiveValue(cacheControl, "max-age");
+            }
+            if (maxAge != null) {
+                try {
+                    freshness = Math.max(0, Long.parseLong(maxAge)) * 1000;
+                } catch (NumberFormatException e) {
+                    freshness = 0;
+                }
+            } else {
+                freshness = expiresMillis(joinHeader(headers, "Expires"), joinHeader(headers, "Date"));
+            }
+        }
+        // 既没有新鲜期也没有验证器的响应缓存了也无法复用
+        if (freshness == 0 && joinHeader(headers, "ETag") == null && joinHeader(headers, "Last-Modified") == null) {
+            return -1;
+        }
+        return freshness;
+    }
+
+    /**
+     * 响应过期后能否在上游不可用时继续使用
+     * s-maxage 对共享缓存隐含 proxy-revalidate
+     *
+     * @param headers 响应头
+     */
+    static boolean allowsStale(List<String[]> headers) {
+        String cacheControl = joinHeader(headers, "Cache-Control");
+        return !hasDirective(cacheControl, "must-revalidate") && !hasDirective(cacheControl, "proxy-revalidate")
+                && !hasDirective(cacheControl, "s-maxage");
+    }
+
+    /**
+     * 存入响应
+     *
+     * @param key       缓存键
+     * @param req       触发该响应的请求，用于记录 Vary 头的取值
+     * @param status    响应状态码
+     * @param headers   端到端响应头
+     * @param body      响应体
+     * @param freshness 新鲜期（毫秒），由 {@link #freshnessMillis} 得到
+     */
+    public void store(String key, HttpServletRequest req, int status, List<String[]> headers, byte[] body,
+                      long freshness) {
+        Map<String, String> varyValues = new LinkedHashMap<>();
+        String vary = joinHeader(headers, "Vary");
+        if (vary != null) {
+            for (String name : vary.split(",")) {
+                name = name.trim();
+                if (!name.isEmpty()) {
+                    varyValues.put(name, req.getHeader(name));
+                }
+            }
+        }
+        long now = System.currentTimeMillis();
+        Entry entry = new Entry(key, status, withoutContentLength(headers), varyValues, body, now, now + freshness);
+        if (body.length > MEMORY_ENTRY_LIMIT || body.length > memoryBytes) {
+            invalidate(key);
+            if (body.length <= diskBytes) {
+                spill(entry);
+            }
+            return;
+        }
+        List<Entry> evicted = new ArrayList<>();
+        synchronized (this) {
+            removeLocked(key);
+            memory.put(key, entry);
+            memoryUsed += entry.length;
+            Iterator<Entry> iterator = memory.values().iterator();
+            while (memoryUsed > memoryBytes && iterator.hasNext()) {
+                Entry eldest = iterator.next();
+                iterator.remove();
+                memoryUsed -= eldest.length;
+                evicted.add(eldest);
+            }
+        }
+        if (diskBytes > 0) {
+            evicted.forEach(this::spill);
+        }
+    }
+
+    /**
+     * 上游返回304后按新的响应头刷新新鲜期
+     *
+     * @param entry   已缓存的响应
+     * @param headers 304响应的响应头
+     */
+    public void refresh(Entry entry, List<String[]> headers) {
+        List<String[]> merged = new ArrayList<>(entry.headers.size());
+        for (String[] header : entry.headers) {
+            if (!containsHeader(headers, header[0])) {
+                merged.add(header);
+            }
+        }
+        merged.addAll(withoutContentLength(headers));
+        long freshness = freshnessMillis(entry.status, merged);
+        long now = System.currentTimeMillis();
+        entry.headers = merged;
+        entry.storedAt = now;
+        entry.freshUntil = now + Math.max(0, freshness);
+        if (freshness < 0) {
+            invalidate(entry.key);
+        }
+    }
+
+    /**
+     * 移除缓存，非安全方法请求或上游声明不再可缓存时调用
+     */
+    public void invalidate(String key) {
+        Entry removed;
+        synchronized (this) {
+            removed = removeLocked(key);
+        }
+        if (removed != null) {
+            deleteFile(removed);
+        }
+    }
+
+    /**
+     * 以缓存应答客户端，客户端携带的 If-None-Match 与缓存的 ETag 一致时返回304
+     *
+     * @param state 写入 X-Cache 头的缓存状态
+     */
+    public void serve(HttpServletRequest req, HttpServletResponse resp, Entry entry, String state) throws IOException {
+        String etag = entry.getETag();
+        String ifNoneMatch = req.getHeader("If-None-Match");
+        boolean notModified = ifNoneMatch != null && etag != null
+                && ("*".equals(ifNoneMatch.trim()) || Arrays.asList(ifNoneMatch.split("\\s*,\\s*")).contains(etag));
+        resp.setStatus(notModified ? HttpServletResponse.SC_NOT_MODIFIED : entry.status);
+        for (String[] header : entry.headers) {
+            resp.addHeader(header[0], header[1]);
+        }
+        resp.setHeader("Age", String.valueOf(entry.getAgeSeconds()));
+        resp.setHeader(CACHE_STATUS_HEADER, state);
+        if (notModified) {
+            return;
+        }
+        resp.setContentLengthLong(entry.length);
+        if (!"HEAD".equals(req.getMethod())) {
+            try (OutputStream out = resp.getOutputStream()) {
+                writeBody(entry, out);
+            }
+        }
+    }
+
+    /**
+     * 写出响应体
+     */
+    private void writeBody(Entry entry, OutputStream out) throws IOException {
+        byte[] body = entry.body;
+        if (body != null) {
+            out.write(body);
+            return;
+        }
+        ByteBuffer buffer = entry.mapped.duplicate();
+        byte[] chunk = StreamRelay.acquire();
+        try {
+            while (buffer.hasRemaining()) {
+                int length = Math.min(chunk.length, buffer.remaining());
+                buffer.get(chunk, 0, length);
+                out.write(chunk, 0, length);
+            }
+        } finally {
+            StreamRelay.release(chunk);
+        }
+    }
+
+    /**
+     * 清空缓存并删除磁盘文件
+     */
+    public void close() {
+        synchronized (this) {
+            memory.clear();
+            disk.clear();
+            memoryUsed = 0;
+            diskUsed = 0;
+        }
+        clearDirectory();
+    }
+
+    /**
+     * 将响应体写入磁盘层并映射，内存中的副本随后释放
+     */
+    private void spill(Entry entry) {
+        Path file = directory.resolve(fileIndex.incrementAndGet() + ".body");
+        try {
+            Files.createDirectories(directory);
+            Files.write(file, entry.body);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                entry.mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, entry.length);
+            }
+        } catch (IOException e) {
+            LOGGER.warn("写入磁盘缓存失败: {}", e.getMessage());
+            deleteQuietly(file);
+            return;
+        }
+        entry.file = file;
+        entry.body = null;
+        List<Entry> evicted = new ArrayList<>();
+        synchronized (this) {
+            // 写盘期间已被新的响应替换时放弃
+            if (memory.containsKey(entry.key)) {
+                evicted.add(entry);
+            } else {
+                Entry previous = disk.put(entry.key, entry);
+                if (previous != null) {
+                    diskUsed -= previous.length;
+                    evicted.add(previous);
+                }
+                diskUsed += entry.length;
+                Iterator<Entry> iterator = disk.values().iterator();
+                while (diskUsed > diskBytes && iterator.hasNext()) {
+                    Entry eldest = iterator.next();
+                    iterator.remove();
+                    diskUsed -= eldest.length;
+                    evicted.add(eldest);
+                }
+            }
+        }
+        evicted.forEach(this::deleteFile);
+    }
+
+    private Entry removeLocked(String key) {
+        Entry removed = memory.remove(key);
+        if (removed != null) {
+            memoryUsed -= removed.length;
+            return removed;
+        }
+        removed = disk.remove(key);
+        if (removed != null) {
+            diskUsed -= removed.length;
+        }
+        return removed;
+    }
+
+    private void deleteFile(Entry entry) {
+        if (entry.file != null) {
+            deleteQuietly(entry.file);
+        }
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // 映射未释放时部分系统不允许删除，退出时再删
+            file.toFile().deleteOnExit();
+        }
+    }
+
+    private void clearDirectory() {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(file -> file.getFileName().toString().endsWith(".body")).forEach(this::deleteQuietly);
+        } catch (IOException e) {
+            LOGGER.warn("清理缓存目录失败: {}", e.getMessage());
+        }
+    }
+
+    private static List<String[]> withoutContentLength(List<String[]> headers) {
+        List<String[]> result = new ArrayList<>(headers.size());
+        for (String[] header : headers) {
+            if (!"Content-Length".equalsIgnoreCase(header[0])) {
+                result.add(header);
+            }
+        }
+        return result;
+    }
+
+    private static boolean containsHeader(List<String[]> headers, String name) {
+        for (String[] header : headers) {
+            if (header[0].equalsIgnoreCase(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 合并同名响应头的全部取值
+     */
+    private static String joinHeader(List<String[]> headers, String name) {
+        String value = null;
+        for (String[] header : headers) {
+            if (header[0].equalsIgnoreCase(name)) {
+                value = value == null ? header[1] : value + ", " + header[1];
+            }
+        }
+        return value;
+    }
+
+    private static boolean hasDirective(String value, String directive) {
+        if (value == null) {
+            return false;
+        }
+        for (String part : value.split(",")) {
+            String name = part.trim();
+            int equals = name.indexOf('=');
+            if (equals >= 0) {
+                name = name.substring(0, equals).trim();
+            }
+            if (name.equalsIgnoreCase(directive)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String directiveValue(String value, String directive) {
+        if (value == null) {
+            return null;
+        }
+        for (String part : value.split(",")) {
+            int equals = part.indexOf('=');
+            if (equals > 0 && part.substring(0, equals).trim().equalsIgnoreCase(directive)) {
+                return part.substring(equals + 1).trim().replace("\"", "");
+            }
+        }
+        return null;
+    }
+
+    private static long expiresMillis(String expires, String date) {
+        if (expires == null) {
+            return 0;
+        }
+        try {
+            long expiresAt = ZonedDateTime.parse(expires, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+            long now = date == null ? System.currentTimeMillis()
+                    : ZonedDateTime.parse(date, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+            return Math.max(0, expiresAt - now);
+        } catch (DateTimeParseException e) {
+            // 无效的 Expires 视为已过期
+            return 0;
+        }
+    }
+}
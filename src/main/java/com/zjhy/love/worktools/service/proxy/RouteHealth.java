@@ -0,0 +1,207 @@
+package com.zjhy.love.worktools.service.proxy;
+
+import com.zjhy.love.worktools.common.util.CircuitBreaker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 路由健康状态
+ * 按上游地址维护熔断器：连续失败达到阈值后熔断，熔断期间请求直接失败，不再占用容器线程等待超时。
+ * 后台线程定期向熔断中的地址发送一个最小的HTTP请求，收到状态行即恢复；熔断时长过后也会放行一个请求试探
+ */
+public class RouteHealth {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RouteHealth.class);
+
+    private static final int PROBE_THREADS = 2;
+
+    /**
+     * 探测等待响应状态行的超时（毫秒）
+     * SSH隧道的本地监听总能接受连接，远端慢或不可达时通道迟迟打不开，只有收到上游的响应才说明上游可用
+     */
+    private static final int PROBE_RESPONSE_TIMEOUT_MILLIS = 5000;
+
+    /**
+     * 状态行最大长度
+     */
+    private static final int MAX_STATUS_LINE = 256;
+
+    private final int failureThreshold;
+
+    private final long openMillis;
+
+    private final int connectTimeoutMillis;
+
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    /**
+     * 正在探测的地址，避免同一地址的探测堆积
+     */
+    private final Set<String> probing = ConcurrentHashMap.newKeySet();
+
+    private final ScheduledExecutorService prober;
+
+    /**
+     * @param failureThreshold     连续失败次数阈值，0表示不熔断
+     * @param openMillis           熔断时长（毫秒）
+     * @param connectTimeoutMillis 探测建连超时（毫秒）
+     * @param probeIntervalMillis  探测间隔（毫秒）
+     */
+    public RouteHealth(int failureThreshold, long openMillis, int connectTimeoutMillis, long probeIntervalMillis) {
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.prober = Executors.newScheduledThreadPool(PROBE_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "proxy-route-probe-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (failureThreshold > 0 && probeIntervalMillis > 0) {
+            prober.scheduleWithFixedDelay(this::probeOpenRoutes, probeIntervalMillis, probeIntervalMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 是否放行发往该地址的请求
+     * 首次调用时为地址建立熔断器，直到 {@link #forget} 才移除，只应传入路由表或上游分组中的地址
+     *
+     * @param address 上游地址，格式为 host:port
+     */
+    public boolean allow(String address) {
+        if (failureThreshold <= 0) {
+            return true;
+        }
+        return breakers.computeIfAbsent(address, key -> new CircuitBreaker(failureThreshold, openMillis)).allowRequest();
+    }
+
+    /**
+     * 记录一次请求结果
+     *
+     * @param address 上游地址
+     * @param success 是否成功
+     */
+    public void record(String address, boolean success) {
+        CircuitBreaker breaker = breakers.get(address);
+        if (breaker == null) {
+            return;
+        }
+        if (success) {
+            breaker.recordSuccess();
+            return;
+        }
+        boolean wasOpen = breaker.getState() == CircuitBreaker.State.OPEN;
+        breaker.recordFailure();
+        if (!wasOpen && breaker.getState() == CircuitBreaker.State.OPEN) {
+            LOGGER.warn("上游连续失败，熔断{}ms: {}", openMillis, address);
+        }
+    }
+
+    /**
+     * 地址是否处于正常状态，不会像 {@link #allow} 那样占用熔断后的试探名额
+     *
+     * @param address 上游地址
+     */
+    public boolean isHealthy(String address) {
+        return getState(address) == CircuitBreaker.State.CLOSED;
+    }
+
+    /**
+     * 熔断状态，未记录过的地址视为正常
+     */
+    public CircuitBreaker.State getState(String address) {
+        CircuitBreaker breaker = breakers.get(address);
+        return breaker == null ? CircuitBreaker.State.CLOSED : breaker.getState();
+    }
+
+    /**
+     * 熔断时长对应的秒数，用于 Retry-After
+     */
+    public long getRetryAfterSeconds() {
+        return Math.max(1, TimeUnit.MILLISECONDS.toSeconds(openMillis));
+    }
+
+    /**
+     * 不再跟踪该地址，隧道下线后调用
+     */
+    public void forget(String address) {
+        breakers.remove(address);
+    }
+
+    /**
+     * 停止后台探测
+     */
+    public void close() {
+        prober.shutdownNow();
+    }
+
+    private void probeOpenRoutes() {
+        breakers.forEach((address, breaker) -> {
+            if (breaker.getState() != CircuitBreaker.State.CLOSED && probing.add(address)) {
+                prober.execute(() -> {
+                    try {
+                        if (probe(address)) {
+                            breaker.recordSuccess();
+                            LOGGER.info("上游探测成功，恢复转发: {}", address);
+                        }
+                    } finally {
+                        probing.remove(address);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * 发送 HEAD 请求并等待状态行，收到任意HTTP响应即视为可用
+     */
+    private boolean probe(String address) {
+        int separator = address.lastIndexOf(':');
+        if (separator < 0) {
+            return false;
+        }
+        String host = address.substring(0, separator);
+        int port;
+        try {
+            port = Integer.parseInt(address.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(host, port), connectTimeoutMillis);
+            socket.setSoTimeout(PROBE_RESPONSE_TIMEOUT_MILLIS);
+            OutputStream out = socket.getOutputStream();
+            out.write(("HEAD / HTTP/1.1\r\nHost: " + address + "\r\nConnection: close\r\n\r\n")
+                    .getBytes(StandardCharsets.ISO_8859_1));
+            out.flush();
+            return readStatusLine(socket.getInputStream()).startsWith("HTTP/");
+        } catch (IOException e) {
+            // 含等待响应超时
+            return false;
+        }
+    }
+
+    private static String readStatusLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while (line.length() < MAX_STATUS_LINE && (b = in.read()) >= 0 && b != '\n') {
+            line.append((char) b);
+        }
+        return line.toString();
+    }
+}
@@ -0,0 +1,123 @@
+package com.zjhy.love.worktools.service.proxy;
+
+import com.zjhy.love.worktools.service.metrics.TrafficMetrics;
+import org.apache.catalina.AccessLog;
+import org.apache.catalina.connector.Request;
+import org.apache.catalina.connector.Response;
+import org.apache.catalina.valves.ValveBase;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 路由指标阀门
+ * 以容器访问日志的方式挂在上下文上，容器在请求完全结束（含异步请求）后回调 {@link #log}，
+ * 此时读取容器统计的请求与响应字节数并记录请求耗时，转发过程中无需包装输入输出流。
+ * 配置了访问日志管道时同时生成一条访问事件
+ */
+public class RouteMetricsValve extends ValveBase implements AccessLog {
+
+    private static final String METRICS_ATTRIBUTE = RouteMetricsValve.class.getName() + ".metrics";
+
+    private static final String START_ATTRIBUTE = RouteMetricsValve.class.getName() + ".start";
+
+    private static final String TARGET_ATTRIBUTE = RouteMetricsValve.class.getName() + ".target";
+
+    /**
+     * 访问日志管道，为null时不记录访问日志
+     */
+    private final AccessLogPipeline accessLog;
+
+    public RouteMetricsValve(AccessLogPipeline accessLog) {
+        super(true);
+        this.accessLog = accessLog;
+    }
+
+    /**
+     * 开始统计一次请求
+     *
+     * @param req     客户端请求
+     * @param metrics 路由目标的指标
+     */
+    public static void begin(HttpServletRequest req, TrafficMetrics metrics) {
+        metrics.connectionOpened();
+        req.setAttribute(METRICS_ATTRIBUTE, metrics);
+        req.setAttribute(START_ATTRIBUTE, System.nanoTime());
+    }
+
+    /**
+     * 记录实际转发的上游地址，上游分组时为选中的成员
+     *
+     * @param req    客户端请求
+     * @param target 上游地址
+     */
+    public static void markTarget(HttpServletRequest req, String target) {
+        req.setAttribute(TARGET_ATTRIBUTE, target);
+    }
+
+    /**
+     * 记录收到上游响应头的耗时
+     *
+     * @param req 客户端请求
+     */
+    public static void markResponseHead(HttpServletRequest req) {
+        Object metrics = req.getAttribute(METRICS_ATTRIBUTE);
+        Object start = req.getAttribute(START_ATTRIBUTE);
+        if (metrics instanceof TrafficMetrics && start instanceof Long) {
+            ((TrafficMetrics) metrics).recordConnect(System.nanoTime() - (Long) start);
+        }
+    }
+
+    /**
+     * 记录一次上游失败
+     *
+     * @param req 客户端请求
+     */
+    public static void markError(HttpServletRequest req) {
+        Object metrics = req.getAttribute(METRICS_ATTRIBUTE);
+        if (metrics instanceof TrafficMetrics) {
+            ((TrafficMetrics) metrics).recordError();
+        }
+    }
+
+    @Override
+    public void invoke(Request request, Response response) throws IOException, ServletException {
+        getNext().invoke(request, response);
+    }
+
+    @Override
+    public void log(Request request, Response response, long time) {
+        Object metrics = request.getAttribute(METRICS_ATTRIBUTE);
+        Object start = request.getAttribute(START_ATTRIBUTE);
+        long bytesIn = request.getCoyoteRequest().getBytesRead();
+        long bytesOut = response.getBytesWritten(false);
+        // 未进入路由的请求使用容器统计的耗时（毫秒）
+        long durationNanos = start instanceof Long ? System.nanoTime() - (Long) start : TimeUnit.MILLISECONDS.toNanos(time);
+        String route = null;
+        if (metrics instanceof TrafficMetrics) {
+            TrafficMetrics routeMetrics = (TrafficMetrics) metrics;
+            routeMetrics.addBytesIn(bytesIn);
+            routeMetrics.addBytesOut(bytesOut);
+            routeMetrics.connectionClosed(durationNanos);
+            route = routeMetrics.getName();
+        }
+        if (accessLog != null) {
+            Object target = request.getAttribute(TARGET_ATTRIBUTE);
+            accessLog.offer(request.getMethod(), ProxyHeaders.authority(request), request.getRequestURI(),
+                    request.getQueryString(), route, target instanceof String ? (String) target : route,
+                    response.getStatus(), bytesIn, bytesOut, durationNanos);
+        }
+    }
+
+    @Override
+    public void setRequestAttributesEnabled(boolean requestAttributesEnabled) {
+        // 不使用代理头覆盖的请求属性
+    }
+
+    @Override
+    public boolean getRequestAttributesEnabled() {
+        return false;
+    }
+}
@@ -0,0 +1,212 @@
+package com.zjhy.love.worktools.service.proxy;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 路由表
+ * 不可变的预编译路由结构，支持以下规则写法：
+ * <ul>
+ *     <li>精确匹配：{@code api.example.com}、{@code 10.0.0.1:8080}</li>
+ *     <li>通配符匹配：{@code *.example.com}，匹配恰好多一级的子域名</li>
+ *     <li>后缀匹配：{@code .example.com}，匹配该域名及其任意层级子域名</li>
+ *     <li>路径前缀：在以上任意写法后追加路径，如 {@code api.example.com/order}，按路径段做最长前缀匹配，路径区分大小写</li>
+ * </ul>
+ * 查找时依次尝试精确、通配符、后缀规则，每一步都是哈希查找，耗时只与域名层级数和路径段数相关，与规则总数无关
+ *
+ * @param <T> 路由目标类型
+ */
+public final class RouteTable<T> {
+
+    private static final RouteTable<?> EMPTY = new RouteTable<>(Collections.emptyMap());
+
+    /**
+     * 原始规则，用于增量修改后重新编译
+     */
+    private final Map<String, T> rules;
+
+    private final Map<String, HostRoutes<T>> exactHosts = new HashMap<>();
+
+    private final Map<String, HostRoutes<T>> wildcardHosts = new HashMap<>();
+
+    private final Map<String, HostRoutes<T>> suffixHosts = new HashMap<>();
+
+    private RouteTable(Map<String, T> rules) {
+        this.rules = Collections.unmodifiableMap(new LinkedHashMap<>(rules));
+        rules.forEach(this::compile);
+    }
+
+    /**
+     * 空路由表
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> RouteTable<T> empty() {
+        return (RouteTable<T>) EMPTY;
+    }
+
+    /**
+     * 由规则集合构建路由表
+     *
+     * @param rules 规则到目标的映射
+     */
+    public static <T> RouteTable<T> of(Map<String, T> rules) {
+        return rules.isEmpty() ? empty() : new RouteTable<>(rules);
+    }
+
+    /**
+     * 返回增加（或覆盖）一条规则后的新路由表
+     */
+    public RouteTable<T> with(String rule, T target) {
+        return update(Collections.singletonMap(rule, target), Collections.emptySet());
+    }
+
+    /**
+     * 返回删除一条规则后的新路由表
+     */
+    public RouteTable<T> without(String rule) {
+        return update(Collections.emptyMap(), Collections.singleton(rule));
+    }
+
+    /**
+     * 返回批量删除、增加（或覆盖）规则后的新路由表，整批只重新编译一次
+     * 每次修改都要复制并编译全部规则，规则较多时应合并为一批修改，避免逐条修改带来平方级的开销
+     *
+     * @param put    增加或覆盖的规则
+     * @param remove 删除的规则，先于 put 生效
+     * @return 新路由表，没有变化时返回自身
+     */
+    public RouteTable<T> update(Map<String, T> put, Collection<String> remove) {
+        Map<String, T> copy = new LinkedHashMap<>(rules);
+        remove.forEach(copy::remove);
+        copy.putAll(put);
+        return copy.equals(rules) ? this : of(copy);
+    }
+
+    /**
+     * 获取全部原始规则
+     */
+    public Map<String, T> getRules() {
+        return rules;
+    }
+
+    /**
+     * 查找路由
+     *
+     * @param host 请求的 Host 头，可带端口
+     * @param path 请求路径
+     * @return 路由目标，未命中时返回null
+     */
+    public T lookup(String host, String path) {
+        if (host == null || rules.isEmpty()) {
+            return null;
+        }
+        String normalized = host.toLowerCase(Locale.ROOT);
+        String hostname = stripPort(normalized);
+
+        // 精确匹配：先匹配带端口的完整 Host，再匹配去掉端口的域名
+        T target = match(exactHosts.get(normalized), path);
+        if (target == null && !hostname.equals(normalized)) {
+            target = match(exactHosts.get(hostname), path);
+        }
+        if (target != null) {
+            return target;
+        }
+
+        // 通配符匹配：去掉第一级标签后查找
+        int firstDot = hostname.indexOf('.');
+        if (firstDot > 0) {
+            target = match(wildcardHosts.get(hostname.substring(firstDot + 1)), path);
+            if (target != null) {
+                return target;
+            }
+        }
+
+        // 后缀匹配：从最长后缀开始逐级查找
+        String suffix = hostname;
+        while (true) {
+            target = match(suffixHosts.get(suffix), path);
+            if (target != null) {
+                return target;
+            }
+            int dot = suffix.indexOf('.');
+            if (dot < 0) {
+                return null;
+            }
+            suffix = suffix.substring(dot + 1);
+        }
+    }
+
+    private void compile(String rule, T target) {
+        // 域名不区分大小写，路径前缀区分大小写，与请求路径原样比较
+        String trimmed = rule.trim();
+        int slash = trimmed.indexOf('/');
+        String hostPattern = (slash >= 0 ? trimmed.substring(0, slash) : trimmed).toLowerCase(Locale.ROOT);
+        String pathPrefix = slash >= 0 ? normalizePath(trimmed.substring(slash)) : null;
+
+        Map<String, HostRoutes<T>> index;
+        String key;
+        if (hostPattern.startsWith("*.")) {
+            index = wildcardHosts;
+            key = hostPattern.substring(2);
+        } else if (hostPattern.startsWith(".")) {
+            index = suffixHosts;
+            key = hostPattern.substring(1);
+        } else {
+            index = exactHosts;
+            key = hostPattern;
+        }
+        HostRoutes<T> hostRoutes = index.computeIfAbsent(key, k -> new HostRoutes<>());
+        if (pathPrefix == null || "/".equals(pathPrefix)) {
+            hostRoutes.defaultTarget = target;
+        } else {
+            hostRoutes.pathTargets.put(pathPrefix, target);
+        }
+    }
+
+    private static <T> T match(HostRoutes<T> hostRoutes, String path) {
+        if (hostRoutes == null) {
+            return null;
+        }
+        if (!hostRoutes.pathTargets.isEmpty() && path != null) {
+            // 按路径段由长到短查找最长前缀
+            String prefix = normalizePath(path);
+            while (prefix.length() > 1) {
+                T target = hostRoutes.pathTargets.get(prefix);
+                if (target != null) {
+                    return target;
+                }
+                prefix = prefix.substring(0, prefix.lastIndexOf('/'));
+            }
+        }
+        return hostRoutes.defaultTarget;
+    }
+
+    private static String normalizePath(String path) {
+        String normalized = path.startsWith("/") ? path : "/" + path;
+        while (normalized.length() > 1 && normalized.endsWith("/")) {
+            normalized = normalized.substring(0, normalized.length() - 1);
+        }
+        return normalized;
+    }
+
+    private static String stripPort(String host) {
+        // IPv6 字面量形如 [::1]:8080
+        int colon = host.lastIndexOf(':');
+        if (colon > 0 && host.indexOf(']') < colon) {
+            return host.substring(0, colon);
+        }
+        return host;
+    }
+
+    /**
+     * 同一域名规则下的路由
+     */
+    private static final class HostRoutes<T> {
+        private T defaultTarget;
+        private final Map<String, T> pathTargets = new HashMap<>();
+    }
+}
@@ -0,0 +1,139 @@
+package com.zjhy.love.worktools.service.proxy;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import java.io.IOException;
+import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 请求体发布者
+ * 以非阻塞方式读取客户端请求体，按上游客户端的需求量逐块发布
+ */
+class ServletBodyPublisher implements HttpRequest.BodyPublisher, ReadListener {
+
+    private final ServletInputStream in;
+
+    private final long contentLength;
+
+    private final AtomicLong demand = new AtomicLong();
+
+    private final AtomicInteger wip = new AtomicInteger();
+
+    private volatile Flow.Subscriber<? super ByteBuffer> subscriber;
+
+    private volatile boolean done;
+
+    /**
+     * 订阅前发生的读取错误，订阅时补发
+     */
+    private volatile Throwable pendingError;
+
+    /**
+     * @param in            客户端请求输入流，需处于异步模式
+     * @param contentLength 请求体长度，未知时为-1
+     */
+    ServletBodyPublisher(ServletInputStream in, long contentLength) {
+        this.in = in;
+        this.contentLength = contentLength;
+    }
+
+    @Override
+    public long contentLength() {
+        return contentLength;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+        this.subscriber = subscriber;
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+                demand.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+                drain();
+            }
+
+            @Override
+            public void cancel() {
+                done = true;
+            }
+        });
+        Throwable error = pendingError;
+        if (error != null) {
+            pendingError = null;
+            subscriber.onError(error);
+        }
+    }
+
+    @Override
+    public void onDataAvailable() {
+        drain();
+    }
+
+    @Override
+    public void onAllDataRead() {
+        drain();
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        fail(t);
+    }
+
+    /**
+     * 在有需求且有数据可读时读取请求体，同一时刻只有一个线程执行
+     */
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        do {
+            Flow.Subscriber<? super ByteBuffer> current = subscriber;
+            if (current == null || done) {
+                continue;
+            }
+            try {
+                while (!done) {
+                    if (in.isFinished()) {
+                        done = true;
+                        current.onComplete();
+                        break;
+                    }
+                    if (demand.get() <= 0 || !in.isReady()) {
+                        break;
+                    }
+                    // 上游客户端可能暂存已发布的数据块，因此每块使用独立数组
+                    byte[] chunk = new byte[StreamRelay.BUFFER_SIZE];
+                    int read = in.read(chunk);
+                    if (read == -1) {
+                        done = true;
+                        current.onComplete();
+                        break;
+                    }
+                    if (read > 0) {
+                        demand.decrementAndGet();
+                        current.onNext(ByteBuffer.wrap(chunk, 0, read));
+                    }
+                }
+            } catch (IOException e) {
+                fail(e);
+            }
+        } while (wip.decrementAndGet() != 0);
+    }
+
+    private void fail(Throwable t) {
+        if (done) {
+            return;
+        }
+        done = true;
+        Flow.Subscriber<? super ByteBuffer> current = subscriber;
+        if (current != null) {
+            current.onError(t);
+        } else {
+            pendingError = t;
+        }
+    }
+}
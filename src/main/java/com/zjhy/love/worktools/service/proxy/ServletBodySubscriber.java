@@ -0,0 +1,146 @@
+package com.zjhy.love.worktools.service.proxy;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 响应体订阅者
+ * 将上游响应体以非阻塞方式写给客户端，客户端写缓冲满时暂停向上游请求数据
+ */
+class ServletBodySubscriber implements HttpResponse.BodySubscriber<Void>, WriteListener {
+
+    private final ServletOutputStream out;
+
+    private final AsyncProxyExchange exchange;
+
+    private final Queue<ByteBuffer> queue = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger wip = new AtomicInteger();
+
+    /**
+     * 是否已向上游请求下一批数据且尚未到达
+     */
+    private final AtomicBoolean awaiting = new AtomicBoolean();
+
+    private final CompletableFuture<Void> body = new CompletableFuture<>();
+
+    private volatile Flow.Subscription subscription;
+
+    private volatile boolean upstreamDone;
+
+    ServletBodySubscriber(ServletOutputStream out, AsyncProxyExchange exchange) {
+        this.out = out;
+        this.exchange = exchange;
+    }
+
+    @Override
+    public CompletionStage<Void> getBody() {
+        return body;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        drain();
+    }
+
+    @Override
+    public void onNext(List<ByteBuffer> items) {
+        queue.addAll(items);
+        awaiting.set(false);
+        drain();
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        body.completeExceptionally(throwable);
+        exchange.fail(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        upstreamDone = true;
+        drain();
+    }
+
+    @Override
+    public void onWritePossible() {
+        drain();
+    }
+
+    /**
+     * 取消上游响应体的接收
+     */
+    void cancel() {
+        Flow.Subscription current = subscription;
+        if (current != null) {
+            current.cancel();
+        }
+    }
+
+    /**
+     * 在客户端可写时写出已收到的数据，同一时刻只有一个线程执行
+     */
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        do {
+            Flow.Subscription current = subscription;
+            if (current == null || body.isDone()) {
+                continue;
+            }
+            try {
+                while (out.isReady()) {
+                    ByteBuffer buffer = queue.peek();
+                    if (buffer == null) {
+                        if (upstreamDone) {
+                            body.complete(null);
+                            exchange.complete();
+                        } else if (awaiting.compareAndSet(false, true)) {
+                            current.request(1);
+                        }
+                        break;
+                    }
+                    write(buffer);
+                    if (!buffer.hasRemaining()) {
+                        queue.poll();
+                    }
+                }
+            } catch (IOException e) {
+                // 客户端断开，停止接收上游数据
+                current.cancel();
+                body.completeExceptionally(e);
+                exchange.fail(e);
+            }
+        } while (wip.decrementAndGet() != 0);
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        int length = Math.min(buffer.remaining(), StreamRelay.BUFFER_SIZE);
+        if (buffer.hasArray()) {
+            out.write(buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+            buffer.position(buffer.position() + length);
+            return;
+        }
+        // 非阻塞写出时容器会拷贝未能立即发送的数据，缓冲区可立即复用
+        byte[] chunk = StreamRelay.acquire();
+        try {
+            buffer.get(chunk, 0, length);
+            out.write(chunk, 0, length);
+        } finally {
+            StreamRelay.release(chunk);
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.zjhy.love.worktools.service.proxy;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 请求合并
+ * 同一路由下方法、URL 与影响响应的请求头均相同的并发 GET/HEAD 只向上游发出一次：首个请求回源，
+ * 其余请求等待其结束后共享状态码、响应头与响应体。只合并进行中的请求，不做缓存；
+ * 响应体过大、带 Set-Cookie 或 Vary 超出合并键范围时不共享，等待的请求各自回源
+ */
+public class SingleFlight {
+
+    /**
+     * 参与合并键的请求头，凭据与条件头不同的请求不会合并
+     */
+    private static final Set<String> KEY_HEADERS = caseInsensitiveSet(
+            "Accept", "Accept-Encoding", "Accept-Language", "Authorization", "Cookie", "Origin",
+            "If-None-Match", "If-Modified-Since");
+
+    /**
+     * 首个请求的响应，不可共享时为null
+     */
+    private static final class Result {
+        final int status;
+        final List<String[]> headers;
+        final byte[] body;
+        final IOException failure;
+
+        Result(int status, List<String[]> headers, byte[] body, IOException failure) {
+            this.status = status;
+            this.headers = headers;
+            this.body = body;
+            this.failure = failure;
+        }
+    }
+
+    /**
+     * 一次合并中的请求，首个请求为回源方，其余为等待方
+     */
+    public final class Flight {
+        private final String key;
+        private final CompletableFuture<Result> result;
+        private final boolean leader;
+
+        private Flight(String key, CompletableFuture<Result> result, boolean leader) {
+            this.key = key;
+            this.result = result;
+            this.leader = leader;
+        }
+
+        /**
+         * 是否由该请求回源
+         */
+        public boolean isLeader() {
+            return leader;
+        }
+
+        /**
+         * 回源方发布完整响应
+         *
+         * @param headers 不含 Content-Length 的响应头，HEAD 请求除外
+         * @param body    写给客户端的响应体，超过上限时为null
+         */
+        public void publish(int status, List<String[]> headers, byte[] body) {
+            complete(body != null && isShareable(headers) ? new Result(status, headers, body, null) : null);
+        }
+
+        /**
+         * 回源方发布上游失败，等待方以同样的失败应答，不再各自请求不可用的上游
+         */
+        public void publishFailure(IOException failure) {
+            complete(new Result(0, null, null, failure));
+        }
+
+        /**
+         * 回源方结束，未发布响应时通知等待方各自回源
+         */
+        public void finish() {
+            complete(null);
+        }
+
+        /**
+         * 等待方等待回源方的响应
+         *
+         * @return 共享的响应，不可共享或等待超时时返回null，由调用方自行回源
+         * @throws IOException 回源方请求上游失败
+         */
+        private Result await() throws IOException {
+            Result shared;
+            try {
+                shared = waitMillis > 0 ? result.get(waitMillis, TimeUnit.MILLISECONDS) : result.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (ExecutionException | TimeoutException e) {
+                return null;
+            }
+            if (shared != null && shared.failure != null) {
+                throw shared.failure;
+            }
+            return shared;
+        }
+
+        private void complete(Result shared) {
+            // 先移出再唤醒，之后到达的请求开始新一轮回源
+            flights.remove(key, result);
+            result.complete(shared);
+        }
+    }
+
+    private final Map<String, CompletableFuture<Result>> flights = new ConcurrentHashMap<>();
+
+    private final long maxBytes;
+
+    private final long waitMillis;
+
+    /**
+     * @param maxBytes   可共享的最大响应体字节数
+     * @param waitMillis 等待方的最长等待时长（毫秒），0表示不限
+     */
+    public SingleFlight(long maxBytes, long waitMillis) {
+        this.maxBytes = maxBytes;
+        this.waitMillis = waitMillis;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * 请求能否合并：仅限无请求体的 GET/HEAD，范围请求与协议升级不合并
+     */
+    public static boolean isCoalescable(HttpServletRequest req) {
+        String method = req.getMethod();
+        if (!"GET".equals(method) && !"HEAD".equals(method)) {
+            return false;
+        }
+        return req.getHeader("Range") == null && req.getHeader("Upgrade") == null
+                && req.getContentLengthLong() <= 0 && req.getHeader("Transfer-Encoding") == null;
+    }
+
+    /**
+     * 加入同键的进行中请求，没有时成为回源方
+     *
+     * @param route 路由
+     */
+    public Flight join(String route, HttpServletRequest req) {
+        String key = key(route, req);
+        CompletableFuture<Result> created = new CompletableFuture<>();
+        CompletableFuture<Result> existing = flights.putIfAbsent(key, created);
+        return existing == null ? new Flight(key, created, true) : new Flight(key, existing, false);
+    }
+
+    /**
+     * 等待方以共享的响应应答
+     *
+     * @return 是否已应答，返回false时由调用方自行回源
+     * @throws IOException 回源方请求上游失败
+     */
+    public boolean serve(Flight flight, HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        Result shared = flight.await();
+        if (shared == null) {
+            return false;
+        }
+        resp.setStatus(shared.status);
+        for (String[] header : shared.headers) {
+            resp.addHeader(header[0], header[1]);
+        }
+        if ("HEAD".equals(req.getMethod())) {
+            return true;
+        }
+        resp.setContentLengthLong(shared.body.length);
+        try (OutputStream out = resp.getOutputStream()) {
+            out.write(shared.body);
+        }
+        return true;
+    }
+
+    /**
+     * 合并键包含请求的主机名：多个主机名共用同一上游时，上游可能按 Host 返回不同的内容
+     */
+    private static String key(String route, HttpServletRequest req) {
+        StringBuilder key = new StringBuilder(128).append(req.getMethod()).append(' ').append(route)
+                .append(' ').append(ProxyHeaders.authority(req)).append(req.getRequestURI());
+        String query = req.getQueryString();
+        if (query != null) {
+            key.append('?').append(query);
+        }
+        for (String name : KEY_HEADERS) {
+            Enumeration<String> values = req.getHeaders(name);
+            while (values != null && values.hasMoreElements()) {
+                key.append('\n').append(name).append(':').append(values.nextElement());
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * 响应能否共享给其他客户端：设置 Cookie 的响应属于单个客户端；
+     * Vary 列出的请求头都在合并键内时，等待方与回源方的这些头必然一致
+     */
+    private static boolean isShareable(List<String[]> headers) {
+        for (String[] header : headers) {
+            if ("Set-Cookie".equalsIgnoreCase(header[0])) {
+                return false;
+            }
+            if ("Vary".equalsIgnoreCase(header[0])) {
+                for (String name : header[1].split(",")) {
+                    name = name.trim();
+                    if (!name.isEmpty() && !KEY_HEADERS.contains(name)) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    private static Set<String> caseInsensitiveSet(String... names) {
+        Set<String> set = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        Collections.addAll(set, names);
+        return Collections.unmodifiableSet(set);
+    }
+}
@@ -0,0 +1,74 @@
+package com.zjhy.love.worktools.service.proxy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * 流式转发工具
+ * 使用固定大小、可复用的缓冲区在两个流之间搬运数据，内存占用与报文大小无关
+ */
+public final class StreamRelay {
+
+    /**
+     * 单个缓冲区大小
+     */
+    public static final int BUFFER_SIZE = 16 * 1024;
+
+    /**
+     * 缓冲池容量，超出部分的缓冲区用完直接丢弃
+     */
+    private static final int POOL_CAPACITY = 256;
+
+    private static final BlockingQueue<byte[]> BUFFER_POOL = new ArrayBlockingQueue<>(POOL_CAPACITY);
+
+    private StreamRelay() {
+    }
+
+    /**
+     * 将输入流内容全部转发到输出流
+     * 输入端暂时无数据可读时立即刷新输出，保证分块/长轮询响应不会被积压
+     *
+     * @param in  输入流
+     * @param out 输出流
+     * @return 转发的字节数
+     * @throws IOException 读写异常
+     */
+    public static long relay(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = acquire();
+        try {
+            long total = 0;
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+                total += read;
+                if (in.available() <= 0) {
+                    out.flush();
+                }
+            }
+            out.flush();
+            return total;
+        } finally {
+            release(buffer);
+        }
+    }
+
+    /**
+     * 从缓冲池获取缓冲区
+     */
+    public static byte[] acquire() {
+        byte[] buffer = BUFFER_POOL.poll();
+        return buffer != null ? buffer : new byte[BUFFER_SIZE];
+    }
+
+    /**
+     * 归还缓冲区
+     */
+    public static void release(byte[] buffer) {
+        if (buffer != null && buffer.length == BUFFER_SIZE) {
+            BUFFER_POOL.offer(buffer);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.zjhy.love.worktools.service.proxy;
+
+import org.apache.http.entity.AbstractHttpEntity;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * 流式请求体
+ * 直接将客户端请求体转发到上游，长度未知时以分块编码发送
+ */
+public class StreamingEntity extends AbstractHttpEntity {
+
+    private final InputStream content;
+
+    private final long length;
+
+    /**
+     * @param content 请求体输入流
+     * @param length  请求体长度，未知时为-1
+     */
+    public StreamingEntity(InputStream content, long length) {
+        this.content = content;
+        this.length = length;
+        setChunked(length < 0);
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return false;
+    }
+
+    @Override
+    public long getContentLength() {
+        return length;
+    }
+
+    @Override
+    public InputStream getContent() {
+        return content;
+    }
+
+    @Override
+    public void writeTo(OutputStream outStream) throws IOException {
+        StreamRelay.relay(content, outStream);
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return true;
+    }
+}
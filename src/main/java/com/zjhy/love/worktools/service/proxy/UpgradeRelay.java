@@ -0,0 +1,261 @@
+package com.zjhy.love.worktools.service.proxy;
+
+import cn.hutool.core.text.CharSequenceUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 协议升级转发
+ * 处理 WebSocket、h2c 等携带 Upgrade 头的请求：与上游完成握手后，将客户端连接与上游连接作为双向字节管道对接
+ */
+public final class UpgradeRelay {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UpgradeRelay.class);
+
+    /**
+     * 响应头最大长度
+     */
+    private static final int MAX_HEAD_SIZE = 64 * 1024;
+
+    private static final int CONNECT_TIMEOUT_MS = 10000;
+
+    private static final int HEAD_TERMINATOR = 0x0D0A0D0A;
+
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    private UpgradeRelay() {
+    }
+
+    /**
+     * 是否为协议升级请求
+     */
+    public static boolean isUpgradeRequest(HttpServletRequest req) {
+        // h2c 升级由容器完成，升级前的请求作为 HTTP/2 的首个流到达时仍带有 Upgrade 头
+        if (ProxyHeaders.HTTP2.equals(req.getProtocol())) {
+            return false;
+        }
+        String connection = req.getHeader("Connection");
+        return req.getHeader("Upgrade") != null
+                && connection != null
+                && connection.toLowerCase(Locale.ROOT).contains("upgrade");
+    }
+
+    /**
+     * 转发协议升级请求
+     *
+     * @param req         客户端请求
+     * @param resp        客户端响应
+     * @param forwardHost 上游地址，格式为 host[:port]
+     */
+    public static void relay(HttpServletRequest req, HttpServletResponse resp, String forwardHost) throws IOException, ServletException {
+        Socket socket = connect(forwardHost);
+        boolean upgraded = false;
+        try {
+            OutputStream upstreamOut = socket.getOutputStream();
+            upstreamOut.write(buildRequestHead(req).getBytes(StandardCharsets.ISO_8859_1));
+            // 携带请求体的升级请求（如 h2c）需先完整发送请求体
+            writeRequestBody(req, upstreamOut);
+            upstreamOut.flush();
+
+            BufferedInputStream upstreamIn = new BufferedInputStream(socket.getInputStream(), StreamRelay.BUFFER_SIZE);
+            ResponseHead head = readResponseHead(upstreamIn);
+            if (head.status != HttpServletResponse.SC_SWITCHING_PROTOCOLS) {
+                // 上游拒绝升级，将其响应返回给客户端，分块与连接管理交由容器处理
+                resp.setStatus(head.status);
+                head.headers.stream()
+                        .filter(h -> !"Transfer-Encoding".equalsIgnoreCase(h[0]) && !"Connection".equalsIgnoreCase(h[0]))
+                        .forEach(h -> resp.addHeader(h[0], h[1]));
+                try (ServletOutputStream out = resp.getOutputStream()) {
+                    relayRejectedBody(upstreamIn, out, head);
+                }
+                return;
+            }
+            head.headers.forEach(h -> resp.addHeader(h[0], h[1]));
+            RelayUpgradeHandler handler = req.upgrade(RelayUpgradeHandler.class);
+            handler.bind(socket, upstreamIn);
+            upgraded = true;
+            LOGGER.debug("协议升级已建立: {} -> {}", req.getHeader("Upgrade"), forwardHost);
+        } finally {
+            if (!upgraded) {
+                socket.close();
+            }
+        }
+    }
+
+    private static Socket connect(String forwardHost) throws IOException {
+        int index = forwardHost.lastIndexOf(':');
+        String host = index > 0 ? forwardHost.substring(0, index) : forwardHost;
+        int port = index > 0 ? Integer.parseInt(forwardHost.substring(index + 1)) : 80;
+        Socket socket = new Socket();
+        socket.setTcpNoDelay(true);
+        socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MS);
+        return socket;
+    }
+
+    private static String buildRequestHead(HttpServletRequest req) {
+        StringBuilder head = new StringBuilder(512);
+        head.append(req.getMethod()).append(' ').append(req.getRequestURI());
+        if (CharSequenceUtil.isNotBlank(req.getQueryString())) {
+            head.append('?').append(req.getQueryString());
+        }
+        head.append(" HTTP/1.1\r\n");
+        Enumeration<String> headerNames = req.getHeaderNames();
+        while (headerNames.hasMoreElements()) {
+            String name = headerNames.nextElement();
+            Enumeration<String> values = req.getHeaders(name);
+            while (values.hasMoreElements()) {
+                head.append(name).append(": ").append(values.nextElement()).append("\r\n");
+            }
+        }
+        return head.append("\r\n").toString();
+    }
+
+    private static void writeRequestBody(HttpServletRequest req, OutputStream out) throws IOException {
+        long contentLength = req.getContentLengthLong();
+        if (contentLength > 0) {
+            copyFixed(req.getInputStream(), out, contentLength);
+            return;
+        }
+        if (req.getHeader("Transfer-Encoding") == null) {
+            return;
+        }
+        // 容器已解码分块请求体，按分块编码重新写出
+        InputStream in = req.getInputStream();
+        byte[] buffer = StreamRelay.acquire();
+        try {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write((Integer.toHexString(read) + "\r\n").getBytes(StandardCharsets.ISO_8859_1));
+                out.write(buffer, 0, read);
+                out.write(CRLF);
+            }
+            out.write("0\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+        } finally {
+            StreamRelay.release(buffer);
+        }
+    }
+
+    /**
+     * 读取上游响应头
+     */
+    private static ResponseHead readResponseHead(InputStream in) throws IOException {
+        ByteArrayOutputStream head = new ByteArrayOutputStream(512);
+        // 最近读取的4个字节，等于 \r\n\r\n 时响应头结束
+        int tail = 0;
+        while (tail != HEAD_TERMINATOR) {
+            int b = in.read();
+            if (b == -1) {
+                throw new IOException("上游在协议升级握手期间关闭连接");
+            }
+            head.write(b);
+            if (head.size() > MAX_HEAD_SIZE) {
+                throw new IOException("上游响应头过大");
+            }
+            tail = (tail << 8) | b;
+        }
+        String[] lines = head.toString(StandardCharsets.ISO_8859_1).split("\r\n");
+        String[] statusLine = lines[0].split(" ", 3);
+        if (statusLine.length < 2) {
+            throw new IOException("无效的上游响应: " + lines[0]);
+        }
+        ResponseHead responseHead = new ResponseHead(Integer.parseInt(statusLine[1]));
+        for (int i = 1; i < lines.length; i++) {
+            int colon = lines[i].indexOf(':');
+            if (colon > 0) {
+                responseHead.headers.add(new String[]{lines[i].substring(0, colon).trim(), lines[i].substring(colon + 1).trim()});
+            }
+        }
+        return responseHead;
+    }
+
+    private static void relayRejectedBody(InputStream in, OutputStream out, ResponseHead head) throws IOException {
+        String transferEncoding = head.getHeader("Transfer-Encoding");
+        if (transferEncoding != null && transferEncoding.toLowerCase(Locale.ROOT).contains("chunked")) {
+            while (true) {
+                String sizeLine = readLine(in);
+                int extension = sizeLine.indexOf(';');
+                long size = Long.parseLong((extension >= 0 ? sizeLine.substring(0, extension) : sizeLine).trim(), 16);
+                if (size == 0) {
+                    // 跳过尾部头域
+                    while (!readLine(in).isEmpty()) {
+                        // ignore trailer
+                    }
+                    return;
+                }
+                copyFixed(in, out, size);
+                readLine(in);
+            }
+        }
+        String contentLength = head.getHeader("Content-Length");
+        if (contentLength == null) {
+            StreamRelay.relay(in, out);
+            return;
+        }
+        copyFixed(in, out, Long.parseLong(contentLength));
+    }
+
+    private static void copyFixed(InputStream in, OutputStream out, long length) throws IOException {
+        long remaining = length;
+        byte[] buffer = StreamRelay.acquire();
+        try {
+            while (remaining > 0) {
+                int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read == -1) {
+                    break;
+                }
+                out.write(buffer, 0, read);
+                remaining -= read;
+            }
+        } finally {
+            StreamRelay.release(buffer);
+        }
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = in.read()) != -1 && b != '\n') {
+            if (b != '\r') {
+                line.append((char) b);
+            }
+        }
+        return line.toString();
+    }
+
+    /**
+     * 上游响应头
+     */
+    private static final class ResponseHead {
+        private final int status;
+        private final List<String[]> headers = new ArrayList<>();
+
+        private ResponseHead(int status) {
+            this.status = status;
+        }
+
+        private String getHeader(String name) {
+            return headers.stream()
+                    .filter(h -> h[0].equalsIgnoreCase(name))
+                    .map(h -> h[1])
+                    .findFirst()
+                    .orElse(null);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.zjhy.love.worktools.service.proxy;
+
+import com.zjhy.love.worktools.model.HttpProxyConfig;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 上游连接客户端
+ * 基于连接池的长连接HTTP客户端，按转发目标（SSH隧道本地端口）维护连接
+ */
+public class UpstreamClient {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UpstreamClient.class);
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+
+    private final CloseableHttpClient httpClient;
+
+    public UpstreamClient(HttpProxyConfig config) {
+        connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(config.getMaxTotalConnections());
+        connectionManager.setDefaultMaxPerRoute(config.getMaxConnectionsPerRoute());
+        connectionManager.setValidateAfterInactivity(config.getValidateAfterInactivityMillis());
+
+        // 超时有上限，上游失联时请求尽快失败，不长期占用容器线程
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(config.getConnectTimeoutMillis())
+                .setSocketTimeout(config.getReadTimeoutMillis())
+                .setConnectionRequestTimeout(config.getConnectionRequestTimeoutMillis())
+                .build();
+
+        // 代理只做透传：不跟随重定向、不处理Cookie、不解压响应体
+        httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .evictIdleConnections(config.getIdleEvictMillis(), TimeUnit.MILLISECONDS)
+                .evictExpiredConnections()
+                .disableRedirectHandling()
+                .disableCookieManagement()
+                .disableContentCompression()
+                .disableAutomaticRetries()
+                .build();
+    }
+
+    /**
+     * 执行上游请求
+     *
+     * @param request 请求
+     * @return 响应，调用方负责关闭以归还连接
+     * @throws IOException 请求异常
+     */
+    public CloseableHttpResponse execute(HttpUriRequest request) throws IOException {
+        return httpClient.execute(request);
+    }
+
+    /**
+     * 获取连接池总体统计
+     */
+    public PoolStats getTotalStats() {
+        return connectionManager.getTotalStats();
+    }
+
+    /**
+     * 获取各转发目标的连接池统计
+     *
+     * @return 目标地址到统计信息的映射
+     */
+    public Map<String, PoolStats> getRouteStats() {
+        Map<String, PoolStats> stats = new LinkedHashMap<>();
+        for (HttpRoute route : connectionManager.getRoutes()) {
+            stats.put(route.getTargetHost().toHostString(), connectionManager.getStats(route));
+        }
+        return stats;
+    }
+
+    /**
+     * 关闭客户端并释放所有连接
+     */
+    public void close() {
+        try {
+            httpClient.close();
+        } catch (IOException e) {
+            LOGGER.error("关闭上游连接池出错", e);
+        }
+    }
+}
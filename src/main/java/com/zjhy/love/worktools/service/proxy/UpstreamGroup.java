@@ -0,0 +1,256 @@
+package com.zjhy.love.worktools.service.proxy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * 上游分组
+ * 同一服务的多个实例（各自对应一条SSH隧道）组成一个分组，转发时按负载均衡策略选择成员，
+ * 连续失败的成员会被暂时摘除，冷却结束后自动恢复
+ */
+public class UpstreamGroup {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UpstreamGroup.class);
+
+    /**
+     * 轮询
+     */
+    public static final String ROUND_ROBIN = "round_robin";
+
+    /**
+     * 最少进行中请求
+     */
+    public static final String LEAST_IN_FLIGHT = "least_in_flight";
+
+    /**
+     * 按权重平滑轮询
+     */
+    public static final String WEIGHTED = "weighted";
+
+    private final String name;
+
+    private final String strategy;
+
+    private final int failureThreshold;
+
+    private final long ejectMillis;
+
+    private final AtomicInteger cursor = new AtomicInteger();
+
+    /**
+     * 成员列表，修改时整体替换
+     */
+    private volatile List<Member> members = List.of();
+
+    /**
+     * @param name             分组名称，作为路由目标使用
+     * @param strategy         负载均衡策略
+     * @param failureThreshold 连续失败多少次后摘除成员
+     * @param ejectMillis      摘除时长（毫秒）
+     */
+    public UpstreamGroup(String name, String strategy, int failureThreshold, long ejectMillis) {
+        this.name = name;
+        this.strategy = strategy == null ? ROUND_ROBIN : strategy.toLowerCase(Locale.ROOT);
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.ejectMillis = ejectMillis;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * 添加成员，地址已存在时更新权重
+     *
+     * @param address 成员地址，格式为 host:port
+     * @param weight  权重
+     */
+    public synchronized void addMember(String address, double weight) {
+        List<Member> copy = new ArrayList<>(members);
+        copy.removeIf(member -> member.address.equals(address));
+        copy.add(new Member(address, weight));
+        members = List.copyOf(copy);
+    }
+
+    /**
+     * 移除成员
+     *
+     * @param address 成员地址
+     */
+    public synchronized void removeMember(String address) {
+        List<Member> copy = new ArrayList<>(members);
+        if (copy.removeIf(member -> member.address.equals(address))) {
+            members = List.copyOf(copy);
+        }
+    }
+
+    /**
+     * 获取全部成员
+     */
+    public List<Member> getMembers() {
+        return members;
+    }
+
+    /**
+     * 选择一个成员并计入进行中请求，调用方完成后必须调用 {@link #release(Member, boolean)}
+     * 所有成员都被摘除时仍返回最早恢复的成员，避免整个服务不可用
+     *
+     * @return 选中的成员，分组为空时返回null
+     */
+    public Member acquire() {
+        return acquire(address -> true);
+    }
+
+    /**
+     * 选择一个成员，优先选择未摘除且地址健康的成员
+     * 没有健康成员时退回未摘除的成员，都被摘除时返回最早恢复的成员
+     *
+     * @param healthy 成员地址是否健康，如地址未熔断
+     * @return 选中的成员，分组为空时返回null
+     */
+    public Member acquire(Predicate<String> healthy) {
+        List<Member> snapshot = members;
+        if (snapshot.isEmpty()) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        List<Member> available = new ArrayList<>(snapshot.size());
+        List<Member> unhealthy = new ArrayList<>();
+        for (Member member : snapshot) {
+            if (member.ejectedUntil > now) {
+                continue;
+            }
+            if (healthy.test(member.address)) {
+                available.add(member);
+            } else {
+                unhealthy.add(member);
+            }
+        }
+        if (available.isEmpty()) {
+            available = unhealthy;
+        }
+        Member chosen;
+        if (available.isEmpty()) {
+            chosen = earliestRecovery(snapshot);
+        } else if (LEAST_IN_FLIGHT.equals(strategy)) {
+            chosen = leastInFlight(available);
+        } else if (WEIGHTED.equals(strategy)) {
+            chosen = weighted(available);
+        } else {
+            chosen = available.get(Math.floorMod(cursor.getAndIncrement(), available.size()));
+        }
+        chosen.inFlight.incrementAndGet();
+        return chosen;
+    }
+
+    /**
+     * 归还成员并记录本次结果
+     *
+     * @param member  成员
+     * @param success 本次请求是否成功
+     */
+    public void release(Member member, boolean success) {
+        member.inFlight.decrementAndGet();
+        if (success) {
+            member.failures.set(0);
+            return;
+        }
+        if (member.failures.incrementAndGet() >= failureThreshold) {
+            member.failures.set(0);
+            member.ejectedUntil = System.currentTimeMillis() + ejectMillis;
+            LOGGER.warn("上游成员连续失败，暂时摘除{}ms: [{}] {}", ejectMillis, name, member.address);
+        }
+    }
+
+    private Member leastInFlight(List<Member> available) {
+        // 从轮询位置开始扫描，进行中请求数相同时依次轮换
+        int start = Math.floorMod(cursor.getAndIncrement(), available.size());
+        Member best = null;
+        for (int i = 0; i < available.size(); i++) {
+            Member member = available.get((start + i) % available.size());
+            if (best == null || member.inFlight.get() < best.inFlight.get()) {
+                best = member;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 平滑加权轮询：每轮所有成员累加自身权重，选中累计值最大者并减去总权重
+     */
+    private synchronized Member weighted(List<Member> available) {
+        double total = 0;
+        Member best = null;
+        for (Member member : available) {
+            member.currentWeight += member.weight;
+            total += member.weight;
+            if (best == null || member.currentWeight > best.currentWeight) {
+                best = member;
+            }
+        }
+        best.currentWeight -= total;
+        return best;
+    }
+
+    private static Member earliestRecovery(List<Member> snapshot) {
+        Member best = snapshot.get(0);
+        for (Member member : snapshot) {
+            if (member.ejectedUntil < best.ejectedUntil) {
+                best = member;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 分组成员
+     */
+    public static final class Member {
+
+        private final String address;
+
+        private final double weight;
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        private final AtomicInteger failures = new AtomicInteger();
+
+        private volatile long ejectedUntil;
+
+        private double currentWeight;
+
+        private Member(String address, double weight) {
+            this.address = address;
+            this.weight = weight > 0 ? weight : 1;
+        }
+
+        public String getAddress() {
+            return address;
+        }
+
+        public double getWeight() {
+            return weight;
+        }
+
+        public int getInFlight() {
+            return inFlight.get();
+        }
+
+        /**
+         * 当前是否处于摘除状态
+         */
+        public boolean isEjected() {
+            return ejectedUntil > System.currentTimeMillis();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.zjhy.love.worktools.service.tunnel;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * 直接内存缓冲池
+ * 套接字读写使用直接缓冲区可省去JDK内部的临时拷贝，复用避免频繁分配堆外内存
+ */
+final class DirectBufferPool {
+
+    /**
+     * 单个缓冲区大小，与SSH通道的最大包长相近
+     */
+    static final int BUFFER_SIZE = 32 * 1024;
+
+    /**
+     * 缓冲池容量，超出部分的缓冲区用完直接丢弃
+     */
+    private static final int POOL_CAPACITY = 512;
+
+    private static final BlockingQueue<ByteBuffer> BUFFER_POOL = new ArrayBlockingQueue<>(POOL_CAPACITY);
+
+    private DirectBufferPool() {
+    }
+
+    /**
+     * 从缓冲池获取已清空的缓冲区
+     */
+    static ByteBuffer acquire() {
+        ByteBuffer buffer = BUFFER_POOL.poll();
+        return buffer != null ? buffer : ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+
+    /**
+     * 归还缓冲区
+     */
+    static void release(ByteBuffer buffer) {
+        if (buffer != null && buffer.capacity() == BUFFER_SIZE) {
+            buffer.clear();
+            BUFFER_POOL.offer(buffer);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.zjhy.love.worktools.service.tunnel;
+
+import java.io.IOException;
+import java.net.BindException;
+import java.util.BitSet;
+
+/**
+ * 本地端口分配器
+ * 分配与绑定是同一步：端口直接交给监听器绑定，绑定成功即为租用，不存在先探测再绑定之间被其他进程抢占的窗口。
+ * 未指定端口范围时绑定0由系统分配临时端口，每个转发只需一次绑定；指定范围时以位图记录租用情况，
+ * 从上次分配的位置继续查找空闲端口，只有被其他进程占用的端口才会多一次绑定尝试
+ */
+public class PortAllocator {
+
+    /**
+     * 按指定端口绑定监听
+     */
+    @FunctionalInterface
+    public interface Binder {
+        /**
+         * @param port 端口，0表示由系统分配
+         * @return 实际绑定的端口
+         * @throws IOException 绑定失败，端口被占用时为 {@link BindException}
+         */
+        int bind(int port) throws IOException;
+    }
+
+    private final int minPort;
+
+    private final int maxPort;
+
+    private final BitSet leased = new BitSet();
+
+    /**
+     * 范围模式下下一次查找的起点
+     */
+    private int cursor;
+
+    /**
+     * 由系统分配临时端口
+     */
+    public PortAllocator() {
+        this(0, 0);
+    }
+
+    /**
+     * 在指定范围内分配端口
+     *
+     * @param minPort 最小端口，0表示由系统分配
+     * @param maxPort 最大端口
+     */
+    public PortAllocator(int minPort, int maxPort) {
+        this.minPort = minPort;
+        this.maxPort = Math.max(minPort, maxPort);
+        this.cursor = minPort;
+    }
+
+    /**
+     * 分配端口并绑定
+     *
+     * @param binder 监听绑定
+     * @return 已租用的端口
+     * @throws IOException 没有可用端口或绑定失败
+     */
+    public int allocate(Binder binder) throws IOException {
+        if (minPort <= 0) {
+            // 系统分配的端口互不冲突，绑定无需持锁
+            int port = binder.bind(0);
+            reserve(port);
+            return port;
+        }
+        return allocateInRange(binder);
+    }
+
+    private synchronized int allocateInRange(Binder binder) throws IOException {
+        int range = maxPort - minPort + 1;
+        for (int tried = 0; tried < range; ) {
+            int port = leased.nextClearBit(cursor);
+            if (port > maxPort) {
+                // 回到范围起点，已跳过的端口计入尝试次数
+                tried += maxPort - cursor + 1;
+                cursor = minPort;
+                continue;
+            }
+            tried += port - cursor + 1;
+            if (tried > range) {
+                // 回绕后又到了本轮已尝试过的端口
+                break;
+            }
+            cursor = port == maxPort ? minPort : port + 1;
+            try {
+                int bound = binder.bind(port);
+                leased.set(bound);
+                return bound;
+            } catch (BindException e) {
+                // 被其他进程占用，继续下一个
+            }
+        }
+        throw new IOException("无法找到可用的本地端口: " + minPort + "-" + maxPort);
+    }
+
+    /**
+     * 登记已由调用方自行绑定的端口
+     *
+     * @param port 端口
+     */
+    public synchronized void reserve(int port) {
+        leased.set(port);
+    }
+
+    /**
+     * 归还端口
+     *
+     * @param port 端口
+     */
+    public synchronized void release(int port) {
+        if (port > 0) {
+            leased.clear(port);
+        }
+    }
+
+    /**
+     * 归还全部端口
+     */
+    public synchronized void releaseAll() {
+        leased.clear();
+        cursor = minPort;
+    }
+
+    /**
+     * 已租用的端口数
+     */
+    public synchronized int getLeasedCount() {
+        return leased.cardinality();
+    }
+}
@@ -0,0 +1,472 @@
+package com.zjhy.love.worktools.service.tunnel;
+
+import com.jcraft.jsch.Channel;
+import com.zjhy.love.worktools.service.metrics.TrafficMetrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 隧道连接
+ * 一个本地套接字与一个SSH通道的配对。
+ * 本地到远端：选择器线程读出数据后放入本连接的发送队列，由固定数量的写线程轮流写入通道输出流，
+ * 每轮最多写出 {@link #WRITE_BATCH_BYTES} 后让出线程，远端窗口已满时只阻塞当前写线程；
+ * 队列超过高水位时暂停读取本地数据，写线程将队列降到低水位后恢复；
+ * 远端到本地：会话读线程写入套接字，写不完的部分暂存，由选择器线程在可写时续写，
+ * 暂存超过上限时会话读线程自行续写，不依赖选择器线程，避免两者互相等待
+ */
+final class TunnelConnection {
+
+    /**
+     * 暂存数据上限，超过后会话读线程等待套接字写出
+     */
+    private static final int MAX_PENDING_BYTES = 4 * 1024 * 1024;
+
+    /**
+     * 会话读线程等待套接字可写的间隔（毫秒）
+     */
+    private static final long DRAIN_WAIT_MILLIS = 10;
+
+    /**
+     * 发送队列高水位，超过后暂停读取本地数据
+     */
+    private static final int OUTBOUND_HIGH_WATER = 1024 * 1024;
+
+    /**
+     * 发送队列低水位，降到此值后恢复读取
+     */
+    private static final int OUTBOUND_LOW_WATER = 256 * 1024;
+
+    /**
+     * 写线程每轮为一个连接写出的字节数，写满后重新排队，让其他连接的发送队列得到处理
+     */
+    private static final int WRITE_BATCH_BYTES = 256 * 1024;
+
+    private final SocketChannel socket;
+
+    private final TunnelEngine.SelectorLoop loop;
+
+    /**
+     * 向通道输出流写数据的线程池
+     */
+    private final Executor writer;
+
+    private final TrafficMetrics metrics;
+
+    private final Runnable onClose;
+
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    /**
+     * 待写入套接字的数据，由本对象的锁保护
+     */
+    private final Deque<ByteBuffer> pending = new ArrayDeque<>();
+
+    private int pendingBytes;
+
+    /**
+     * 待写入通道的本地数据，由 outbound 自身的锁保护
+     */
+    private final Deque<byte[]> outbound = new ArrayDeque<>();
+
+    private int outboundBytes;
+
+    /**
+     * 本地EOF已入队，写线程写完队列后向远端发送EOF
+     */
+    private boolean outboundEof;
+
+    /**
+     * 写线程正在处理发送队列
+     */
+    private boolean writerRunning;
+
+    /**
+     * 发送队列超过高水位，已暂停读取
+     */
+    private boolean readPaused;
+
+    /**
+     * 本地已读到EOF，只在选择器线程上读写
+     */
+    private boolean readEof;
+
+    /**
+     * 远端已发送EOF
+     */
+    private boolean remoteEof;
+
+    /**
+     * 本地到远端方向已结束（EOF已发往远端），由本对象的锁保护
+     */
+    private boolean localEof;
+
+    private volatile Channel channel;
+
+    private OutputStream sshOut;
+
+    private SelectionKey key;
+
+    TunnelConnection(SocketChannel socket, TunnelEngine.SelectorLoop loop, Executor writer, TrafficMetrics metrics,
+                     Runnable onClose) {
+        this.socket = socket;
+        this.loop = loop;
+        this.writer = writer;
+        this.metrics = metrics;
+        this.onClose = onClose;
+    }
+
+    /**
+     * 关联SSH通道，关闭连接时一并断开
+     */
+    void attach(Channel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * 供JSch写入远端数据的输出流，JSch收到远端EOF或关闭时会调用其 close
+     */
+    OutputStream localOutput() {
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                writeLocal(bytes, offset, length);
+            }
+
+            @Override
+            public void close() {
+                onRemoteEof();
+            }
+        };
+    }
+
+    /**
+     * 通道打开后开始读取本地数据
+     *
+     * @param sshOut 通道输出流
+     */
+    void start(OutputStream sshOut) {
+        loop.execute(() -> {
+            if (closed.get()) {
+                return;
+            }
+            this.sshOut = sshOut;
+            int ops = SelectionKey.OP_READ;
+            synchronized (this) {
+                if (!pending.isEmpty()) {
+                    ops |= SelectionKey.OP_WRITE;
+                }
+            }
+            key = loop.register(socket, ops, this);
+            if (key == null) {
+                close();
+            }
+        });
+    }
+
+    /**
+     * 本地可读，在选择器线程上调用
+     */
+    void onReadable() {
+        ByteBuffer buffer = DirectBufferPool.acquire();
+        try {
+            int read = socket.read(buffer);
+            if (read < 0) {
+                readEof = true;
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+                // 队列写完后由写线程关闭通道输出流，向远端发送EOF
+                enqueueOutbound(null);
+                return;
+            }
+            if (read > 0) {
+                buffer.flip();
+                byte[] data = new byte[read];
+                buffer.get(data);
+                enqueueOutbound(data);
+            }
+        } catch (IOException e) {
+            metrics.recordError();
+            close();
+        } finally {
+            DirectBufferPool.release(buffer);
+        }
+    }
+
+    /**
+     * 放入发送队列，在选择器线程上调用
+     *
+     * @param data 本地数据，为null表示本地EOF
+     */
+    private void enqueueOutbound(byte[] data) {
+        boolean schedule;
+        synchronized (outbound) {
+            if (data == null) {
+                outboundEof = true;
+            } else {
+                outbound.add(data);
+                outboundBytes += data.length;
+            }
+            if (outboundBytes > OUTBOUND_HIGH_WATER && !readPaused) {
+                readPaused = true;
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+            }
+            schedule = !writerRunning;
+            writerRunning = true;
+        }
+        if (schedule) {
+            try {
+                writer.execute(this::flushOutbound);
+            } catch (RejectedExecutionException e) {
+                close();
+            }
+        }
+    }
+
+    /**
+     * 将发送队列写入通道输出流，在写线程上执行，队列写空或本轮写满后退出
+     */
+    private void flushOutbound() {
+        int written = 0;
+        while (!closed.get()) {
+            if (written >= WRITE_BATCH_BYTES) {
+                yieldWriter();
+                return;
+            }
+            byte[] data;
+            boolean more;
+            boolean resume = false;
+            synchronized (outbound) {
+                data = outbound.poll();
+                if (data == null && !outboundEof) {
+                    writerRunning = false;
+                    return;
+                }
+                if (data != null) {
+                    outboundBytes -= data.length;
+                    if (readPaused && outboundBytes <= OUTBOUND_LOW_WATER) {
+                        readPaused = false;
+                        resume = true;
+                    }
+                }
+                more = !outbound.isEmpty();
+            }
+            if (resume) {
+                loop.execute(this::resumeRead);
+            }
+            try {
+                if (data == null) {
+                    // 关闭通道输出流即向远端发送EOF，远端仍可继续回写
+                    sshOut.close();
+                    onLocalEof();
+                    return;
+                }
+                sshOut.write(data);
+                // 队列中还有数据时合并到同一次发送
+                if (!more) {
+                    sshOut.flush();
+                }
+                metrics.addBytesOut(data.length);
+                written += data.length;
+            } catch (IOException e) {
+                metrics.recordError();
+                closeLater();
+                return;
+            }
+        }
+    }
+
+    /**
+     * 写完本轮后把本连接重新排到写线程池队尾，writerRunning 保持为 true
+     */
+    private void yieldWriter() {
+        try {
+            sshOut.flush();
+            writer.execute(this::flushOutbound);
+        } catch (IOException e) {
+            metrics.recordError();
+            closeLater();
+        } catch (RejectedExecutionException e) {
+            closeLater();
+        }
+    }
+
+    private void resumeRead() {
+        if (key != null && key.isValid() && !readEof) {
+            key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+        }
+    }
+
+    private void onLocalEof() {
+        boolean done;
+        synchronized (this) {
+            localEof = true;
+            done = remoteEof && pending.isEmpty();
+        }
+        if (done) {
+            closeLater();
+        }
+    }
+
+    /**
+     * 本地可写，在选择器线程上调用
+     */
+    void onWritable() {
+        boolean done;
+        synchronized (this) {
+            try {
+                drain();
+            } catch (IOException e) {
+                metrics.recordError();
+                closeLater();
+                return;
+            }
+            if (!pending.isEmpty()) {
+                return;
+            }
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+            done = remoteEof && finishOutput();
+        }
+        if (done) {
+            close();
+        }
+    }
+
+    /**
+     * 关闭连接，可重复调用
+     */
+    void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        if (key != null) {
+            key.cancel();
+        }
+        TunnelEngine.closeQuietly(socket);
+        synchronized (this) {
+            pending.forEach(DirectBufferPool::release);
+            pending.clear();
+            pendingBytes = 0;
+            notifyAll();
+        }
+        synchronized (outbound) {
+            outbound.clear();
+            outboundBytes = 0;
+        }
+        Channel current = channel;
+        if (current != null) {
+            current.disconnect();
+        }
+        onClose.run();
+    }
+
+    private synchronized void writeLocal(byte[] bytes, int offset, int length) throws IOException {
+        if (closed.get()) {
+            throw new IOException("连接已关闭");
+        }
+        metrics.addBytesIn(length);
+        int position = offset;
+        int end = offset + length;
+        while (position < end) {
+            ByteBuffer buffer = DirectBufferPool.acquire();
+            int chunk = Math.min(buffer.remaining(), end - position);
+            buffer.put(bytes, position, chunk).flip();
+            position += chunk;
+            if (pending.isEmpty()) {
+                socket.write(buffer);
+            }
+            if (buffer.hasRemaining()) {
+                pending.add(buffer);
+                pendingBytes += buffer.remaining();
+            } else {
+                DirectBufferPool.release(buffer);
+            }
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        requestWrite();
+        // 套接字写不动时在本线程续写，阻塞会话读线程即是对远端的背压
+        while (pendingBytes > MAX_PENDING_BYTES && !closed.get()) {
+            drain();
+            if (pendingBytes > MAX_PENDING_BYTES) {
+                try {
+                    wait(DRAIN_WAIT_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("写入本地连接被中断", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 尽量写出暂存数据，调用时需持有本对象的锁
+     */
+    private void drain() throws IOException {
+        while (!pending.isEmpty()) {
+            ByteBuffer buffer = pending.peek();
+            pendingBytes -= socket.write(buffer);
+            if (buffer.hasRemaining()) {
+                return;
+            }
+            DirectBufferPool.release(pending.poll());
+        }
+        notifyAll();
+    }
+
+    private void requestWrite() {
+        loop.execute(() -> {
+            if (key != null && key.isValid()) {
+                key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+            }
+        });
+    }
+
+    private void onRemoteEof() {
+        boolean done;
+        synchronized (this) {
+            if (remoteEof || closed.get()) {
+                return;
+            }
+            remoteEof = true;
+            done = pending.isEmpty() && finishOutput();
+        }
+        if (done) {
+            closeLater();
+        }
+    }
+
+    /**
+     * 远端数据已全部写出后关闭本地写方向，调用时需持有本对象的锁
+     *
+     * @return 两个方向是否都已结束
+     */
+    private boolean finishOutput() {
+        try {
+            socket.shutdownOutput();
+        } catch (IOException e) {
+            return true;
+        }
+        return localEof;
+    }
+
+    /**
+     * 在选择器线程上关闭，避免在JSch的回调中断开其通道
+     */
+    private void closeLater() {
+        loop.execute(this::close);
+    }
+}
@@ -0,0 +1,399 @@
+package com.zjhy.love.worktools.service.tunnel;
+
+import com.jcraft.jsch.ChannelDirectTCPIP;
+import com.jcraft.jsch.Session;
+import com.zjhy.love.worktools.service.metrics.MetricsRegistry;
+import com.zjhy.love.worktools.service.metrics.TrafficMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 隧道引擎
+ * 以少量选择器线程接收本地连接，并通过SSH的 direct-tcpip 通道转发数据，替代JSch为每个转发和每个连接各开线程的做法。
+ * 不给通道设置输入流，JSch便不会为通道启动线程：本地到远端的数据由选择器线程读出后放入连接的发送队列，
+ * 由写线程写入通道，远端窗口已满时只阻塞当前写线程，不影响选择器线程；
+ * 远端到本地的数据由会话读线程回调写入套接字，写不完的部分暂存并由选择器线程续写。
+ * 写线程与建连线程都是固定上限的线程池，空闲时回收，线程数不随转发数和连接数增长。
+ * 代价是同时有 {@link #WRITER_THREADS} 个连接因远端窗口已满而阻塞时，其他连接的发送需排队等待；
+ * 同时有 {@link #CONNECT_THREADS} 个通道在等待远端确认时，新连接排队，排队超过 {@link #MAX_PENDING_CONNECTS} 后直接关闭
+ * 每条转发以 本地地址:端口 为名称在指标注册表中记录连接数、字节数、建连耗时和连接时长
+ */
+public class TunnelEngine {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TunnelEngine.class);
+
+    /**
+     * 打开SSH通道的超时时间（毫秒），目标不可达时尽快释放建连线程
+     */
+    private static final int CHANNEL_CONNECT_TIMEOUT_MILLIS = 5000;
+
+    /**
+     * 建连线程数，打开通道需要等待远端确认，放在选择器线程之外进行；
+     * 每个通道最多等待 {@link #CHANNEL_CONNECT_TIMEOUT_MILLIS}，少数不可达的目标只会短时占用线程
+     */
+    private static final int CONNECT_THREADS = 16;
+
+    /**
+     * 等待建连的本地连接数上限
+     */
+    private static final int MAX_PENDING_CONNECTS = 1024;
+
+    /**
+     * 写线程数，每个发送队列非空的连接轮流占用
+     */
+    private static final int WRITER_THREADS = 8;
+
+    /**
+     * 空闲的建连与写线程回收时间（秒）
+     */
+    private static final long WORKER_KEEP_ALIVE_SECONDS = 30;
+
+    private final SessionProvider sessionProvider;
+
+    private final MetricsRegistry metrics;
+
+    private final SelectorLoop[] loops;
+
+    private final AtomicInteger nextLoop = new AtomicInteger();
+
+    private final ThreadPoolExecutor connectExecutor;
+
+    /**
+     * 向通道写入本地数据的线程池，发送队列非空的连接排队轮流写出
+     */
+    private final ThreadPoolExecutor writeExecutor;
+
+    /**
+     * 本地监听地址到监听通道的映射
+     */
+    private final Map<String, ServerSocketChannel> listeners = new ConcurrentHashMap<>();
+
+    private final AtomicInteger activeConnections = new AtomicInteger();
+
+    /**
+     * @param sessionProvider SSH会话来源
+     * @param loopCount       选择器线程数
+     * @param metrics         转发指标注册表
+     * @throws IOException 创建选择器失败
+     */
+    public TunnelEngine(SessionProvider sessionProvider, int loopCount, MetricsRegistry metrics) throws IOException {
+        this.sessionProvider = sessionProvider;
+        this.metrics = metrics;
+        this.loops = new SelectorLoop[Math.max(1, loopCount)];
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new SelectorLoop("ssh-tunnel-selector-" + i);
+        }
+        this.connectExecutor = new ThreadPoolExecutor(CONNECT_THREADS, CONNECT_THREADS, WORKER_KEEP_ALIVE_SECONDS,
+                TimeUnit.SECONDS, new LinkedBlockingQueue<>(MAX_PENDING_CONNECTS), daemonThreads("ssh-tunnel-connect-"));
+        this.connectExecutor.allowCoreThreadTimeOut(true);
+        // 每个连接同一时刻最多有一个写任务在队列中，队列长度不超过连接数
+        this.writeExecutor = new ThreadPoolExecutor(WRITER_THREADS, WRITER_THREADS, WORKER_KEEP_ALIVE_SECONDS,
+                TimeUnit.SECONDS, new LinkedBlockingQueue<>(), daemonThreads("ssh-tunnel-writer-"));
+        this.writeExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger threadIndex = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * 添加转发
+     *
+     * @param localHost  本地监听地址
+     * @param localPort  本地监听端口，0表示由系统分配
+     * @param remoteHost 远程目标地址
+     * @param remotePort 远程目标端口
+     * @return 实际监听的本地端口
+     * @throws IOException 监听失败
+     */
+    public int addForward(String localHost, int localPort, String remoteHost, int remotePort) throws IOException {
+        ServerSocketChannel server = ServerSocketChannel.open();
+        try {
+            server.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            server.bind(new InetSocketAddress(localHost, localPort));
+            server.configureBlocking(false);
+        } catch (IOException e) {
+            server.close();
+            throw e;
+        }
+        int boundPort = ((InetSocketAddress) server.getLocalAddress()).getPort();
+        Forward forward = new Forward(remoteHost, remotePort, metrics.get(key(localHost, boundPort)));
+        listeners.put(key(localHost, boundPort), server);
+        loops[0].execute(() -> loops[0].register(server, SelectionKey.OP_ACCEPT, forward));
+        return boundPort;
+    }
+
+    /**
+     * 删除转发
+     * 停止监听，已建立的连接继续工作直到任一端关闭
+     *
+     * @param localHost 本地监听地址
+     * @param localPort 本地监听端口
+     */
+    public void removeForward(String localHost, int localPort) {
+        ServerSocketChannel server = listeners.remove(key(localHost, localPort));
+        metrics.remove(key(localHost, localPort));
+        if (server != null) {
+            // 关闭通道会一并取消其选择键，引擎已关闭时同样生效
+            closeQuietly(server);
+        }
+    }
+
+    /**
+     * 当前活动连接数
+     */
+    public int getActiveConnections() {
+        return activeConnections.get();
+    }
+
+    /**
+     * 关闭引擎，停止全部监听和连接
+     */
+    public void close() {
+        listeners.values().forEach(TunnelEngine::closeQuietly);
+        listeners.clear();
+        connectExecutor.shutdownNow();
+        writeExecutor.shutdownNow();
+        for (SelectorLoop loop : loops) {
+            loop.close();
+        }
+    }
+
+    private void accept(ServerSocketChannel server, Forward forward) {
+        SocketChannel socket;
+        try {
+            while ((socket = server.accept()) != null) {
+                socket.configureBlocking(false);
+                socket.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                SocketChannel accepted = socket;
+                try {
+                    connectExecutor.execute(() -> openChannel(accepted, forward));
+                } catch (RejectedExecutionException e) {
+                    LOGGER.warn("等待建连的连接过多，拒绝本地连接: {}:{}", forward.remoteHost, forward.remotePort);
+                    forward.metrics.recordError();
+                    closeQuietly(accepted);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.warn("接收本地连接失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 为本地连接打开SSH通道，成功后交给选择器线程读写
+     */
+    private void openChannel(SocketChannel socket, Forward forward) {
+        TrafficMetrics forwardMetrics = forward.metrics;
+        long openedAt = System.nanoTime();
+        Session session;
+        try {
+            session = sessionProvider.acquire();
+        } catch (Exception e) {
+            LOGGER.warn("没有可用的SSH会话: {}", e.getMessage());
+            forwardMetrics.recordError();
+            closeQuietly(socket);
+            return;
+        }
+        activeConnections.incrementAndGet();
+        forwardMetrics.connectionOpened();
+        SelectorLoop loop = loops[Math.floorMod(nextLoop.getAndIncrement(), loops.length)];
+        // 连接关闭时归还会话，无论通道是否打开成功都只归还一次
+        TunnelConnection connection = new TunnelConnection(socket, loop, writeExecutor, forwardMetrics, () -> {
+            activeConnections.decrementAndGet();
+            forwardMetrics.connectionClosed(System.nanoTime() - openedAt);
+            sessionProvider.release(session);
+        });
+        try {
+            ChannelDirectTCPIP channel = (ChannelDirectTCPIP) session.openChannel("direct-tcpip");
+            channel.setHost(forward.remoteHost);
+            channel.setPort(forward.remotePort);
+            InetSocketAddress origin = (InetSocketAddress) socket.getRemoteAddress();
+            channel.setOrgIPAddress(origin.getAddress().getHostAddress());
+            channel.setOrgPort(origin.getPort());
+            // 未设置输入流，connect 只发送打开请求并等待确认，不会启动通道线程
+            channel.setOutputStream(connection.localOutput());
+            connection.attach(channel);
+            channel.connect(CHANNEL_CONNECT_TIMEOUT_MILLIS);
+            forwardMetrics.recordConnect(System.nanoTime() - openedAt);
+            connection.start(channel.getOutputStream());
+        } catch (Exception e) {
+            forwardMetrics.recordError();
+            LOGGER.warn("打开SSH通道失败: {}:{}, {}", forward.remoteHost, forward.remotePort, e.getMessage());
+            connection.close();
+        }
+    }
+
+    private static String key(String localHost, int localPort) {
+        return localHost + ":" + localPort;
+    }
+
+    static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+            // 关闭失败无需处理
+        }
+    }
+
+    /**
+     * SSH会话来源
+     */
+    public interface SessionProvider {
+
+        /**
+         * 获取一个可用会话，用于打开新通道
+         *
+         * @return 已连接的会话
+         * @throws Exception 没有可用会话
+         */
+        Session acquire() throws Exception;
+
+        /**
+         * 通道关闭后归还会话
+         *
+         * @param session 会话
+         */
+        void release(Session session);
+    }
+
+    /**
+     * 转发目标
+     */
+    private static final class Forward {
+        private final String remoteHost;
+        private final int remotePort;
+        private final TrafficMetrics metrics;
+
+        private Forward(String remoteHost, int remotePort, TrafficMetrics metrics) {
+            this.remoteHost = remoteHost;
+            this.remotePort = remotePort;
+            this.metrics = metrics;
+        }
+    }
+
+    /**
+     * 选择器线程
+     * 注册与兴趣集变更都通过任务队列在本线程执行
+     */
+    final class SelectorLoop implements Runnable {
+
+        private final Selector selector;
+
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+        private final Thread thread;
+
+        private volatile boolean running = true;
+
+        private SelectorLoop(String name) throws IOException {
+            this.selector = Selector.open();
+            this.thread = new Thread(this, name);
+            this.thread.setDaemon(true);
+            this.thread.start();
+        }
+
+        /**
+         * 在选择器线程上执行任务
+         */
+        void execute(Runnable task) {
+            tasks.add(task);
+            if (Thread.currentThread() != thread) {
+                selector.wakeup();
+            }
+        }
+
+        /**
+         * 注册通道，只能在选择器线程上调用
+         */
+        SelectionKey register(SelectableChannel channel, int ops, Object attachment) {
+            try {
+                return channel.register(selector, ops, attachment);
+            } catch (IOException e) {
+                LOGGER.warn("注册通道失败: {}", e.getMessage());
+                closeQuietly(channel);
+                return null;
+            }
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    selector.select();
+                    Runnable task;
+                    while ((task = tasks.poll()) != null) {
+                        task.run();
+                    }
+                    for (SelectionKey key : selector.selectedKeys()) {
+                        dispatch(key);
+                    }
+                    selector.selectedKeys().clear();
+                } catch (ClosedSelectorException e) {
+                    return;
+                } catch (Exception e) {
+                    LOGGER.error("隧道选择器异常", e);
+                }
+            }
+        }
+
+        private void dispatch(SelectionKey key) {
+            if (!key.isValid()) {
+                return;
+            }
+            Object attachment = key.attachment();
+            if (attachment instanceof Forward) {
+                if (key.isAcceptable()) {
+                    accept((ServerSocketChannel) key.channel(), (Forward) attachment);
+                }
+                return;
+            }
+            TunnelConnection connection = (TunnelConnection) attachment;
+            if (key.isWritable()) {
+                connection.onWritable();
+            }
+            if (key.isValid() && key.isReadable()) {
+                connection.onReadable();
+            }
+        }
+
+        private void close() {
+            running = false;
+            execute(() -> {
+                for (SelectionKey key : selector.keys()) {
+                    if (key.attachment() instanceof TunnelConnection) {
+                        ((TunnelConnection) key.attachment()).close();
+                    } else {
+                        closeQuietly(key.channel());
+                    }
+                }
+                closeQuietly(selector);
+            });
+        }
+    }
+}
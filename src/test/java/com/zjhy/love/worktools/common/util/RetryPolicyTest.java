@@ -0,0 +1,104 @@
+package com.zjhy.love.worktools.common.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RetryPolicyTest {
+
+    private static final int SAMPLES = 200;
+
+    @Test
+    void fixedBackoffAlwaysWaitsTheSame() {
+        RetryPolicy policy = RetryPolicy.fixed(250);
+
+        for (int attempt = 1; attempt <= 5; attempt++) {
+            assertEquals(250, policy.nextDelayMillis(attempt, 250));
+        }
+    }
+
+    @Test
+    void exponentialBackoffDoublesWithHalfJitterAndCaps() {
+        RetryPolicy policy = RetryPolicy.exponential(100, 1000);
+
+        for (int i = 0; i < SAMPLES; i++) {
+            assertInRange(policy.nextDelayMillis(1, 0), 50, 100);
+            assertInRange(policy.nextDelayMillis(2, 0), 100, 200);
+            assertInRange(policy.nextDelayMillis(3, 0), 200, 400);
+            assertInRange(policy.nextDelayMillis(5, 0), 500, 1000);
+            // 次数很大时不会溢出，仍受上限约束
+            assertInRange(policy.nextDelayMillis(100, 0), 500, 1000);
+        }
+    }
+
+    @Test
+    void decorrelatedJitterStaysBetweenBaseAndTripledPrevious() {
+        RetryPolicy policy = RetryPolicy.decorrelatedJitter(100, 2000);
+
+        for (int i = 0; i < SAMPLES; i++) {
+            assertInRange(policy.nextDelayMillis(1, 0), 100, 300);
+            assertInRange(policy.nextDelayMillis(2, 400), 100, 1200);
+            assertInRange(policy.nextDelayMillis(3, 1500), 100, 2000);
+        }
+    }
+
+    @Test
+    void maxIsNeverBelowBase() {
+        RetryPolicy policy = RetryPolicy.exponential(500, 100);
+
+        assertEquals(500, policy.getMaxMillis());
+        assertEquals(0, RetryPolicy.fixed(-10).getBaseMillis());
+    }
+
+    @Test
+    void maxAttemptsIncludesFirstAttempt() {
+        RetryPolicy unlimited = RetryPolicy.fixed(0);
+        RetryPolicy limited = RetryPolicy.fixed(0).maxAttempts(3);
+
+        assertTrue(unlimited.canAttempt(1000));
+        assertTrue(limited.canAttempt(3));
+        assertFalse(limited.canAttempt(4));
+    }
+
+    @Test
+    void retryOnFiltersExceptions() {
+        RetryPolicy policy = RetryPolicy.fixed(0).retryOn(e -> e instanceof IOException);
+
+        assertTrue(policy.isRetryable(new IOException()));
+        assertFalse(policy.isRetryable(new IllegalArgumentException()));
+    }
+
+    @Test
+    void circuitBreakerOnlyWhenThresholdSet() {
+        assertNull(RetryPolicy.fixed(0).newCircuitBreaker());
+        assertNotNull(RetryPolicy.fixed(0).circuitBreaker(3, 1000).newCircuitBreaker());
+    }
+
+    @Test
+    void budgetStopsRetriesBelowHalfAndRefillsOnSuccess() {
+        RetryBudget budget = new RetryBudget(10, 0.5);
+
+        for (int i = 0; i < 4; i++) {
+            budget.recordFailure();
+        }
+        assertTrue(budget.canRetry());
+        budget.recordFailure();
+        assertFalse(budget.canRetry());
+        budget.recordSuccess();
+        assertTrue(budget.canRetry());
+        for (int i = 0; i < 100; i++) {
+            budget.recordSuccess();
+        }
+        assertEquals(10, budget.getTokens(), 0);
+    }
+
+    private static void assertInRange(long value, long min, long max) {
+        assertTrue(value >= min && value <= max, value + " not in [" + min + ", " + max + "]");
+    }
+}
@@ -0,0 +1,136 @@
+package com.zjhy.love.worktools.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ForwardOrchestratorTest {
+
+    private final ForwardOrchestrator orchestrator = new ForwardOrchestrator(4);
+
+    /**
+     * 当前打开的转发
+     */
+    private final Set<Integer> open = ConcurrentHashMap.newKeySet();
+
+    @AfterEach
+    void shutdown() {
+        orchestrator.shutdown();
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws Exception {
+        return future.get(5, TimeUnit.SECONDS);
+    }
+
+    private static Throwable failureOf(CompletableFuture<?> future) {
+        ExecutionException e = assertThrows(ExecutionException.class, () -> await(future));
+        return e.getCause();
+    }
+
+    private CompletableFuture<Integer> startAll(List<Integer> entries) {
+        return orchestrator.startAll(entries, open::add, open::remove, null);
+    }
+
+    @Test
+    void emptyBatchCompletesImmediately() throws Exception {
+        assertEquals(0, await(startAll(List.of())));
+    }
+
+    @Test
+    void startStopStart() throws Exception {
+        List<Integer> entries = List.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10);
+
+        assertEquals(10, await(startAll(entries)));
+        assertEquals(Set.copyOf(entries), open);
+
+        // 停止只关闭转发，编排器可继续使用
+        open.clear();
+        assertEquals(10, await(startAll(entries)));
+        assertEquals(Set.copyOf(entries), open);
+    }
+
+    @Test
+    void partialFailureRollsBackInReverseOrder() throws Exception {
+        ForwardOrchestrator serial = new ForwardOrchestrator(1);
+        List<Integer> attempted = Collections.synchronizedList(new ArrayList<>());
+        List<Integer> rolledBack = Collections.synchronizedList(new ArrayList<>());
+        IOException cause = new IOException("端口被占用");
+        try {
+            CompletableFuture<Integer> result = serial.startAll(List.of(1, 2, 3, 4, 5), entry -> {
+                attempted.add(entry);
+                if (entry == 3) {
+                    throw cause;
+                }
+            }, rolledBack::add, null);
+
+            assertEquals(cause, failureOf(result));
+            // 失败后不再启动剩余条目
+            assertEquals(List.of(1, 2, 3), attempted);
+            assertEquals(List.of(2, 1), rolledBack);
+        } finally {
+            serial.shutdown();
+        }
+    }
+
+    @Test
+    void concurrentFailureRollsBackEveryStartedEntry() throws Exception {
+        List<Integer> entries = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            entries.add(i);
+        }
+        CompletableFuture<Integer> result = orchestrator.startAll(entries, entry -> {
+            if (entry == 20) {
+                throw new IOException("连接失败");
+            }
+            open.add(entry);
+        }, open::remove, null);
+
+        assertInstanceOf(IOException.class, failureOf(result));
+        assertTrue(open.isEmpty(), "未回滚: " + open);
+    }
+
+    @Test
+    void progressCountsEveryFinishedEntryWithinParallelism() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        List<Integer> progress = Collections.synchronizedList(new ArrayList<>());
+        List<Integer> entries = List.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12);
+
+        CompletableFuture<Integer> result = orchestrator.startAll(entries, entry -> {
+            peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            running.decrementAndGet();
+        }, null, (entry, error, completed, total) -> progress.add(completed * 100 + total));
+
+        assertEquals(12, await(result));
+        assertEquals(12, progress.size());
+        assertTrue(progress.contains(12 * 100 + 12));
+        assertTrue(peak.get() <= 4, "并发数超过上限: " + peak.get());
+    }
+
+    @Test
+    void startAfterShutdownFailsInsteadOfThrowing() {
+        orchestrator.shutdown();
+
+        CompletableFuture<Integer> result = startAll(List.of(1, 2));
+
+        assertInstanceOf(RejectedExecutionException.class, failureOf(result));
+        assertTrue(open.isEmpty());
+    }
+}
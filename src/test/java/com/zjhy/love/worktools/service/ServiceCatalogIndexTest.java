@@ -0,0 +1,60 @@
+package com.zjhy.love.worktools.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ServiceCatalogIndexTest {
+
+    private final ServiceCatalog.Index index = new ServiceCatalog.Index(List.of(
+            "order-service", "Order-Admin", "user-service", "payment-order", "gateway", "order-service"));
+
+    @Test
+    void sortsAndDeduplicatesNames() {
+        assertEquals(5, index.size());
+        assertEquals(List.of("gateway", "Order-Admin", "order-service", "payment-order", "user-service"), index.all());
+    }
+
+    @Test
+    void blankQueryReturnsEverything() {
+        assertEquals(index.all(), index.search(""));
+        assertEquals(index.all(), index.search("  "));
+        assertEquals(index.all(), index.search(null));
+    }
+
+    @Test
+    void shortQueryHitsPostingsDirectly() {
+        assertEquals(List.of("gateway", "payment-order"), index.search("ay"));
+        assertTrue(index.search("zz").isEmpty());
+    }
+
+    @Test
+    void searchIsCaseInsensitiveAndPutsPrefixMatchesFirst() {
+        assertEquals(List.of("Order-Admin", "order-service", "payment-order"), index.search("ORDER"));
+        assertEquals(List.of("order-service", "user-service"), index.search("-serv"));
+    }
+
+    @Test
+    void longQueryVerifiesTrigramCandidates() {
+        // "rder" 与 "r-se" 的三元组都出现在 order-service 中，但拼接后的串不存在
+        assertTrue(index.search("rder-sx").isEmpty());
+        assertEquals(List.of("order-service"), index.search("order-se"));
+    }
+
+    @Test
+    void refineFiltersPreviousResultsWhenQueryExtendsIt() {
+        List<String> previous = index.search("or");
+        assertEquals(index.search("order-a"), index.refine("or", previous, "order-a"));
+        assertEquals(List.of("Order-Admin"), index.refine("or", previous, "order-a"));
+    }
+
+    @Test
+    void refineSearchesAgainWhenQueryDoesNotExtendPrevious() {
+        List<String> previous = index.search("order");
+        assertEquals(List.of("gateway"), index.refine("order", previous, "gate"));
+        assertEquals(index.all(), index.refine("order", previous, ""));
+    }
+}
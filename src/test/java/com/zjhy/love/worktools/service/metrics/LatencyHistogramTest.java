@@ -0,0 +1,87 @@
+package com.zjhy.love.worktools.service.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    private static long micros(long value) {
+        return TimeUnit.MICROSECONDS.toNanos(value);
+    }
+
+    @Test
+    void emptyHistogramReportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMeanMillis(), 0);
+        assertEquals(0, histogram.getMaxMillis(), 0);
+        assertEquals(0, histogram.getPercentileMillis(0.99), 0);
+    }
+
+    @Test
+    void smallValuesHaveExactBuckets() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 0; value < 8; value++) {
+            histogram.record(micros(value));
+        }
+
+        assertEquals(8, histogram.getCount());
+        assertEquals(0.003, histogram.getPercentileMillis(0.5), 1e-9);
+        assertEquals(0.007, histogram.getPercentileMillis(1), 1e-9);
+        assertEquals(0.0035, histogram.getMeanMillis(), 1e-9);
+    }
+
+    @Test
+    void percentileIsBucketUpperBoundWithinQuarterError() {
+        for (long value : new long[]{9, 100, 1_000, 12_345, 1_000_000, 45_000_000}) {
+            LatencyHistogram histogram = new LatencyHistogram();
+            histogram.record(micros(value));
+            // 单个样本时分位值被最大值截断，与样本相等
+            assertEquals(value / 1000.0, histogram.getPercentileMillis(0.5), 1e-9);
+
+            histogram.record(micros(value * 10));
+            double p50 = histogram.getPercentileMillis(0.5) * 1000;
+            assertTrue(p50 >= value && p50 <= value * 1.25, "p50 of " + value + " was " + p50);
+        }
+    }
+
+    @Test
+    void percentilesFollowDistribution() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+
+        double p50 = histogram.getPercentileMillis(0.5);
+        double p99 = histogram.getPercentileMillis(0.99);
+        assertTrue(p50 >= 500 && p50 <= 500 * 1.25, "p50 was " + p50);
+        assertTrue(p99 >= 990 && p99 <= 1000, "p99 was " + p99);
+        assertEquals(1000, histogram.getPercentileMillis(1), 0);
+        assertEquals(1000, histogram.getMaxMillis(), 0);
+        assertEquals(500.5, histogram.getMeanMillis(), 1e-9);
+    }
+
+    @Test
+    void quantileIsClampedAndNegativeLatencyCountsAsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(micros(3));
+
+        assertEquals(0, histogram.getPercentileMillis(-1), 0);
+        assertEquals(0.003, histogram.getPercentileMillis(2), 1e-9);
+    }
+
+    @Test
+    void hugeValuesLandInLastBucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        long huge = TimeUnit.DAYS.toNanos(30);
+        histogram.record(huge);
+
+        assertEquals(TimeUnit.NANOSECONDS.toMicros(huge) / 1000.0, histogram.getPercentileMillis(0.5), 1e-9);
+    }
+}
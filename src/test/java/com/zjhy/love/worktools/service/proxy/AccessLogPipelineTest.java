@@ -0,0 +1,119 @@
+package com.zjhy.love.worktools.service.proxy;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccessLogPipelineTest {
+
+    @TempDir
+    Path dir;
+
+    private static boolean offer(AccessLogPipeline pipeline, String uri, int status) {
+        return pipeline.offer("GET", "api.local", uri, null, "route", "127.0.0.1:8080", status,
+                0, 10, TimeUnit.MILLISECONDS.toNanos(2));
+    }
+
+    private List<String> lines(Path file) throws IOException {
+        return Files.readAllLines(file, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void capacityRoundsUpToPowerOfTwo() {
+        assertEquals(8, new AccessLogPipeline(dir.resolve("a.log"), 5, 1, 1024, 1).capacity());
+        assertEquals(8, new AccessLogPipeline(dir.resolve("a.log"), 8, 1, 1024, 1).capacity());
+        assertEquals(2, new AccessLogPipeline(dir.resolve("a.log"), 0, 1, 1024, 1).capacity());
+    }
+
+    @Test
+    void rejectsEventsBeforeStart() {
+        AccessLogPipeline pipeline = new AccessLogPipeline(dir.resolve("a.log"), 4, 1, 1024, 1);
+
+        assertFalse(offer(pipeline, "/x", 200));
+    }
+
+    @Test
+    void fullRingDropsAndReportsCount() throws IOException {
+        Path file = dir.resolve("a.log");
+        AccessLogPipeline pipeline = new AccessLogPipeline(file, 4, 1, 1 << 20, 1);
+        pipeline.startPaused();
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(offer(pipeline, "/" + i, 200));
+        }
+        assertFalse(offer(pipeline, "/4", 200));
+        assertFalse(offer(pipeline, "/5", 200));
+
+        assertEquals(4, pipeline.drainNow());
+        // 写出后槽位可以复用
+        assertTrue(offer(pipeline, "/6", 200));
+        assertEquals(1, pipeline.drainNow());
+        pipeline.close();
+
+        List<String> lines = lines(file);
+        assertEquals(6, lines.size());
+        assertTrue(lines.get(0).contains(" GET api.local/0 route 127.0.0.1:8080 200 0 10 2.0ms"), lines.get(0));
+        assertTrue(lines.get(4).endsWith("丢弃2条"), lines.get(4));
+        assertTrue(lines.get(5).contains("api.local/6 "), lines.get(5));
+    }
+
+    @Test
+    void samplingAlwaysKeepsServerErrorsAndUnfinishedRequests() throws IOException {
+        Path file = dir.resolve("a.log");
+        AccessLogPipeline pipeline = new AccessLogPipeline(file, 8, 0, 1 << 20, 1);
+        pipeline.startPaused();
+
+        assertFalse(offer(pipeline, "/ok", 200));
+        assertTrue(offer(pipeline, "/error", 502));
+        assertTrue(offer(pipeline, "/aborted", 0));
+        pipeline.drainNow();
+        pipeline.close();
+
+        assertEquals(2, lines(file).size());
+    }
+
+    @Test
+    void rotatesBySizeAndKeepsConfiguredFiles() throws IOException {
+        Path file = dir.resolve("a.log");
+        AccessLogPipeline pipeline = new AccessLogPipeline(file, 16, 1, 150, 3);
+        pipeline.startPaused();
+
+        for (int i = 0; i < 8; i++) {
+            offer(pipeline, "/" + i, 200);
+            pipeline.drainNow();
+        }
+        pipeline.close();
+
+        assertTrue(Files.exists(file));
+        assertTrue(Files.exists(dir.resolve("a.log.1")));
+        assertTrue(Files.exists(dir.resolve("a.log.2")));
+        assertFalse(Files.exists(dir.resolve("a.log.3")));
+        assertTrue(Files.size(file) <= 150);
+        assertTrue(lines(file).get(lines(file).size() - 1).contains("api.local/7 "));
+    }
+
+    @Test
+    void closeWritesRemainingEvents() throws IOException {
+        Path file = dir.resolve("a.log");
+        AccessLogPipeline pipeline = new AccessLogPipeline(file, 64, 1, 1 << 20, 1);
+        pipeline.start();
+
+        for (int i = 0; i < 20; i++) {
+            assertTrue(offer(pipeline, "/" + i, 200));
+        }
+        pipeline.close();
+
+        assertEquals(20, lines(file).size());
+        assertFalse(offer(pipeline, "/late", 200));
+    }
+}
@@ -0,0 +1,74 @@
+package com.zjhy.love.worktools.service.proxy;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompressionNegotiatorTest {
+
+    @Test
+    void missingHeaderAcceptsNothing() {
+        assertFalse(CompressionNegotiator.accepts(null, "gzip"));
+        assertFalse(CompressionNegotiator.accepts("", "gzip"));
+    }
+
+    @Test
+    void listedEncodingIsAccepted() {
+        assertTrue(CompressionNegotiator.accepts("gzip", "gzip"));
+        assertTrue(CompressionNegotiator.accepts("br, GZIP;q=0.5", "gzip"));
+        assertFalse(CompressionNegotiator.accepts("br, deflate", "gzip"));
+    }
+
+    @Test
+    void zeroQualityRejects() {
+        assertFalse(CompressionNegotiator.accepts("gzip;q=0", "gzip"));
+        assertFalse(CompressionNegotiator.accepts("gzip; Q=0.000", "gzip"));
+        assertTrue(CompressionNegotiator.accepts("gzip;q=0.001", "gzip"));
+        // 无法解析的权重按接受处理
+        assertTrue(CompressionNegotiator.accepts("gzip;q=abc", "gzip"));
+    }
+
+    @Test
+    void wildcardAppliesOnlyToUnlistedEncodings() {
+        assertTrue(CompressionNegotiator.accepts("*", "gzip"));
+        assertFalse(CompressionNegotiator.accepts("*;q=0", "gzip"));
+        assertFalse(CompressionNegotiator.accepts("*, gzip;q=0", "gzip"));
+        assertTrue(CompressionNegotiator.accepts("*;q=0, gzip", "gzip"));
+        assertTrue(CompressionNegotiator.accepts("*;q=0, gzip", "x-gzip"));
+    }
+
+    @Test
+    void gzipAndXGzipAreEquivalent() {
+        assertTrue(CompressionNegotiator.accepts("gzip", "x-gzip"));
+        assertTrue(CompressionNegotiator.accepts("x-gzip", "gzip"));
+        assertFalse(CompressionNegotiator.accepts("x-gzip;q=0", "gzip"));
+    }
+
+    @Test
+    void decodeDropsEncodingAndWeakensETag() {
+        List<String[]> headers = new ArrayList<>(List.of(new String[]{"Content-Encoding", "gzip"},
+                new String[]{"ETag", "\"v1\""}, new String[]{"Content-Type", "text/plain"}));
+
+        CompressionNegotiator.rewriteHeaders(headers, CompressionNegotiator.Mode.DECODE);
+
+        assertEquals(2, headers.size());
+        assertEquals("W/\"v1\"", headers.get(0)[1]);
+        assertEquals("Content-Type", headers.get(1)[0]);
+    }
+
+    @Test
+    void passKeepsHeaders() {
+        List<String[]> headers = new ArrayList<>(List.of(new String[]{"Content-Encoding", "gzip"},
+                new String[]{"ETag", "\"v1\""}));
+
+        CompressionNegotiator.rewriteHeaders(headers, CompressionNegotiator.Mode.PASS);
+
+        assertEquals(2, headers.size());
+        assertEquals("\"v1\"", headers.get(1)[1]);
+    }
+}
@@ -0,0 +1,76 @@
+package com.zjhy.love.worktools.service.proxy;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResponseCacheTest {
+
+    private static List<String[]> headers(String... nameValues) {
+        List<String[]> headers = new ArrayList<>();
+        for (int i = 0; i < nameValues.length; i += 2) {
+            headers.add(new String[]{nameValues[i], nameValues[i + 1]});
+        }
+        return headers;
+    }
+
+    @Test
+    void onlyOkResponsesAreCacheable() {
+        assertEquals(-1, ResponseCache.freshnessMillis(404, headers("Cache-Control", "max-age=60")));
+        assertEquals(-1, ResponseCache.freshnessMillis(206, headers("Cache-Control", "max-age=60")));
+    }
+
+    @Test
+    void maxAgeAndSharedMaxAge() {
+        assertEquals(60_000, ResponseCache.freshnessMillis(200, headers("Cache-Control", "public, max-age=60")));
+        // s-maxage 优先于 max-age，同名头的取值合并计算
+        assertEquals(10_000, ResponseCache.freshnessMillis(200,
+                headers("Cache-Control", "max-age=60", "cache-control", "s-maxage=\"10\"")));
+        assertEquals(0, ResponseCache.freshnessMillis(200, headers("Cache-Control", "max-age=-5", "ETag", "\"a\"")));
+    }
+
+    @Test
+    void uncacheableDirectivesAndHeaders() {
+        assertEquals(-1, ResponseCache.freshnessMillis(200, headers("Cache-Control", "no-store, max-age=60")));
+        assertEquals(-1, ResponseCache.freshnessMillis(200, headers("Cache-Control", "private, max-age=60")));
+        assertEquals(-1, ResponseCache.freshnessMillis(200, headers("Cache-Control", "max-age=60", "Vary", "*")));
+        assertEquals(-1, ResponseCache.freshnessMillis(200, headers("Cache-Control", "max-age=60", "Set-Cookie", "a=b")));
+    }
+
+    @Test
+    void validatorsAllowZeroFreshness() {
+        assertEquals(0, ResponseCache.freshnessMillis(200, headers("Cache-Control", "no-cache, max-age=60", "ETag", "\"a\"")));
+        assertEquals(0, ResponseCache.freshnessMillis(200,
+                headers("Last-Modified", "Mon, 05 Oct 2026 08:00:00 GMT")));
+        // 既无新鲜期也无验证器
+        assertEquals(-1, ResponseCache.freshnessMillis(200, headers("Content-Type", "text/plain")));
+        assertEquals(-1, ResponseCache.freshnessMillis(200, headers("Cache-Control", "max-age=abc")));
+    }
+
+    @Test
+    void expiresIsRelativeToDate() {
+        assertEquals(120_000, ResponseCache.freshnessMillis(200, headers(
+                "Date", "Mon, 05 Oct 2026 08:00:00 GMT",
+                "Expires", "Mon, 05 Oct 2026 08:02:00 GMT")));
+        assertEquals(0, ResponseCache.freshnessMillis(200, headers(
+                "Date", "Mon, 05 Oct 2026 08:00:00 GMT",
+                "Expires", "Mon, 05 Oct 2026 07:00:00 GMT",
+                "ETag", "\"a\"")));
+        // 无效的 Expires 视为已过期
+        assertEquals(0, ResponseCache.freshnessMillis(200, headers("Expires", "0", "ETag", "\"a\"")));
+    }
+
+    @Test
+    void revalidationDirectivesForbidStaleResponses() {
+        assertTrue(ResponseCache.allowsStale(headers("Cache-Control", "max-age=60")));
+        assertTrue(ResponseCache.allowsStale(headers("ETag", "\"a\"")));
+        assertFalse(ResponseCache.allowsStale(headers("Cache-Control", "max-age=60, must-revalidate")));
+        assertFalse(ResponseCache.allowsStale(headers("Cache-Control", "public", "Cache-Control", "Proxy-Revalidate")));
+        assertFalse(ResponseCache.allowsStale(headers("Cache-Control", "s-maxage=60")));
+    }
+}
@@ -0,0 +1,105 @@
+package com.zjhy.love.worktools.service.proxy;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class RouteTableTest {
+
+    private static RouteTable<String> table(String... ruleTargets) {
+        Map<String, String> rules = new LinkedHashMap<>();
+        for (int i = 0; i < ruleTargets.length; i += 2) {
+            rules.put(ruleTargets[i], ruleTargets[i + 1]);
+        }
+        return RouteTable.of(rules);
+    }
+
+    @Test
+    void exactMatchIgnoresHostCaseAndFallsBackWithoutPort() {
+        RouteTable<String> routes = table("api.local", "a", "api.local:8080", "b");
+
+        assertEquals("a", routes.lookup("API.Local", "/"));
+        assertEquals("b", routes.lookup("api.local:8080", "/"));
+        assertEquals("a", routes.lookup("api.local:9090", "/"));
+        assertNull(routes.lookup("other.local", "/"));
+        assertNull(routes.lookup(null, "/"));
+    }
+
+    @Test
+    void wildcardMatchesExactlyOneExtraLabel() {
+        RouteTable<String> routes = table("*.example.com", "w");
+
+        assertEquals("w", routes.lookup("a.example.com", "/"));
+        assertNull(routes.lookup("example.com", "/"));
+        assertNull(routes.lookup("a.b.example.com", "/"));
+    }
+
+    @Test
+    void suffixMatchesDomainAndAnyDepth() {
+        RouteTable<String> routes = table(".example.com", "s", ".b.example.com", "deep");
+
+        assertEquals("s", routes.lookup("example.com", "/"));
+        assertEquals("s", routes.lookup("a.example.com:80", "/"));
+        assertEquals("deep", routes.lookup("x.y.b.example.com", "/"));
+    }
+
+    @Test
+    void exactWinsOverWildcardAndSuffix() {
+        RouteTable<String> routes = table(".example.com", "s", "*.example.com", "w", "a.example.com", "e");
+
+        assertEquals("e", routes.lookup("a.example.com", "/"));
+        assertEquals("w", routes.lookup("b.example.com", "/"));
+        assertEquals("s", routes.lookup("c.d.example.com", "/"));
+    }
+
+    @Test
+    void pathPrefixUsesLongestSegmentMatch() {
+        RouteTable<String> routes = table("api.local", "root", "api.local/order", "order",
+                "api.local/order/v2/", "v2");
+
+        assertEquals("v2", routes.lookup("api.local", "/order/v2/items"));
+        assertEquals("order", routes.lookup("api.local", "/order/v1"));
+        assertEquals("order", routes.lookup("api.local", "/order"));
+        assertEquals("root", routes.lookup("api.local", "/orders"));
+        assertEquals("root", routes.lookup("api.local", null));
+    }
+
+    @Test
+    void pathPrefixIsCaseSensitiveWhileHostIsNot() {
+        RouteTable<String> routes = table("API.local/Order", "order");
+
+        assertEquals("order", routes.lookup("api.local", "/Order/1"));
+        assertNull(routes.lookup("api.local", "/order/1"));
+    }
+
+    @Test
+    void withAndWithoutReturnNewTables() {
+        RouteTable<String> empty = RouteTable.empty();
+        RouteTable<String> one = empty.with("a.local", "x");
+
+        assertNull(empty.lookup("a.local", "/"));
+        assertEquals("x", one.lookup("a.local", "/"));
+        assertSame(one, one.without("missing"));
+        assertNull(one.without("a.local").lookup("a.local", "/"));
+    }
+
+    @Test
+    void updateAppliesRemovalsThenAdditionsInOneStep() {
+        RouteTable<String> table = RouteTable.of(Map.of("a.local", "x", "b.local", "y"));
+
+        RouteTable<String> updated = table.update(Map.of("b.local", "z", "c.local", "w"), List.of("a.local", "b.local"));
+
+        assertNull(updated.lookup("a.local", "/"));
+        assertEquals("z", updated.lookup("b.local", "/"));
+        assertEquals("w", updated.lookup("c.local", "/"));
+        assertEquals("x", table.lookup("a.local", "/"));
+        assertSame(table, table.update(Map.of("a.local", "x"), List.of("missing")));
+        assertSame(RouteTable.empty(), updated.update(Map.of(), List.of("b.local", "c.local")));
+    }
+}
@@ -0,0 +1,103 @@
+package com.zjhy.love.worktools.service.tunnel;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.BindException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PortAllocatorTest {
+
+    /**
+     * 记录绑定尝试，指定端口视为被其他进程占用
+     */
+    private static final class FakeBinder implements PortAllocator.Binder {
+        private final Set<Integer> busy;
+        private final List<Integer> attempts = new ArrayList<>();
+
+        private FakeBinder(Integer... busy) {
+            this.busy = Set.of(busy);
+        }
+
+        @Override
+        public int bind(int port) throws IOException {
+            attempts.add(port);
+            if (busy.contains(port)) {
+                throw new BindException("Address already in use");
+            }
+            return port == 0 ? 40000 + attempts.size() : port;
+        }
+    }
+
+    @Test
+    void ephemeralModeBindsZeroOnce() throws IOException {
+        PortAllocator allocator = new PortAllocator();
+        FakeBinder binder = new FakeBinder();
+
+        assertEquals(40001, allocator.allocate(binder));
+        assertEquals(List.of(0), binder.attempts);
+        assertEquals(1, allocator.getLeasedCount());
+    }
+
+    @Test
+    void rangeModeContinuesFromLastAllocation() throws IOException {
+        PortAllocator allocator = new PortAllocator(10000, 10003);
+        FakeBinder binder = new FakeBinder();
+
+        assertEquals(10000, allocator.allocate(binder));
+        assertEquals(10001, allocator.allocate(binder));
+        allocator.release(10000);
+        // 从上次位置继续，不立即复用刚归还的端口
+        assertEquals(10002, allocator.allocate(binder));
+        assertEquals(10003, allocator.allocate(binder));
+        assertEquals(10000, allocator.allocate(binder));
+        assertEquals(List.of(10000, 10001, 10002, 10003, 10000), binder.attempts);
+    }
+
+    @Test
+    void rangeModeSkipsPortsHeldByOtherProcesses() throws IOException {
+        PortAllocator allocator = new PortAllocator(10000, 10003);
+        FakeBinder binder = new FakeBinder(10000, 10001);
+
+        assertEquals(10002, allocator.allocate(binder));
+        assertEquals(List.of(10000, 10001, 10002), binder.attempts);
+    }
+
+    @Test
+    void reservedPortsAreNotHandedOut() throws IOException {
+        PortAllocator allocator = new PortAllocator(10000, 10002);
+        allocator.reserve(10000);
+        FakeBinder binder = new FakeBinder();
+
+        assertEquals(10001, allocator.allocate(binder));
+        assertEquals(List.of(10001), binder.attempts);
+    }
+
+    @Test
+    void exhaustedRangeFailsAfterOnePass() throws IOException {
+        PortAllocator allocator = new PortAllocator(10000, 10002);
+        allocator.allocate(new FakeBinder());
+        FakeBinder binder = new FakeBinder(10001, 10002);
+
+        assertThrows(IOException.class, () -> allocator.allocate(binder));
+        assertEquals(List.of(10001, 10002), binder.attempts);
+    }
+
+    @Test
+    void releaseAllResetsLeasesAndCursor() throws IOException {
+        PortAllocator allocator = new PortAllocator(10000, 10002);
+        FakeBinder binder = new FakeBinder();
+        allocator.allocate(binder);
+        allocator.allocate(binder);
+
+        allocator.releaseAll();
+
+        assertEquals(0, allocator.getLeasedCount());
+        assertEquals(10000, allocator.allocate(binder));
+    }
+}